@@ -0,0 +1,260 @@
+package cfe.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// Acceso a la aplicación: Main vive en el paquete por defecto (JMH no admite benchmarks ahí y Java no permite
+// importarlo desde un paquete con nombre), así que los métodos internos se obtienen una vez como MethodHandles.
+final class Aplicacion {
+
+    static final Class<?> MAIN = clase("Main");
+    static final Class<?> SOLICITUD = clase("Main$Solicitud");
+    static final Class<?> HISTORIAL = clase("Main$Historial");
+    static final Class<?> SESION = clase("Main$Sesion");
+    static final Class<?> REPOSITORIO = clase("RepositorioSolicitudes");
+    static final Class<?> GENERADOR_FOLIOS = clase("GeneradorFolios");
+    static final Class<?> TELEMETRIA = clase("Telemetria");
+    static final Class<?> BUS = clase("BusEventos");
+    static final Class<?> TIPO_EVENTO = clase("Main$TipoEvento");
+    static final Class<?> DESBORDE = clase("BusEventos$Desborde");
+    static final Class<?> SUSCRIPTOR = clase("BusEventos$Suscriptor");
+
+    private static final MethodHandle CARGAR_CSV = metodo(MAIN, "cargarDesdeCSV", String.class, Class.class);
+    private static final MethodHandle GUARDAR_LISTA = metodo(MAIN, "guardarLista", String.class, List.class);
+    private static final MethodHandle REPORTE_METRICAS = metodo(MAIN, "generarReporteMetricas", boolean.class);
+    private static final MethodHandle MOSTRAR_HISTORIAL = metodo(MAIN, "mostrarHistorial", String.class);
+    private static final MethodHandle REPORTE_DETALLADO = metodo(MAIN, "escribirReporteDetallado", SOLICITUD, String.class);
+    private static final MethodHandle NUEVA_SESION = constructor(SESION, Scanner.class, PrintStream.class, PrintStream.class);
+    private static final MethodHandle SESION_ACTUAL = campo(MAIN, "SESION");
+    private static final MethodHandle NUEVO_REPOSITORIO = constructor(REPOSITORIO);
+    private static final MethodHandle CARGAR_REPOSITORIO = metodo(REPOSITORIO, "cargar", List.class, List.class);
+    private static final MethodHandle BUSCAR_POR_FOLIO = metodo(REPOSITORIO, "buscarPorFolio", String.class);
+    private static final MethodHandle HISTORIAL_DE = metodo(REPOSITORIO, "historialDe", String.class);
+    private static final MethodHandle NUEVO_GENERADOR = constructor(GENERADOR_FOLIOS, String.class);
+    private static final MethodHandle SIGUIENTE_FOLIO = metodo(GENERADOR_FOLIOS, "siguiente");
+    private static final MethodHandle REPOSITORIO_MAIN = campo(MAIN, "repositorio");
+    private static final MethodHandle NUEVA_TELEMETRIA = constructor(TELEMETRIA);
+    private static final MethodHandle NUEVO_BUS = constructor(BUS, long.class, TELEMETRIA);
+    private static final MethodHandle SUSCRIBIR = metodo(BUS, "suscribir", String.class, Set.class, int.class, DESBORDE, SUSCRIPTOR);
+    private static final MethodHandle PUBLICAR = metodo(BUS, "publicar", HISTORIAL);
+    private static final MethodHandle CERRAR_BUS = metodo(BUS, "cerrar");
+    private static final MethodHandle NUEVO_HISTORIAL = constructor(HISTORIAL, String.class, String.class, TIPO_EVENTO, String.class, long.class);
+    static final MethodHandle FOLIO_HISTORIAL = campo(HISTORIAL, "folio");
+    static final MethodHandle FECHA_HISTORIAL = campo(HISTORIAL, "fecha");
+
+    private Aplicacion() {
+    }
+
+    static List<?> cargarDesdeCSV(String archivo, Class<?> clazz) {
+        try {
+            return (List<?>) CARGAR_CSV.invoke(archivo, clazz);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static void guardarLista(String archivo, List<?> lista) {
+        try {
+            GUARDAR_LISTA.invoke(archivo, lista);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static void generarReporteMetricas() {
+        try {
+            REPORTE_METRICAS.invoke(false);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static void mostrarHistorial(String folio) {
+        try {
+            MOSTRAR_HISTORIAL.invoke(folio);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    // Reporte PDF de una solicitud; devuelve los bytes escritos
+    static long escribirReporteDetallado(Object solicitud, String archivo) {
+        try {
+            return (long) REPORTE_DETALLADO.invoke(solicitud, archivo);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static Object nuevoBus(long esperaMs) {
+        try {
+            return NUEVO_BUS.invoke(esperaMs, NUEVA_TELEMETRIA.invoke());
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    // Suscriptor que solo cuenta los eventos recibidos; desborde es ESPERAR o DESCARTAR
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static void suscribirContador(Object bus, String nombre, int capacidad, String desborde, LongAdder recibidos) {
+        try {
+            Object suscriptor = Proxy.newProxyInstance(SUSCRIPTOR.getClassLoader(), new Class<?>[] { SUSCRIPTOR }, (proxy, metodo, args) -> {
+                if (!metodo.getName().equals("recibir")) return metodo.invoke(recibidos, args);
+                recibidos.add(((List<?>) args[0]).size());
+                return null;
+            });
+            Set tipos = EnumSet.allOf((Class) TIPO_EVENTO);
+            SUSCRIBIR.invoke(bus, nombre, tipos, capacidad, Enum.valueOf((Class) DESBORDE, desborde), suscriptor);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static void publicar(Object bus, Object historial) {
+        try {
+            PUBLICAR.invoke(bus, historial);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static void cerrarBus(Object bus) {
+        try {
+            CERRAR_BUS.invoke(bus);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Object nuevoComentario(String folio, String usuario, String detalle, long fecha) {
+        try {
+            return NUEVO_HISTORIAL.invoke(folio, usuario, Enum.valueOf((Class) TIPO_EVENTO, "COMENTARIO"), detalle, fecha);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    // Sesión del hilo actual con salida descartada, para medir los menús sin escribir en consola
+    @SuppressWarnings("unchecked")
+    static void silenciarSesion() {
+        try {
+            PrintStream nula = new PrintStream(OutputStream.nullOutputStream());
+            ((ThreadLocal<Object>) SESION_ACTUAL.invoke()).set(NUEVA_SESION.invoke(new Scanner(""), nula, nula));
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    // El repositorio estático que usan los menús de Main (métricas, búsqueda por folio, historial)
+    static Object repositorioMain() {
+        try {
+            return REPOSITORIO_MAIN.invoke();
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static Object nuevoRepositorio() {
+        try {
+            return NUEVO_REPOSITORIO.invoke();
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static void cargarRepositorio(Object repositorio, List<?> solicitudes, List<?> historial) {
+        try {
+            CARGAR_REPOSITORIO.invoke(repositorio, solicitudes, historial);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static Object buscarPorFolio(Object repositorio, String folio) {
+        try {
+            return BUSCAR_POR_FOLIO.invoke(repositorio, folio);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static List<?> historialDe(Object repositorio, String folio) {
+        try {
+            return (List<?>) HISTORIAL_DE.invoke(repositorio, folio);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static Object nuevoGeneradorFolios(String archivo) {
+        try {
+            return NUEVO_GENERADOR.invoke(archivo);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    static String siguienteFolio(Object generador) {
+        try {
+            return (String) SIGUIENTE_FOLIO.invoke(generador);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    private static Class<?> clase(String nombre) {
+        try {
+            return Class.forName(nombre);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle metodo(Class<?> clase, String nombre, Class<?>... parametros) {
+        try {
+            Method m = clase.getDeclaredMethod(nombre, parametros);
+            m.setAccessible(true);
+            return MethodHandles.lookup().unreflect(m);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> clase, Class<?>... parametros) {
+        try {
+            Constructor<?> c = clase.getDeclaredConstructor(parametros);
+            c.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(c);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle campo(Class<?> clase, String nombre) {
+        try {
+            Field f = clase.getDeclaredField(nombre);
+            f.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(f);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static RuntimeException propagar(Throwable t) {
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new IllegalStateException(t);
+    }
+}
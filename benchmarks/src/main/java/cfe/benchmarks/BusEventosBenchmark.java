@@ -0,0 +1,52 @@
+package cfe.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.*;
+
+// Costo de publicar un evento en el bus para quien registra la operación, con 0, 1 y 4 suscriptores. Publicando
+// sin pausa las colas se llenan: con ESPERAR se mide la contrapresión (el ritmo de los consumidores) y con
+// DESCARTAR el costo propio de publicar
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class BusEventosBenchmark {
+
+    @Param({ "0", "1", "4" })
+    public int suscriptores;
+
+    @Param({ "ESPERAR", "DESCARTAR" })
+    public String desborde;
+
+    private Object bus;
+    private Object[] eventos;
+    private int siguiente;
+    private final LongAdder recibidos = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void preparar() {
+
+        bus = Aplicacion.nuevoBus(5);
+        for (int i = 0; i < suscriptores; i++) Aplicacion.suscribirContador(bus, "contador" + i, 4096, desborde, recibidos);
+
+        eventos = new Object[1024];
+        for (int i = 0; i < eventos.length; i++) {
+            eventos[i] = Aplicacion.nuevoComentario(DatosSinteticos.folio(i), DatosSinteticos.RESPONSABLES[i % 3],
+                    "Se revisó el equipo y se programa visita " + i, 1_735_718_400L + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        Aplicacion.cerrarBus(bus);
+    }
+
+    @Benchmark
+    public void publicar() {
+        Aplicacion.publicar(bus, eventos[siguiente++ & (eventos.length - 1)]);
+    }
+}
@@ -0,0 +1,51 @@
+package cfe.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// cargarDesdeCSV sobre journals sintéticos de 10K, 100K y 1M renglones (arranque en frío sin snapshot)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class CargaCsvBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    public int renglones;
+
+    private Path directorio;
+    private String solicitudes;
+    private String historial;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        directorio = DatosSinteticos.directorioTemporal();
+        Path s = directorio.resolve("solicitudes.csv");
+        Path h = directorio.resolve("historial.csv");
+        DatosSinteticos.escribirSolicitudes(s, renglones);
+        DatosSinteticos.escribirHistorial(h, renglones);
+        solicitudes = s.toString();
+        historial = h.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        DatosSinteticos.borrar(directorio);
+    }
+
+    @Benchmark
+    public List<?> cargarSolicitudes() {
+        return Aplicacion.cargarDesdeCSV(solicitudes, Aplicacion.SOLICITUD);
+    }
+
+    @Benchmark
+    public List<?> cargarHistorial() {
+        return Aplicacion.cargarDesdeCSV(historial, Aplicacion.HISTORIAL);
+    }
+}
@@ -0,0 +1,107 @@
+package cfe.benchmarks;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Consultas en memoria sobre 100K solicitudes y 1M eventos de historial cargados en el repositorio de Main
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class ConsultasBenchmark {
+
+    static final int SOLICITUDES = 100_000;
+    static final int EVENTOS = 1_000_000;
+
+    @State(Scope.Benchmark)
+    public static class Datos {
+
+        List<?> historial;
+        Object repositorio;
+
+        @Setup(Level.Trial)
+        public void preparar() throws IOException {
+
+            Path directorio = DatosSinteticos.directorioTemporal();
+            try {
+                Path s = directorio.resolve("solicitudes.csv");
+                Path h = directorio.resolve("historial.csv");
+                DatosSinteticos.escribirSolicitudes(s, SOLICITUDES);
+                DatosSinteticos.escribirHistorial(h, EVENTOS);
+
+                List<?> solicitudes = Aplicacion.cargarDesdeCSV(s.toString(), Aplicacion.SOLICITUD);
+                historial = Aplicacion.cargarDesdeCSV(h.toString(), Aplicacion.HISTORIAL);
+                repositorio = Aplicacion.repositorioMain();
+                Aplicacion.cargarRepositorio(repositorio, solicitudes, historial);
+            } finally {
+                DatosSinteticos.borrar(directorio);
+            }
+        }
+    }
+
+    // Cada hilo recorre folios pseudoaleatorios y tiene su propia sesión silenciosa
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private final SplittableRandom random = new SplittableRandom(7);
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            Aplicacion.silenciarSesion();
+        }
+
+        String folio() {
+            return DatosSinteticos.folio(random.nextInt(SOLICITUDES));
+        }
+    }
+
+    @Benchmark
+    public Object buscarPorFolio(Datos datos, Cursor cursor) {
+        return Aplicacion.buscarPorFolio(datos.repositorio, cursor.folio());
+    }
+
+    @Benchmark
+    public List<?> historialIndexado(Datos datos, Cursor cursor) {
+        return Aplicacion.historialDe(datos.repositorio, cursor.folio());
+    }
+
+    @Benchmark
+    public void mostrarHistorial(Datos datos, Cursor cursor) {
+        Aplicacion.mostrarHistorial(cursor.folio());
+    }
+
+    // Referencia: el recorrido original de mostrarHistorial (filtrar todo el historial y ordenar por fecha)
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void historialFiltradoOrdenado(Datos datos, Cursor cursor, Blackhole bh) throws Throwable {
+
+        String folio = cursor.folio();
+        MethodHandle folioDe = Aplicacion.FOLIO_HISTORIAL;
+        List<Object> eventos = new ArrayList<>();
+        for (Object h : datos.historial) {
+            if (folio.equals(folioDe.invoke(h))) eventos.add(h);
+        }
+        eventos.sort((a, b) -> {
+            try {
+                return Long.compare((long) Aplicacion.FECHA_HISTORIAL.invoke(a), (long) Aplicacion.FECHA_HISTORIAL.invoke(b));
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        });
+        bh.consume(eventos);
+    }
+
+    @Benchmark
+    public void generarReporteMetricas(Datos datos, Cursor cursor) {
+        Aplicacion.generarReporteMetricas();
+    }
+}
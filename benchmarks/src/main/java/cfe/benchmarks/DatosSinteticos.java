@@ -0,0 +1,101 @@
+package cfe.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+// Generador determinista de journals CSV con el mismo formato que escribe la aplicación
+final class DatosSinteticos {
+
+    static final String[] SOLICITANTES = { "dpto_compras", "dpto_rh", "dpto_finanzas", "dpto_juridico", "dpto_operaciones" };
+    static final String[] RESPONSABLES = { "dpto_ti", "dpto_mantenimiento", "dpto_soporte" };
+    static final String[] ESTADOS = { "RECIBIDA", "EN_PROCESO", "COMPLETADA", "CANCELADA" };
+    static final int EVENTOS_POR_SOLICITUD = 10;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 1, 1, 8, 0);
+    private static final long SEMILLA = 20251202L;
+
+    private DatosSinteticos() {
+    }
+
+    // Folios repartidos en ~365 días, 1000+ por día como los genera GeneradorFolios
+    static String folio(int i) {
+        return "CFE-" + INICIO.plusDays(i % 365).format(DAY_FORMAT) + "-" + (1001 + i / 365);
+    }
+
+    static void escribirSolicitudes(Path archivo, int cantidad) throws IOException {
+
+        SplittableRandom random = new SplittableRandom(SEMILLA);
+        try (BufferedWriter bw = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < cantidad; i++) {
+                String fecha = INICIO.plusDays(i % 365).plusSeconds(random.nextInt(36_000)).format(DATE_FORMAT);
+                bw.write(String.join(";", folio(i), "Solicitud de servicio " + i,
+                        "Falla reportada en el equipo " + random.nextInt(5_000) + " del edificio " + random.nextInt(40),
+                        SOLICITANTES[random.nextInt(SOLICITANTES.length)], ESTADOS[random.nextInt(ESTADOS.length)], fecha));
+                bw.newLine();
+            }
+        }
+    }
+
+    // EVENTOS_POR_SOLICITUD eventos por folio, intercalados entre folios como en un journal real
+    static void escribirHistorial(Path archivo, int eventos) throws IOException {
+
+        SplittableRandom random = new SplittableRandom(SEMILLA + 1);
+        int folios = Math.max(1, eventos / EVENTOS_POR_SOLICITUD);
+        try (BufferedWriter bw = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < eventos; i++) {
+                int f = i % folios;
+                int orden = i / folios;
+                String fecha = INICIO.plusDays(f % 365).plusMinutes(orden * 7L + random.nextInt(5)).format(DATE_FORMAT);
+                String linea;
+                if (orden == 0) {
+                    linea = String.join(";", folio(f), SOLICITANTES[f % SOLICITANTES.length], "CREACION",
+                            "Solicitud creada. Estado inicial: RECIBIDA.", fecha);
+                } else if (random.nextInt(3) == 0) {
+                    linea = String.join(";", folio(f), RESPONSABLES[random.nextInt(RESPONSABLES.length)], "CAMBIO_ESTADO",
+                            "Estado cambiado de RECIBIDA a EN_PROCESO", fecha);
+                } else {
+                    linea = String.join(";", folio(f), RESPONSABLES[random.nextInt(RESPONSABLES.length)], "COMENTARIO",
+                            "Se revisó el equipo y se programa visita " + random.nextInt(1_000), fecha);
+                }
+                bw.write(linea);
+                bw.newLine();
+            }
+        }
+    }
+
+    // Historial de un solo folio (p. ej. una solicitud con decenas de miles de comentarios)
+    static void escribirHistorialDeFolio(Path archivo, String folio, int eventos) throws IOException {
+
+        SplittableRandom random = new SplittableRandom(SEMILLA + 2);
+        try (BufferedWriter bw = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < eventos; i++) {
+                String fecha = INICIO.plusMinutes(i * 3L).format(DATE_FORMAT);
+                bw.write(i == 0
+                        ? String.join(";", folio, SOLICITANTES[0], "CREACION", "Solicitud creada. Estado inicial: RECIBIDA.", fecha)
+                        : String.join(";", folio, RESPONSABLES[random.nextInt(RESPONSABLES.length)], "COMENTARIO",
+                                "Se revisó el equipo y se programa visita " + random.nextInt(1_000), fecha));
+                bw.newLine();
+            }
+        }
+    }
+
+    static Path directorioTemporal() throws IOException {
+        return Files.createTempDirectory("cfe-bench");
+    }
+
+    static void borrar(Path directorio) throws IOException {
+        if (directorio == null || !Files.exists(directorio)) return;
+        try (var archivos = Files.list(directorio)) {
+            for (Path p : (Iterable<Path>) archivos::iterator) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(directorio);
+    }
+}
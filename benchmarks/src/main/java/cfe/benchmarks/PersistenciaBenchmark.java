@@ -0,0 +1,73 @@
+package cfe.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Escrituras: reescritura completa con guardarLista (compactación) y generación de folios
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class PersistenciaBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Lista {
+
+        @Param({ "10000", "100000" })
+        public int solicitudes;
+
+        Path directorio;
+        List<?> lista;
+        String destino;
+
+        @Setup(Level.Trial)
+        public void preparar() throws IOException {
+            directorio = DatosSinteticos.directorioTemporal();
+            Path origen = directorio.resolve("origen.csv");
+            DatosSinteticos.escribirSolicitudes(origen, solicitudes);
+            lista = Aplicacion.cargarDesdeCSV(origen.toString(), Aplicacion.SOLICITUD);
+            destino = directorio.resolve("solicitudes.csv").toString();
+        }
+
+        @TearDown(Level.Trial)
+        public void limpiar() throws IOException {
+            DatosSinteticos.borrar(directorio);
+        }
+    }
+
+    // GeneradorFolios sobre un folios.csv temporal: es lo que ejecuta Main.generarFolio
+    @State(Scope.Benchmark)
+    public static class Folios {
+
+        Path directorio;
+        Object generador;
+
+        @Setup(Level.Trial)
+        public void preparar() throws IOException {
+            directorio = DatosSinteticos.directorioTemporal();
+            generador = Aplicacion.nuevoGeneradorFolios(directorio.resolve("folios.csv").toString());
+        }
+
+        @TearDown(Level.Trial)
+        public void limpiar() throws IOException {
+            DatosSinteticos.borrar(directorio);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void guardarLista(Lista datos) {
+        Aplicacion.guardarLista(datos.destino, datos.lista);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String generarFolio(Folios folios) {
+        return Aplicacion.siguienteFolio(folios.generador);
+    }
+}
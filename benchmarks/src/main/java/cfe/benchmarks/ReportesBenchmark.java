@@ -0,0 +1,52 @@
+package cfe.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Reporte PDF detallado (RF16) de una solicitud con historial corto y con historial muy grande, en reportes/s
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class ReportesBenchmark {
+
+    @Param({ "20", "50000" })
+    public int eventos;
+
+    private Path directorio;
+    private Object solicitud;
+    private String archivo;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+
+        directorio = DatosSinteticos.directorioTemporal();
+        Path s = directorio.resolve("solicitudes.csv");
+        Path h = directorio.resolve("historial.csv");
+        DatosSinteticos.escribirSolicitudes(s, 1);
+        DatosSinteticos.escribirHistorialDeFolio(h, DatosSinteticos.folio(0), eventos);
+
+        List<?> solicitudes = Aplicacion.cargarDesdeCSV(s.toString(), Aplicacion.SOLICITUD);
+        Object repositorio = Aplicacion.repositorioMain();
+        Aplicacion.cargarRepositorio(repositorio, solicitudes, Aplicacion.cargarDesdeCSV(h.toString(), Aplicacion.HISTORIAL));
+        solicitud = Aplicacion.buscarPorFolio(repositorio, DatosSinteticos.folio(0));
+        archivo = directorio.resolve("reporte.pdf").toString();
+        Aplicacion.silenciarSesion();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        DatosSinteticos.borrar(directorio);
+    }
+
+    @Benchmark
+    public long reporteDetallado() {
+        return Aplicacion.escribirReporteDetallado(solicitud, archivo);
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Modo multiproceso (-Dcfe.multiproceso=true): varios procesos Main sobre los mismos journals. Se coordinan con
+// candados de región (FileChannel.lock) sobre un archivo de candados: una región para escribir o leer los
+// journals, una para la secuencia de folios y una por grupo de folios, así dos procesos editan folios distintos
+// en paralelo y solo se esperan en la escritura misma. Cada proceso recuerda qué bytes anexó él, para que al
+// leer la cola de los journals aplique únicamente lo que anexaron los demás.
+// Los primeros 8 bytes del archivo guardan la generación: cambia cuando un proceso reescribe un journal
+// (compactación, archivo histórico) y obliga a los demás a recargar completo en vez de leer la cola.
+class AlmacenCompartido implements AutoCloseable {
+
+    private static final long REGION_JOURNAL = 1024;
+    private static final long REGION_FOLIOS = 1025;
+    private static final long REGION_REGISTROS = 2048;
+    private static final int REGIONES = 1024;
+
+    interface Region extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // Posición de lectura de un journal y rangos [inicio, fin) que anexó este proceso
+    private static final class Cola {
+        long posicion;
+        final TreeMap<Long, Long> propios = new TreeMap<>();
+    }
+
+    private final FileChannel canal;
+    private final ReentrantLock candadoJournal = new ReentrantLock();
+    private final ReentrantLock candadoFolios = new ReentrantLock();
+    private final ReentrantLock[] candadosRegistro = new ReentrantLock[REGIONES];
+    private FileLock journal, secuencia;
+    private final FileLock[] registros = new FileLock[REGIONES];
+
+    private final Map<Path, Cola> colas = new HashMap<>();
+    private volatile long generacion;
+
+    private AlmacenCompartido(FileChannel canal) {
+        this.canal = canal;
+        for (int i = 0; i < REGIONES; i++) candadosRegistro[i] = new ReentrantLock();
+    }
+
+    public static AlmacenCompartido abrir(String archivo) {
+        try {
+            return new AlmacenCompartido(FileChannel.open(Paths.get(archivo), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el archivo de candados " + archivo, e);
+        }
+    }
+
+    // Los candados de FileChannel son por proceso: un ReentrantLock serializa a los hilos de este proceso y
+    // solo el primero en entrar toma la región en el archivo
+    public Region bloquearJournal() throws IOException {
+
+        candadoJournal.lock();
+        try {
+            if (candadoJournal.getHoldCount() == 1) journal = canal.lock(REGION_JOURNAL, 1, false);
+        } catch (IOException | RuntimeException e) {
+            candadoJournal.unlock();
+            throw e;
+        }
+        return () -> {
+            try {
+                if (candadoJournal.getHoldCount() == 1) liberar(journal);
+            } finally {
+                candadoJournal.unlock();
+            }
+        };
+    }
+
+    public Region bloquearFolios() throws IOException {
+
+        candadoFolios.lock();
+        try {
+            if (candadoFolios.getHoldCount() == 1) secuencia = canal.lock(REGION_FOLIOS, 1, false);
+        } catch (IOException | RuntimeException e) {
+            candadoFolios.unlock();
+            throw e;
+        }
+        return () -> {
+            try {
+                if (candadoFolios.getHoldCount() == 1) liberar(secuencia);
+            } finally {
+                candadoFolios.unlock();
+            }
+        };
+    }
+
+    public Region bloquearRegistro(String folio) throws IOException {
+
+        int i = (folio.hashCode() & 0x7fffffff) % REGIONES;
+        ReentrantLock candado = candadosRegistro[i];
+        candado.lock();
+        try {
+            if (candado.getHoldCount() == 1) registros[i] = canal.lock(REGION_REGISTROS + i, 1, false);
+        } catch (IOException | RuntimeException e) {
+            candado.unlock();
+            throw e;
+        }
+        return () -> {
+            try {
+                if (candado.getHoldCount() == 1) liberar(registros[i]);
+            } finally {
+                candado.unlock();
+            }
+        };
+    }
+
+    // Al terminar el proceso: cerrar el canal libera también cualquier región que siguiera tomada
+    @Override
+    public void close() {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo cerrar el archivo de candados: " + e.getMessage());
+        }
+    }
+
+    private static void liberar(FileLock candado) {
+        try {
+            candado.release();
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo liberar un candado de archivo: " + e.getMessage());
+        }
+    }
+
+    // Las operaciones siguientes requieren la región del journal (bloquearJournal)
+
+    // Marca la lectura completa de los journals (carga inicial o recarga) y toma la generación vigente
+    public void sincronizado(String... archivos) throws IOException {
+
+        for (String archivo : archivos) {
+            Path p = Paths.get(archivo).toAbsolutePath();
+            Cola c = colas.computeIfAbsent(p, k -> new Cola());
+            c.posicion = tamano(p);
+            c.propios.clear();
+        }
+        generacion = leerGeneracion();
+    }
+
+    // Otro proceso reescribió algún journal desde la última lectura
+    public boolean reescritoPorOtro() throws IOException {
+        return leerGeneracion() != generacion;
+    }
+
+    // Este proceso reescribió el journal: su contenido ya está en memoria y los demás deben recargar
+    public void reescrito(String archivo) throws IOException {
+
+        Path p = Paths.get(archivo).toAbsolutePath();
+        Cola c = colas.computeIfAbsent(p, k -> new Cola());
+        c.posicion = tamano(p);
+        c.propios.clear();
+
+        generacion = leerGeneracion() + 1;
+        ByteBuffer b = ByteBuffer.allocate(Long.BYTES).putLong(0, generacion);
+        while (b.hasRemaining()) canal.write(b, b.position());
+        canal.force(false);
+    }
+
+    public void anexado(Path archivo, long inicio, long bytes) {
+        colas.computeIfAbsent(archivo.toAbsolutePath(), k -> new Cola()).propios.put(inicio, inicio + bytes);
+    }
+
+    // Renglones anexados por otros procesos desde la última lectura
+    public List<String> leerNuevas(String archivo) throws IOException {
+
+        Path p = Paths.get(archivo).toAbsolutePath();
+        Cola c = colas.computeIfAbsent(p, k -> new Cola());
+        List<String> lineas = new ArrayList<>();
+        if (!Files.exists(p)) return lineas; // Mes con solo solicitudes o solo eventos
+
+        try (FileChannel lectura = FileChannel.open(p, StandardOpenOption.READ)) {
+
+            long fin = lectura.size();
+            if (fin <= c.posicion) return lineas;
+
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(fin - c.posicion));
+            while (buffer.hasRemaining()) {
+                if (lectura.read(buffer, c.posicion + buffer.position()) < 0) break;
+            }
+            byte[] bytes = buffer.array();
+            int leidos = buffer.position();
+
+            int inicioLinea = 0;
+            for (int i = 0; i < leidos; i++) {
+                if (bytes[i] != '\n') continue;
+                long absoluta = c.posicion + inicioLinea;
+                Map.Entry<Long, Long> propio = c.propios.floorEntry(absoluta);
+                if (propio == null || absoluta >= propio.getValue()) {
+                    int largo = i - inicioLinea;
+                    if (largo > 0 && bytes[i - 1] == '\r') largo--;
+                    if (largo > 0) lineas.add(new String(bytes, inicioLinea, largo, StandardCharsets.UTF_8));
+                }
+                inicioLinea = i + 1;
+            }
+
+            // Un renglón sin salto final (escritura ajena sin terminar) se vuelve a leer la próxima vez
+            c.posicion += inicioLinea;
+            c.propios.headMap(c.posicion).entrySet().removeIf(e -> e.getValue() <= c.posicion);
+        }
+        return lineas;
+    }
+
+    private long leerGeneracion() throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(Long.BYTES);
+        while (b.hasRemaining()) {
+            if (canal.read(b, b.position()) < 0) break;
+        }
+        return b.position() < Long.BYTES ? 0 : b.getLong(0); // Archivo recién creado: generación 0
+    }
+
+    private static long tamano(Path p) throws IOException {
+        if (!Files.exists(p)) return 0;
+        try (FileChannel c = FileChannel.open(p, StandardOpenOption.READ)) {
+            return c.size();
+        }
+    }
+}
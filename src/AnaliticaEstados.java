@@ -0,0 +1,268 @@
+import java.util.*;
+
+// Analítica incremental del flujo de eventos (RF15): tiempo de cada folio en RECIBIDA/EN_PROCESO, antigüedad del
+// backlog y productividad por responsable. Se alimenta de cada evento conforme se registra (y una sola vez al
+// cargar), así los menús de métricas la consultan sin recorrer ni reordenar el historial.
+class AnaliticaEstados {
+
+    private static final Main.Estado[] ESTADOS = Main.Estado.values();
+    private static final long HORA = 3600;
+
+    // Antigüedad de los pendientes desde su creación, en horas
+    private static final long[] CORTES = { 24, 72, 168, 720 };
+    static final String[] RANGOS = { "< 1 día", "1-3 días", "3-7 días", "7-30 días", "> 30 días" };
+
+    // Columnas de porResponsable
+    static final int CAMBIOS = 0, COMPLETADAS = 1, CANCELADAS = 2, COMENTARIOS = 3, SEGUNDOS_RESOLUCION = 4;
+
+    private static final class Tramo {
+        Main.Estado estado;
+        long desde;    // Entrada al estado actual
+        long creacion;
+    }
+
+    private final Map<String, Tramo> porFolio = new HashMap<>();
+
+    // Estancias ya terminadas, por estado
+    private final long[] segundosEstancias = new long[ESTADOS.length];
+    private final int[] estancias = new int[ESTADOS.length];
+
+    // Folios que están hoy en cada estado: con la suma de sus entradas se obtiene el promedio a cualquier hora
+    private final int[] residentes = new int[ESTADOS.length];
+    private final long[] sumaEntradas = new long[ESTADOS.length];
+    private final TreeMap<Long, int[]> pendientesPorHora = new TreeMap<>(); // hora de creación -> pendientes por estado
+
+    private final Map<Integer, long[]> porResponsable = new HashMap<>(); // id de Diccionario.USUARIOS
+    private long segundosResolucion;
+    private int resueltas;
+
+    public void reiniciar() {
+        porFolio.clear();
+        Arrays.fill(segundosEstancias, 0);
+        Arrays.fill(estancias, 0);
+        Arrays.fill(residentes, 0);
+        Arrays.fill(sumaEntradas, 0);
+        pendientesPorHora.clear();
+        porResponsable.clear();
+        segundosResolucion = 0;
+        resueltas = 0;
+    }
+
+    // Folio nuevo (o recién cargado sin eventos): entra al estado de la solicitud en su fecha de creación
+    public void registrar(Main.Solicitud s) {
+
+        Tramo t = porFolio.get(s.folio);
+        if (t == null) {
+            t = new Tramo();
+            porFolio.put(s.folio, t);
+        }
+        residir(t, -1);
+        conciliar(t, s);
+        residir(t, 1);
+    }
+
+    // Evento i de eventos, que debe ser el último del folio (los fuera de orden se reconstruyen con reconstruir)
+    public void evento(String folio, HistorialFolio eventos, int i) {
+
+        Tramo t = porFolio.get(folio);
+        if (t == null) {
+            t = new Tramo();
+            porFolio.put(folio, t);
+        }
+        residir(t, -1);
+        aplicar(t, eventos, i, 1);
+        residir(t, 1);
+    }
+
+    // Recalcula un folio desde sus eventos; omitir es el índice de un evento que aún no estaba contado (o -1)
+    public void reconstruir(Main.Solicitud s, HistorialFolio eventos, int omitir) {
+        retirar(s, eventos, omitir);
+        agregar(s, eventos);
+    }
+
+    public void agregar(Main.Solicitud s, HistorialFolio eventos) {
+
+        Tramo t = new Tramo();
+        if (eventos != null) {
+            for (int i = 0; i < eventos.tamano(); i++) aplicar(t, eventos, i, 1);
+        }
+        conciliar(t, s);
+        porFolio.put(s.folio, t);
+        residir(t, 1);
+    }
+
+    // Descuenta todo lo que aportó el folio reproduciendo sus eventos con signo negativo
+    public void retirar(Main.Solicitud s, HistorialFolio eventos, int omitir) {
+
+        Tramo t = porFolio.remove(s.folio);
+        if (t == null) return;
+        residir(t, -1);
+
+        Tramo reproduccion = new Tramo();
+        if (eventos != null) {
+            for (int i = 0; i < eventos.tamano(); i++) {
+                if (i != omitir) aplicar(reproduccion, eventos, i, -1);
+            }
+        }
+    }
+
+    private void aplicar(Tramo t, HistorialFolio eventos, int i, int signo) {
+
+        long fecha = eventos.fecha(i);
+
+        switch (eventos.tipo(i)) {
+
+            case CREACION:
+                t.creacion = fecha;
+                if (t.estado == null) entrar(t, Main.Estado.RECIBIDA, fecha, signo);
+                break;
+
+            case CAMBIO_ESTADO: {
+                Main.Estado nuevo = destino(eventos.detalle(i));
+                if (nuevo == null) break;
+                if (t.estado == null) t.creacion = fecha;
+                entrar(t, nuevo, fecha, signo);
+
+                long[] r = responsable(eventos.autor(i));
+                r[CAMBIOS] += signo;
+                if (nuevo == Main.Estado.COMPLETADA) {
+                    r[COMPLETADAS] += signo;
+                    r[SEGUNDOS_RESOLUCION] += signo * (fecha - t.creacion);
+                    segundosResolucion += signo * (fecha - t.creacion);
+                    resueltas += signo;
+                } else if (nuevo == Main.Estado.CANCELADA) {
+                    r[CANCELADAS] += signo;
+                }
+                break;
+            }
+
+            case COMENTARIO:
+                responsable(eventos.autor(i))[COMENTARIOS] += signo;
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    private void entrar(Tramo t, Main.Estado nuevo, long fecha, int signo) {
+
+        if (t.estado == nuevo) return;
+        if (t.estado != null) {
+            segundosEstancias[t.estado.ordinal()] += signo * Math.max(0, fecha - t.desde);
+            estancias[t.estado.ordinal()] += signo;
+        }
+        t.estado = nuevo;
+        t.desde = fecha;
+    }
+
+    // Estado fijado sin evento (journal editado a mano, importación): se corrige sin inventar una estancia
+    private static void conciliar(Tramo t, Main.Solicitud s) {
+
+        if (t.estado == null) {
+            t.desde = s.fechaCreacion;
+            t.creacion = s.fechaCreacion;
+        }
+        t.estado = s.estado;
+    }
+
+    private void residir(Tramo t, int signo) {
+
+        if (t.estado == null) return;
+        int e = t.estado.ordinal();
+        residentes[e] += signo;
+        sumaEntradas[e] += signo * t.desde;
+
+        if (!pendiente(t.estado)) return;
+        Long hora = Math.floorDiv(t.creacion, HORA);
+        int[] c = pendientesPorHora.computeIfAbsent(hora, k -> new int[ESTADOS.length]);
+        c[e] += signo;
+        if (c[Main.Estado.RECIBIDA.ordinal()] == 0 && c[Main.Estado.EN_PROCESO.ordinal()] == 0) pendientesPorHora.remove(hora);
+    }
+
+    private long[] responsable(int autor) {
+        return porResponsable.computeIfAbsent(autor, k -> new long[SEGUNDOS_RESOLUCION + 1]);
+    }
+
+    private static boolean pendiente(Main.Estado e) {
+        return e == Main.Estado.RECIBIDA || e == Main.Estado.EN_PROCESO;
+    }
+
+    // "Estado cambiado de X a Y" (RF7)
+    private static Main.Estado destino(String detalle) {
+        try {
+            return Main.Estado.valueOf(detalle.substring(detalle.lastIndexOf(' ') + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Promedio de las estancias ya terminadas en el estado, en segundos (-1 sin datos)
+    public long promedioEstancia(Main.Estado e) {
+        int n = estancias[e.ordinal()];
+        return n == 0 ? -1 : segundosEstancias[e.ordinal()] / n;
+    }
+
+    public int estancias(Main.Estado e) {
+        return estancias[e.ordinal()];
+    }
+
+    public int residentes(Main.Estado e) {
+        return residentes[e.ordinal()];
+    }
+
+    // Tiempo promedio que llevan en el estado los folios que están en él (ahora en segundos epoch, ver Main.aEpoch)
+    public long promedioActual(Main.Estado e, long ahora) {
+        int n = residentes[e.ordinal()];
+        return n == 0 ? -1 : ((long) n * ahora - sumaEntradas[e.ordinal()]) / n;
+    }
+
+    public long promedioResolucion() {
+        return resueltas == 0 ? -1 : segundosResolucion / resueltas;
+    }
+
+    public int resueltas() {
+        return resueltas;
+    }
+
+    // Rango de antigüedad (RANGOS) -> pendientes por estado
+    public Map<String, int[]> antiguedadPendientes(long ahora) {
+
+        Map<String, int[]> rangos = new LinkedHashMap<>();
+        for (String r : RANGOS) rangos.put(r, new int[ESTADOS.length]);
+
+        long horaActual = Math.floorDiv(ahora, HORA);
+        for (Map.Entry<Long, int[]> e : pendientesPorHora.entrySet()) {
+            long horas = horaActual - e.getKey();
+            int r = 0;
+            while (r < CORTES.length && horas >= CORTES[r]) r++;
+            int[] destino = rangos.get(RANGOS[r]);
+            for (int i = 0; i < ESTADOS.length; i++) destino[i] += e.getValue()[i];
+        }
+        return rangos;
+    }
+
+    // Pendientes creados hace más de horasSla horas
+    public int fueraDeSla(long ahora, long horasSla) {
+        int total = 0;
+        for (int[] c : pendientesPorHora.headMap(Math.floorDiv(ahora, HORA) - horasSla, true).values()) {
+            total += c[Main.Estado.RECIBIDA.ordinal()] + c[Main.Estado.EN_PROCESO.ordinal()];
+        }
+        return total;
+    }
+
+    // Usuario -> {cambios, completadas, canceladas, comentarios, segundos de resolución}, de más a menos completadas
+    public Map<String, long[]> porResponsable(int maximo) {
+
+        List<Map.Entry<Integer, long[]>> filas = new ArrayList<>(porResponsable.entrySet());
+        filas.removeIf(e -> e.getValue()[CAMBIOS] == 0 && e.getValue()[COMENTARIOS] == 0);
+        filas.sort((a, b) -> Long.compare(b.getValue()[COMPLETADAS], a.getValue()[COMPLETADAS]));
+
+        Map<String, long[]> resultado = new LinkedHashMap<>();
+        for (Map.Entry<Integer, long[]> e : filas) {
+            if (resultado.size() == maximo) break;
+            resultado.put(Diccionario.USUARIOS.valor(e.getKey()), e.getValue().clone());
+        }
+        return resultado;
+    }
+}
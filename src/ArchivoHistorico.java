@@ -0,0 +1,281 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Archivo histórico de solicitudes cerradas: segmentos GZIP inmutables particionados por mes del folio
+// (archivo/yyyyMM/<sello>.seg.gz). Cada segmento es una serie de bloques GZIP independientes y su índice
+// (.idx, folio;offset ordenado por folio) dice en qué bloque empieza cada folio, así una consulta por folio
+// va directo a la partición del mes y descomprime un solo bloque.
+class ArchivoHistorico {
+
+    private static final String MANIFIESTO = "manifiesto.csv";
+    private static final String SIN_FECHA = "sinfecha";
+    private static final int SEGMENTOS_EN_CACHE = 32;
+    private static final int FOLIOS_POR_BLOQUE = 64;
+    private static final DateTimeFormatter SELLO = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
+
+    static class Registro {
+
+        public final Main.Solicitud solicitud;
+        public final List<Main.Historial> historial;
+
+        Registro(Main.Solicitud solicitud, List<Main.Historial> historial) {
+            this.solicitud = solicitud; this.historial = historial;
+        }
+    }
+
+    private final Path directorio;
+    private final int[] archivadasPorEstado = new int[Main.Estado.values().length];
+    private long eventosArchivados;
+
+    private static final class Indice {
+
+        final String[] folios;
+        final long[] offsets;
+
+        Indice(String[] folios, long[] offsets) {
+            this.folios = folios; this.offsets = offsets;
+        }
+    }
+
+    // Índices de segmento recientes (LRU)
+    private final Map<Path, Indice> indices = new LinkedHashMap<Path, Indice>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Indice> e) {
+            return size() > SEGMENTOS_EN_CACHE;
+        }
+    };
+
+    public ArchivoHistorico(String directorio) {
+        this.directorio = Paths.get(directorio);
+    }
+
+    // Solo lee el manifiesto (una línea por segmento), no los segmentos
+    public synchronized void cargar() {
+
+        Arrays.fill(archivadasPorEstado, 0);
+        eventosArchivados = 0;
+        indices.clear();
+
+        Path manifiesto = directorio.resolve(MANIFIESTO);
+        if (!Files.exists(manifiesto)) return;
+
+        try (BufferedReader br = Files.newBufferedReader(manifiesto, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                // segmento;solicitudes;eventos;<conteo por estado...>
+                String[] values = line.split(";");
+                if (values.length != 3 + archivadasPorEstado.length) continue;
+                eventosArchivados += Long.parseLong(values[2]);
+                for (int i = 0; i < archivadasPorEstado.length; i++) archivadasPorEstado[i] += Integer.parseInt(values[3 + i]);
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("⚠️ Manifiesto del archivo histórico ilegible: " + e.getMessage());
+        }
+    }
+
+    public synchronized int archivadas(Main.Estado estado) {
+        return archivadasPorEstado[estado.ordinal()];
+    }
+
+    public synchronized int totalArchivadas() {
+        int total = 0;
+        for (int c : archivadasPorEstado) total += c;
+        return total;
+    }
+
+    public synchronized long eventosArchivados() {
+        return eventosArchivados;
+    }
+
+    // Escribe un segmento nuevo por partición. Los segmentos nunca se modifican después de creados:
+    // se escriben a un temporal y se publican con un rename, y el manifiesto se reescribe al final.
+    // Los folios que ya están en un segmento del manifiesto se omiten: si el proceso se cortó después de publicar
+    // el segmento y antes de reescribir los journals, el siguiente arranque los vuelve a pedir y no deben contarse dos veces.
+    public synchronized void archivar(List<Registro> registros) throws IOException {
+
+        List<String> manifiesto = leerManifiesto();
+        Map<String, List<Path>> publicados = new HashMap<>();
+        for (String linea : manifiesto) {
+            String segmento = linea.substring(0, linea.indexOf(';'));
+            publicados.computeIfAbsent(segmento.substring(0, segmento.indexOf('/')), k -> new ArrayList<>()).add(directorio.resolve(segmento));
+        }
+
+        Map<String, List<Registro>> porMes = new TreeMap<>();
+        for (Registro r : registros) {
+            String mes = particion(r.solicitud.folio);
+            if (contiene(publicados.getOrDefault(mes, List.of()), r.solicitud.folio)) continue;
+            porMes.computeIfAbsent(mes, k -> new ArrayList<>()).add(r);
+        }
+
+        String sello = LocalDateTime.now().format(SELLO);
+
+        for (Map.Entry<String, List<Registro>> mes : porMes.entrySet()) {
+
+            List<Registro> grupo = mes.getValue();
+            grupo.sort(Comparator.comparing(r -> r.solicitud.folio));
+
+            Path carpeta = Files.createDirectories(directorio.resolve(mes.getKey()));
+            Path segmento = carpeta.resolve(sello + ".seg.gz");
+            Path indice = carpeta.resolve(sello + ".idx");
+
+            int[] porEstado = new int[archivadasPorEstado.length];
+            long eventos = 0;
+            List<String> lineasIndice = new ArrayList<>(grupo.size());
+
+            Path temporal = carpeta.resolve(sello + ".seg.gz.tmp");
+            try (FileOutputStream fos = new FileOutputStream(temporal.toFile());
+                 BufferedOutputStream out = new BufferedOutputStream(fos, 1 << 16)) {
+
+                long offset = 0;
+                for (int desde = 0; desde < grupo.size(); desde += FOLIOS_POR_BLOQUE) {
+
+                    ByteArrayOutputStream bloque = new ByteArrayOutputStream();
+                    try (Writer w = new OutputStreamWriter(new GZIPOutputStream(bloque), StandardCharsets.UTF_8)) {
+                        for (Registro r : grupo.subList(desde, Math.min(desde + FOLIOS_POR_BLOQUE, grupo.size()))) {
+                            w.write("S;" + r.solicitud.toCSV() + "\n");
+                            for (Main.Historial h : r.historial) w.write("H;" + h.toCSV() + "\n");
+                            lineasIndice.add(r.solicitud.folio + ";" + offset);
+                            porEstado[r.solicitud.estado.ordinal()]++;
+                            eventos += r.historial.size();
+                        }
+                    }
+                    bloque.writeTo(out);
+                    offset += bloque.size();
+                }
+                out.flush();
+                fos.getFD().sync();
+            }
+
+            PersistenciaDiferida.escribirAtomico(indice.toString(), lineasIndice);
+            Files.move(temporal, segmento, StandardCopyOption.ATOMIC_MOVE);
+
+            StringBuilder linea = new StringBuilder(mes.getKey() + "/" + segmento.getFileName())
+                    .append(';').append(grupo.size()).append(';').append(eventos);
+            for (int c : porEstado) linea.append(';').append(c);
+            manifiesto.add(linea.toString());
+
+            for (int i = 0; i < porEstado.length; i++) archivadasPorEstado[i] += porEstado[i];
+            eventosArchivados += eventos;
+        }
+
+        PersistenciaDiferida.escribirAtomico(directorio.resolve(MANIFIESTO).toString(), manifiesto);
+    }
+
+    private boolean contiene(List<Path> segmentos, String folio) throws IOException {
+        for (Path segmento : segmentos) {
+            if (Arrays.binarySearch(indice(segmento).folios, folio) >= 0) return true;
+        }
+        return false;
+    }
+
+    // null si el folio no está archivado
+    public synchronized Registro buscar(String folio) {
+
+        Path carpeta = directorio.resolve(particion(folio));
+        if (!Files.isDirectory(carpeta)) return null;
+
+        List<Path> segmentos = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(carpeta, "*.seg.gz")) {
+            ds.forEach(segmentos::add);
+        } catch (IOException e) {
+            return null;
+        }
+        segmentos.sort(Comparator.reverseOrder()); // El más reciente primero
+
+        for (Path segmento : segmentos) {
+            try {
+                Indice indice = indice(segmento);
+                int pos = Arrays.binarySearch(indice.folios, folio);
+                if (pos < 0) continue;
+                Registro r = leerRegistro(segmento, indice.offsets[pos], folio);
+                if (r != null) return r;
+            } catch (IOException e) {
+                System.err.println("⚠️ Segmento ilegible " + segmento + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    // Segmentos publicados (rutas relativas yyyyMM/<sello>.seg.gz) en orden de partición y de creación
+    public synchronized List<String> segmentos() throws IOException {
+        List<String> nombres = new ArrayList<>();
+        for (String linea : leerManifiesto()) nombres.add(linea.substring(0, linea.indexOf(';')));
+        Collections.sort(nombres);
+        return nombres;
+    }
+
+    public Path ruta(String segmento) {
+        return directorio.resolve(segmento);
+    }
+
+    // Offset del bloque de cada folio, en el mismo orden en que aparecen en el segmento
+    public synchronized long[] offsetsDeBloques(String segmento) throws IOException {
+        return indice(directorio.resolve(segmento)).offsets;
+    }
+
+    private Indice indice(Path segmento) throws IOException {
+
+        Indice indice = indices.get(segmento);
+        if (indice != null) return indice;
+
+        String nombre = segmento.getFileName().toString();
+        Path idx = segmento.resolveSibling(nombre.substring(0, nombre.length() - ".seg.gz".length()) + ".idx");
+        List<String> lineas = Files.readAllLines(idx, StandardCharsets.UTF_8);
+
+        String[] folios = new String[lineas.size()];
+        long[] offsets = new long[lineas.size()];
+        for (int i = 0; i < folios.length; i++) {
+            String linea = lineas.get(i);
+            int separador = linea.lastIndexOf(';');
+            folios[i] = linea.substring(0, separador);
+            offsets[i] = Long.parseLong(linea.substring(separador + 1));
+        }
+        indice = new Indice(folios, offsets);
+        indices.put(segmento, indice);
+        return indice;
+    }
+
+    // Se descomprime desde el bloque del folio; dentro del bloque los registros están agrupados por folio
+    private Registro leerRegistro(Path segmento, long offset, String folio) throws IOException {
+
+        String prefijo = "S;" + folio + ";";
+        try (InputStream in = Files.newInputStream(segmento)) {
+
+            in.skipNBytes(offset);
+            BufferedReader br = new BufferedReader(new InputStreamReader(new GZIPInputStream(in, 1 << 16), StandardCharsets.UTF_8));
+
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.startsWith(prefijo)) continue;
+
+                String[] s = line.substring(2).split(";");
+                Main.Solicitud solicitud = new Main.Solicitud(s[0], s[1], s[2], s[3], Main.Estado.valueOf(s[4]), s[5]);
+                List<Main.Historial> historial = new ArrayList<>();
+
+                while ((line = br.readLine()) != null && line.startsWith("H;")) {
+                    String[] h = line.substring(2).split(";");
+                    historial.add(new Main.Historial(h[0], h[1], Main.TipoEvento.valueOf(h[2]), h[3], h[4]));
+                }
+                return new Registro(solicitud, historial);
+            }
+        }
+        return null;
+    }
+
+    private List<String> leerManifiesto() throws IOException {
+        Path manifiesto = directorio.resolve(MANIFIESTO);
+        return Files.exists(manifiesto) ? new ArrayList<>(Files.readAllLines(manifiesto, StandardCharsets.UTF_8)) : new ArrayList<>();
+    }
+
+    // yyyyMM del folio (CFE-yyyyMMdd-N); los folios con otro formato van a una partición aparte
+    static String particion(String folio) {
+        String dia = MetricasSolicitudes.diaDeFolio(folio);
+        return dia.length() == 8 && dia.chars().allMatch(Character::isDigit) ? dia.substring(0, 6) : SIN_FECHA;
+    }
+}
@@ -0,0 +1,47 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Bandeja de trabajo en vivo (suscriptor del BusEventos): guarda los últimos CAPACIDAD eventos en un anillo y, por
+// usuario, hasta dónde ya los vio. Cada responsable ve las solicitudes nuevas, los cambios y los comentarios de
+// otros sin tener que buscar folio por folio.
+class BandejaTrabajo implements BusEventos.Suscriptor {
+
+    private static final int CAPACIDAD = 512;
+
+    private final Main.Historial[] anillo = new Main.Historial[CAPACIDAD];
+    private long siguiente; // Número del próximo evento; el i-ésimo vive en anillo[i % CAPACIDAD]
+    private final Map<String, Long> vistos = new HashMap<>();
+
+    @Override
+    public synchronized void recibir(List<Main.Historial> lote) {
+        for (Main.Historial h : lote) anillo[(int) (siguiente++ % CAPACIDAD)] = h;
+    }
+
+    // Los más antiguos que el anillo ya no están: se pierden, pero se cuentan como pendientes
+    public synchronized int pendientes(String usuario) {
+
+        int total = 0;
+        for (long i = desde(usuario); i < siguiente; i++) {
+            if (!anillo[(int) (i % CAPACIDAD)].usuarioCambio.equals(usuario)) total++;
+        }
+        return total + (int) Math.max(0, siguiente - CAPACIDAD - vistos.getOrDefault(usuario, 0L));
+    }
+
+    // Eventos de otros usuarios que el usuario aún no ha visto, del más antiguo al más reciente; los marca como vistos
+    public synchronized List<Main.Historial> tomar(String usuario) {
+
+        List<Main.Historial> nuevos = new ArrayList<>();
+        for (long i = desde(usuario); i < siguiente; i++) {
+            Main.Historial h = anillo[(int) (i % CAPACIDAD)];
+            if (!h.usuarioCambio.equals(usuario)) nuevos.add(h);
+        }
+        vistos.put(usuario, siguiente);
+        return nuevos;
+    }
+
+    private long desde(String usuario) {
+        return Math.max(vistos.getOrDefault(usuario, 0L), siguiente - CAPACIDAD);
+    }
+}
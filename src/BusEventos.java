@@ -0,0 +1,170 @@
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bus de eventos en proceso: registrarHistorial publica cada evento y cada suscriptor lo consume en su propio hilo
+// desde una cola acotada, así agregar consumidores no alarga la creación ni la actualización de solicitudes.
+// Con la cola llena, ESPERAR frena al publicador hasta esperaMs (contrapresión) y DESCARTAR lo cuenta y sigue.
+// Los eventos de un mismo folio se publican bajo su candado, así cada suscriptor los recibe en orden.
+class BusEventos {
+
+    enum Desborde { ESPERAR, DESCARTAR }
+
+    interface Suscriptor {
+        void recibir(List<Main.Historial> lote) throws Exception;
+    }
+
+    private static final int MAX_LOTE = 256;
+    private static final long ESPERA_LOTE_MS = 10;
+
+    private final long esperaMs;
+    private final Telemetria telemetria;
+    private final List<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+    private volatile boolean activo = true;
+
+    BusEventos(long esperaMs, Telemetria telemetria) {
+        this.esperaMs = esperaMs;
+        this.telemetria = telemetria;
+    }
+
+    private final class Suscripcion implements Runnable {
+
+        final String nombre;
+        final Set<Main.TipoEvento> tipos;
+        final BlockingQueue<Main.Historial> cola;
+        final Desborde desborde;
+        final Suscriptor suscriptor;
+        final AtomicLong aceptados = new AtomicLong();
+        final AtomicLong descartados = new AtomicLong();
+        volatile long procesados;
+        final Thread hilo;
+
+        Suscripcion(String nombre, Set<Main.TipoEvento> tipos, int capacidad, Desborde desborde, Suscriptor suscriptor) {
+            this.nombre = nombre;
+            this.tipos = EnumSet.copyOf(tipos);
+            this.cola = new ArrayBlockingQueue<>(capacidad);
+            this.desborde = desborde;
+            this.suscriptor = suscriptor;
+            this.hilo = new Thread(this, "cfe-bus-" + nombre);
+            hilo.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+
+            List<Main.Historial> lote = new ArrayList<>(MAX_LOTE);
+            while (activo || !cola.isEmpty()) {
+                try {
+                    Main.Historial primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                    if (primero == null) continue;
+                    lote.add(primero);
+                } catch (InterruptedException e) {
+                    continue; // Solo sale con el bus cerrado y la cola vacía
+                }
+                cola.drainTo(lote, MAX_LOTE - 1);
+
+                long inicio = System.nanoTime();
+                try {
+                    suscriptor.recibir(lote);
+                } catch (Exception e) {
+                    System.err.println("❌ Error en el suscriptor " + nombre + ": " + e.getMessage());
+                }
+                telemetria.registrar("bus." + nombre, System.nanoTime() - inicio);
+
+                synchronized (this) {
+                    procesados += lote.size();
+                    notifyAll();
+                }
+                boolean parcial = lote.size() < MAX_LOTE;
+                lote.clear();
+
+                // Con poca carga se deja juntar un lote en vez de despertar por cada evento
+                if (parcial && activo) {
+                    try {
+                        Thread.sleep(ESPERA_LOTE_MS);
+                    } catch (InterruptedException e) {
+                        // Sigue: solo sale con el bus cerrado y la cola vacía
+                    }
+                }
+            }
+        }
+
+        void publicar(Main.Historial h) {
+
+            if (!tipos.contains(h.tipo)) return;
+            boolean aceptado = cola.offer(h);
+            if (!aceptado && desborde == Desborde.ESPERAR && esperaMs > 0) {
+                try {
+                    aceptado = cola.offer(h, esperaMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (aceptado) aceptados.incrementAndGet();
+            else descartados.incrementAndGet();
+        }
+
+        synchronized boolean esperar(long limite) throws InterruptedException {
+            long objetivo = aceptados.get();
+            while (procesados < objetivo) {
+                long restante = limite - System.currentTimeMillis();
+                if (restante <= 0) return false;
+                wait(restante);
+            }
+            return true;
+        }
+    }
+
+    public void suscribir(String nombre, Set<Main.TipoEvento> tipos, int capacidad, Desborde desborde, Suscriptor suscriptor) {
+
+        Suscripcion s = new Suscripcion(nombre, tipos, capacidad, desborde, suscriptor);
+        suscripciones.add(s);
+        telemetria.registrarConteo("bus." + nombre + ".cola", () -> s.cola.size());
+        telemetria.registrarConteo("bus." + nombre + ".descartados", s.descartados::get);
+        s.hilo.start();
+    }
+
+    public void publicar(Main.Historial h) {
+        if (!activo) return;
+        for (Suscripcion s : suscripciones) s.publicar(h);
+    }
+
+    // Espera a que los suscriptores consuman lo publicado hasta ahora (modo script y pruebas)
+    public boolean drenar(long timeoutMs) {
+
+        long limite = System.currentTimeMillis() + timeoutMs;
+        try {
+            for (Suscripcion s : suscripciones) {
+                if (!s.esperar(limite)) return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public long descartados() {
+        long total = 0;
+        for (Suscripcion s : suscripciones) total += s.descartados.get();
+        return total;
+    }
+
+    // Deja de aceptar eventos y espera a que cada suscriptor vacíe su cola (sin interrumpirlo: un canal de archivo
+    // interrumpido se cierra y perdería el lote en curso)
+    public void cerrar() {
+
+        activo = false;
+        for (Suscripcion s : suscripciones) {
+            try {
+                s.hilo.join(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+// Carga de los CSV (RF5) en paralelo: cada archivo se parte en trozos que terminan en fin de línea, cada trozo se
+// lee (lectura posicional del FileChannel) y se convierte en su propio hilo, y los resultados se unen en el orden
+// del archivo, así en los journals sigue ganando la última versión de cada folio. Un renglón inválido ya no corta
+// la carga: se omite y se devuelve con su número de línea para ponerlo en cuarentena.
+class CargaCSV {
+
+    private static final int TROZO = Integer.getInteger("cfe.carga.trozo", 4 << 20); // Bytes
+    private static final int BLOQUE_BUSQUEDA = 8192;
+    private static final ForkJoinPool POOL = new ForkJoinPool(Integer.getInteger("cfe.carga.hilos", Runtime.getRuntime().availableProcessors()));
+
+    static class Resultado<T> {
+
+        public final List<T> registros = new ArrayList<>();
+        public final List<String> rechazados = new ArrayList<>(); // "Línea N (motivo): renglón"
+        public long[] posiciones; // Byte de inicio de cada registro en el archivo (solo si se pidieron)
+        public long renglones;
+        public long bytes;
+        public long nanos;
+    }
+
+    private static final class Trozo<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel canal;
+        private final long inicio, fin;
+        private final Function<String[], T> lector;
+        private final boolean conPosiciones;
+
+        final List<T> registros = new ArrayList<>();
+        long[] posiciones = new long[0];
+        final List<Integer> lineasRechazadas = new ArrayList<>(); // Relativas al trozo, desde 1
+        final List<String> motivos = new ArrayList<>();
+        final List<String> textos = new ArrayList<>();
+        int lineas;
+
+        Trozo(FileChannel canal, long inicio, long fin, Function<String[], T> lector, boolean conPosiciones) {
+            this.canal = canal; this.inicio = inicio; this.fin = fin; this.lector = lector; this.conPosiciones = conPosiciones;
+        }
+
+        @Override
+        protected void compute() {
+
+            byte[] bytes = new byte[(int) (fin - inicio)];
+            int largo = leer(canal, ByteBuffer.wrap(bytes), inicio);
+
+            // Un solo decodificado por trozo: los trozos empiezan en inicio de línea, nunca a media secuencia UTF-8
+            String texto = new String(bytes, 0, largo, StandardCharsets.UTF_8);
+            int desde = 0, byteInicio = 0;
+            while (desde < texto.length()) {
+                int salto = texto.indexOf('\n', desde);
+                int hasta = salto < 0 ? texto.length() : salto; // Último renglón sin salto de línea
+                if (renglon(texto, desde, hasta) && conPosiciones) posicion(inicio + byteInicio);
+                desde = hasta + 1;
+                if (conPosiciones) { // El mismo renglón en bytes (el texto decodificado no sirve para contar bytes)
+                    while (byteInicio < largo && bytes[byteInicio] != '\n') byteInicio++;
+                    byteInicio++;
+                }
+            }
+            if (conPosiciones) posiciones = Arrays.copyOf(posiciones, registros.size());
+        }
+
+        private void posicion(long pos) {
+            int n = registros.size() - 1;
+            if (n == posiciones.length) posiciones = Arrays.copyOf(posiciones, Math.max(64, n * 2));
+            posiciones[n] = pos;
+        }
+
+        // true si el renglón se convirtió en registro
+        private boolean renglon(String texto, int desde, int hasta) {
+
+            lineas++;
+            if (hasta > desde && texto.charAt(hasta - 1) == '\r') hasta--;
+            if (hasta == desde) return false;
+
+            String motivo;
+            try {
+                T registro = lector.apply(separar(texto, desde, hasta));
+                if (registro != null) {
+                    registros.add(registro);
+                    return true;
+                }
+                motivo = "número de campos incorrecto";
+            } catch (IllegalArgumentException e) {
+                motivo = e.getMessage();
+            }
+            lineasRechazadas.add(lineas);
+            motivos.add(motivo);
+            textos.add(texto.substring(desde, hasta));
+            return false;
+        }
+    }
+
+    // La carga corre en el pool (sus trozos se reparten entre sus hilos); get() lanza ExecutionException con la
+    // IOException si el archivo no existe o no se puede leer
+    public static <T> ForkJoinTask<Resultado<T>> iniciar(String archivo, long desde, Function<String[], T> lector) {
+        return iniciar(archivo, desde, lector, false);
+    }
+
+    // Con posiciones: el resultado trae además el byte de inicio de cada registro (índice del historial en disco)
+    public static <T> ForkJoinTask<Resultado<T>> iniciar(String archivo, long desde, Function<String[], T> lector, boolean posiciones) {
+        return POOL.submit(() -> cargar(archivo, desde, lector, posiciones));
+    }
+
+    private static <T> Resultado<T> cargar(String archivo, long desde, Function<String[], T> lector, boolean conPosiciones) throws IOException {
+
+        long inicio = System.nanoTime();
+        Resultado<T> resultado = new Resultado<>();
+
+        try (FileChannel canal = FileChannel.open(Paths.get(archivo), StandardOpenOption.READ)) {
+
+            long tamano = canal.size();
+            resultado.bytes = Math.max(0, tamano - desde);
+
+            List<Trozo<T>> trozos = new ArrayList<>();
+            for (long a = desde; a < tamano; ) {
+                long b = finDeLinea(canal, Math.min(tamano, a + TROZO), tamano);
+                trozos.add(new Trozo<>(canal, a, b, lector, conPosiciones));
+                a = b;
+            }
+            try {
+                ForkJoinTask.invokeAll(trozos);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            if (conPosiciones) {
+                int total = 0;
+                for (Trozo<T> t : trozos) total += t.registros.size();
+                resultado.posiciones = new long[total];
+            }
+            long base = -1;
+            for (Trozo<T> t : trozos) {
+                if (conPosiciones) System.arraycopy(t.posiciones, 0, resultado.posiciones, resultado.registros.size(), t.posiciones.length);
+                resultado.registros.addAll(t.registros);
+                if (!t.lineasRechazadas.isEmpty() && base < 0) base = contarLineas(canal, desde) + resultado.renglones;
+                for (int i = 0; i < t.lineasRechazadas.size(); i++) {
+                    resultado.rechazados.add("Línea " + (base + t.lineasRechazadas.get(i)) + " (" + t.motivos.get(i) + "): " + t.textos.get(i));
+                }
+                resultado.renglones += t.lineas;
+                if (base >= 0) base += t.lineas;
+            }
+        }
+        resultado.nanos = System.nanoTime() - inicio;
+        return resultado;
+    }
+
+    // Campos de un renglón separados por ';' (sin expresiones regulares; conserva los campos vacíos)
+    static String[] separar(String renglon) {
+        return separar(renglon, 0, renglon.length());
+    }
+
+    private static String[] separar(String texto, int desde, int hasta) {
+
+        int n = 1;
+        for (int i = texto.indexOf(';', desde); i >= 0 && i < hasta; i = texto.indexOf(';', i + 1)) n++;
+
+        String[] campos = new String[n];
+        int inicio = desde;
+        for (int c = 0; c < n - 1; c++) {
+            int fin = texto.indexOf(';', inicio);
+            campos[c] = texto.substring(inicio, fin);
+            inicio = fin + 1;
+        }
+        campos[n - 1] = texto.substring(inicio, hasta);
+        return campos;
+    }
+
+    // Posición siguiente al primer salto de línea desde pos (o el final del archivo)
+    private static long finDeLinea(FileChannel canal, long pos, long tamano) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(BLOQUE_BUSQUEDA);
+        while (pos < tamano) {
+            buffer.clear();
+            int leidos = canal.read(buffer, pos);
+            if (leidos <= 0) break;
+            for (int i = 0; i < leidos; i++) {
+                if (buffer.get(i) == '\n') return pos + i + 1;
+            }
+            pos += leidos;
+        }
+        return tamano;
+    }
+
+    // Solo si hay rechazados en una carga parcial (cola del journal tras el snapshot): su número de línea es del archivo
+    private static long contarLineas(FileChannel canal, long hasta) throws IOException {
+
+        long lineas = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (long pos = 0; pos < hasta; ) {
+            buffer.clear();
+            if (hasta - pos < buffer.capacity()) buffer.limit((int) (hasta - pos));
+            int leidos = canal.read(buffer, pos);
+            if (leidos <= 0) break;
+            for (int i = 0; i < leidos; i++) {
+                if (buffer.get(i) == '\n') lineas++;
+            }
+            pos += leidos;
+        }
+        return lineas;
+    }
+
+    private static int leer(FileChannel canal, ByteBuffer buffer, long pos) {
+        try {
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer, pos + buffer.position()) < 0) break;
+            }
+            return buffer.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+// Consultas de auditoría en streaming sobre las particiones de los journals CSV y los segmentos del archivo
+// histórico; con filtro de fechas o de folio solo se abren los meses que pueden tener resultados.
+// Los filtros se evalúan sobre los campos crudos de cada línea antes de partirla, solo se conserva la
+// página actual y el cursor (fuente@offset@renglones) permite continuar sin volver a leer lo ya recorrido.
+class ConsultaAuditoria {
+
+    enum Tipo { HISTORIAL, SOLICITUDES }
+
+    static final String[] COLUMNAS_HISTORIAL = { "folio", "usuario", "tipo", "detalle", "fecha" };
+    static final String[] COLUMNAS_SOLICITUDES = { "folio", "titulo", "descripcion", "solicitante", "estado", "fecha" };
+
+    static class Filtro {
+
+        public Tipo tipo = Tipo.HISTORIAL;
+        public String folio;            // Un solo folio (null = todos)
+        public String usuario;          // Autor del evento o solicitante (null = todos)
+        public Main.TipoEvento evento;  // Solo historial
+        public Main.Estado estado;      // Solo solicitudes
+        public String desde;            // yyyy-MM-dd, inclusivo
+        public String hasta;            // yyyy-MM-dd, inclusivo
+        public int[] columnas;          // Proyección (null = todas)
+
+        String[] columnasDisponibles() {
+            return tipo == Tipo.HISTORIAL ? COLUMNAS_HISTORIAL : COLUMNAS_SOLICITUDES;
+        }
+    }
+
+    static class Pagina {
+
+        public final List<String[]> filas;
+        public final String cursor; // null: no hay más resultados
+        public final long lineasLeidas;
+        public final long microsegundos;
+
+        Pagina(List<String[]> filas, String cursor, long lineasLeidas, long microsegundos) {
+            this.filas = filas; this.cursor = cursor; this.lineasLeidas = lineasLeidas; this.microsegundos = microsegundos;
+        }
+    }
+
+    private static final class Fuente {
+
+        final String nombre;
+        final boolean segmento;
+
+        Fuente(String nombre, boolean segmento) {
+            this.nombre = nombre; this.segmento = segmento;
+        }
+    }
+
+    private final Particiones particiones;
+    private final ArchivoHistorico archivo;
+
+    public ConsultaAuditoria(Particiones particiones, ArchivoHistorico archivo) {
+        this.particiones = particiones;
+        this.archivo = archivo;
+    }
+
+    // Posición del usuario, del tipo/estado y de la fecha en cada línea
+    private static int campoUsuario(Tipo t) { return t == Tipo.HISTORIAL ? 1 : 3; }
+    private static int campoClase(Tipo t) { return t == Tipo.HISTORIAL ? 2 : 4; }
+    private static int campoFecha(Tipo t) { return t == Tipo.HISTORIAL ? 4 : 5; }
+
+    public Pagina consultar(Filtro filtro, String cursor, int tamanoPagina) throws IOException {
+
+        long inicio = System.nanoTime();
+        List<Fuente> fuentes = fuentes(filtro);
+
+        int f = 0;
+        long offset = 0;
+        int saltar = 0;
+
+        if (cursor != null) {
+            String[] partes = cursor.split("@");
+            if (partes.length != 3) throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            f = -1;
+            for (int i = 0; i < fuentes.size(); i++) if (fuentes.get(i).nombre.equals(partes[0])) f = i;
+            if (f < 0) throw new IllegalArgumentException("El cursor no corresponde a esta consulta: " + cursor);
+            offset = Long.parseLong(partes[1]);
+            saltar = Integer.parseInt(partes[2]);
+        }
+
+        List<String[]> filas = new ArrayList<>(tamanoPagina);
+        long[] leidas = { 0 };
+
+        for (; f < fuentes.size(); f++, offset = 0, saltar = 0) {
+            Fuente fuente = fuentes.get(f);
+            String siguiente = fuente.segmento
+                    ? recorrerSegmento(fuente.nombre, offset, saltar, filtro, filas, tamanoPagina, leidas)
+                    : recorrerJournal(fuente.nombre, offset, filtro, filas, tamanoPagina, leidas);
+            if (siguiente != null) {
+                return new Pagina(filas, siguiente, leidas[0], (System.nanoTime() - inicio) / 1_000);
+            }
+        }
+        return new Pagina(filas, null, leidas[0], (System.nanoTime() - inicio) / 1_000);
+    }
+
+    // Segmentos del archivo y después las particiones vigentes, descartando en ambos los meses imposibles para el
+    // rango o el folio
+    private List<Fuente> fuentes(Filtro filtro) throws IOException {
+
+        String mesDesde = filtro.desde == null ? null : filtro.desde.substring(0, 7).replace("-", "");
+        String mesHasta = filtro.hasta == null ? null : filtro.hasta.substring(0, 7).replace("-", "");
+        String mesFolio = filtro.folio == null ? null : Particiones.mes(filtro.folio);
+
+        List<Fuente> fuentes = new ArrayList<>();
+        for (String segmento : archivo.segmentos()) {
+            String mes = segmento.substring(0, segmento.indexOf('/'));
+            if (mesFolio != null && !mes.equals(mesFolio)) continue;
+            if (mes.length() == 6) {
+                // Partición = mes de creación del folio: los eventos nunca son anteriores a ella
+                if (mesHasta != null && mes.compareTo(mesHasta) > 0) continue;
+                if (filtro.tipo == Tipo.SOLICITUDES && mesDesde != null && mes.compareTo(mesDesde) < 0) continue;
+            }
+            fuentes.add(new Fuente(segmento, true));
+        }
+
+        Particiones.Journal journal = filtro.tipo == Tipo.HISTORIAL ? Particiones.Journal.HISTORIAL : Particiones.Journal.SOLICITUDES;
+        List<String> meses = filtro.tipo == Tipo.HISTORIAL
+                ? particiones.mesesConEventosEntre(filtro.desde, filtro.hasta)
+                : particiones.mesesCreadosEntre(filtro.desde, filtro.hasta);
+        for (String mes : meses) {
+            if (mesFolio == null || mes.equals(mesFolio)) fuentes.add(new Fuente(particiones.archivo(journal, mes).toString(), false));
+        }
+        return fuentes;
+    }
+
+    // Devuelve el cursor si la página se llenó dentro de este journal
+    private String recorrerJournal(String nombre, long offset, Filtro filtro, List<String[]> filas, int tamano, long[] leidas) throws IOException {
+
+        File archivoJournal = new File(nombre);
+        if (!archivoJournal.exists()) return null;
+        if (offset > archivoJournal.length()) {
+            throw new IllegalArgumentException("El archivo " + nombre + " fue compactado después de crear el cursor; repita la consulta.");
+        }
+
+        try (FileInputStream fis = new FileInputStream(archivoJournal)) {
+            fis.getChannel().position(offset);
+            LectorLineas lector = new LectorLineas(fis, offset);
+            String linea;
+            while ((linea = lector.leer()) != null) {
+                leidas[0]++;
+                if (!coincide(linea, 0, filtro)) continue;
+                filas.add(proyectar(linea, 0, filtro));
+                if (filas.size() == tamano) return nombre + "@" + lector.posicion() + "@0";
+            }
+        }
+        return null;
+    }
+
+    // En los segmentos el cursor es el inicio del bloque GZIP y cuántas líneas de él ya se recorrieron
+    private String recorrerSegmento(String segmento, long offset, int saltar, Filtro filtro, List<String[]> filas, int tamano, long[] leidas) throws IOException {
+
+        long[] bloques = archivo.offsetsDeBloques(segmento);
+        int k = 0;
+        while (k < bloques.length && bloques[k] < offset) k++; // Primer folio del bloque
+        String prefijo = filtro.tipo == Tipo.HISTORIAL ? "H;" : "S;";
+
+        try (InputStream in = Files.newInputStream(archivo.ruta(segmento))) {
+
+            in.skipNBytes(offset);
+            LectorLineas lector = new LectorLineas(new GZIPInputStream(in, 1 << 16), 0);
+            long bloque = offset;
+            int enBloque = 0;
+            String linea;
+
+            while ((linea = lector.leer()) != null) {
+
+                if (linea.startsWith("S;")) {
+                    long inicioFolio = k < bloques.length ? bloques[k] : bloque;
+                    k++;
+                    if (inicioFolio != bloque) {
+                        bloque = inicioFolio;
+                        enBloque = 0;
+                    }
+                }
+                enBloque++;
+                if (saltar > 0) {
+                    saltar--;
+                    continue;
+                }
+
+                if (!linea.startsWith(prefijo)) continue;
+                leidas[0]++;
+                if (!coincide(linea, 2, filtro)) continue;
+                filas.add(proyectar(linea, 2, filtro));
+                if (filas.size() == tamano) return segmento + "@" + bloque + "@" + enBloque;
+            }
+        }
+        return null;
+    }
+
+    // Predicados sobre el texto crudo: primero la fecha (la más selectiva en auditorías), luego usuario y clase
+    private static boolean coincide(String linea, int desde, Filtro f) {
+
+        int campos = f.columnasDisponibles().length;
+        int[] inicios = new int[campos + 1];
+        inicios[0] = desde;
+        int n = 1;
+        for (int i = desde; i < linea.length() && n <= campos; i++) {
+            if (linea.charAt(i) == ';') inicios[n++] = i + 1;
+        }
+        if (n != campos) return false; // Línea mal formada
+        inicios[campos] = linea.length() + 1;
+
+        int fecha = inicios[campoFecha(f.tipo)];
+        if (f.desde != null && compararDia(linea, fecha, f.desde) < 0) return false;
+        if (f.hasta != null && compararDia(linea, fecha, f.hasta) > 0) return false;
+
+        if (f.folio != null && !igual(linea, inicios, 0, f.folio)) return false;
+        if (f.usuario != null && !igual(linea, inicios, campoUsuario(f.tipo), f.usuario)) return false;
+
+        String clase = f.tipo == Tipo.HISTORIAL
+                ? (f.evento == null ? null : f.evento.name())
+                : (f.estado == null ? null : f.estado.name());
+        return clase == null || igual(linea, inicios, campoClase(f.tipo), clase);
+    }
+
+    private static boolean igual(String linea, int[] inicios, int campo, String valor) {
+        int inicio = inicios[campo];
+        int largo = inicios[campo + 1] - 1 - inicio;
+        return largo == valor.length() && linea.regionMatches(inicio, valor, 0, largo);
+    }
+
+    // Compara los primeros 10 caracteres (yyyy-MM-dd) del campo con el día dado
+    private static int compararDia(String linea, int inicio, String dia) {
+        for (int i = 0; i < 10; i++) {
+            char c = inicio + i < linea.length() ? linea.charAt(inicio + i) : ' ';
+            if (c != dia.charAt(i)) return c - dia.charAt(i);
+        }
+        return 0;
+    }
+
+    private static String[] proyectar(String linea, int desde, Filtro f) {
+
+        String[] valores = linea.substring(desde).split(";", -1);
+        if (f.columnas == null) return valores;
+
+        String[] fila = new String[f.columnas.length];
+        for (int i = 0; i < fila.length; i++) fila[i] = valores[f.columnas[i]];
+        return fila;
+    }
+
+    // Lector de líneas UTF-8 que lleva la cuenta de bytes consumidos (para el cursor en los journals)
+    private static final class LectorLineas {
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int pos, limite;
+        private long posicion;
+        private byte[] linea = new byte[256];
+
+        LectorLineas(InputStream in, long posicionInicial) {
+            this.in = in;
+            this.posicion = posicionInicial;
+        }
+
+        long posicion() {
+            return posicion;
+        }
+
+        String leer() throws IOException {
+
+            int largo = 0;
+            while (true) {
+                if (pos == limite) {
+                    limite = in.read(buffer, 0, buffer.length);
+                    pos = 0;
+                    if (limite <= 0) {
+                        limite = 0;
+                        return largo == 0 ? null : texto(largo);
+                    }
+                }
+                byte b = buffer[pos++];
+                posicion++;
+                if (b == '\n') return texto(largo);
+                if (largo == linea.length) linea = Arrays.copyOf(linea, largo * 2);
+                linea[largo++] = b;
+            }
+        }
+
+        private String texto(int largo) {
+            if (largo > 0 && linea[largo - 1] == '\r') largo--;
+            return new String(linea, 0, largo, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Índices de columnas a partir de "folio,fecha,..."; null si la lista está vacía
+    static int[] columnas(String lista, Tipo tipo) {
+
+        if (lista == null || lista.isBlank()) return null;
+        List<String> disponibles = Arrays.asList(tipo == Tipo.HISTORIAL ? COLUMNAS_HISTORIAL : COLUMNAS_SOLICITUDES);
+        String[] nombres = lista.toLowerCase().split(",");
+        int[] indices = new int[nombres.length];
+        for (int i = 0; i < nombres.length; i++) {
+            indices[i] = disponibles.indexOf(nombres[i].trim());
+            if (indices[i] < 0) throw new IllegalArgumentException("Columna desconocida: " + nombres[i].trim() + " (disponibles: " + disponibles + ")");
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Diccionario compartido de textos repetidos (usuarios, detalles fijos de eventos): cada valor distinto
+// se guarda una sola vez y se identifica con un entero pequeño estable durante la ejecución
+final class Diccionario {
+
+    static final Diccionario USUARIOS = new Diccionario();
+    static final Diccionario DETALLES = new Diccionario();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] valores = new String[64];
+    private int tamano;
+
+    public int id(String valor) {
+        Integer id = ids.get(valor);
+        return id != null ? id : registrar(valor);
+    }
+
+    private synchronized int registrar(String valor) {
+
+        Integer id = ids.get(valor);
+        if (id != null) return id;
+
+        String[] actuales = valores;
+        if (tamano == actuales.length) actuales = Arrays.copyOf(actuales, tamano * 2);
+        actuales[tamano] = valor;
+        valores = actuales; // Publicación: el arreglo ya contiene el valor antes de exponer el id
+        ids.put(valor, tamano);
+        return tamano++;
+    }
+
+    public String valor(int id) {
+        return valores[id];
+    }
+
+    // Instancia compartida del texto: evita una copia del mismo String por cada renglón
+    public String canonico(String valor) {
+        return valor == null ? null : valor(id(valor));
+    }
+
+    public synchronized int tamano() {
+        return tamano;
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// PDF nativo (1.4, sin dependencias) escrito en streaming: el texto llega línea por línea y cada página se
+// vuelca al archivo en cuanto se llena (su contenido y su objeto /Page). Solo se conservan los offsets de los
+// objetos para la tabla xref final, así un reporte de decenas de miles de eventos no crece en memoria.
+// Courier (monoespaciada, respeta las columnas de los reportes) con WinAnsi, que cubre acentos y ñ.
+final class EscritorPDF extends Writer {
+
+    private static final Charset WIN_ANSI = Charset.forName("windows-1252");
+
+    private static final int ANCHO = 612, ALTO = 792; // Carta, en puntos
+    private static final int MARGEN = 50;
+    private static final int TAMANO = 9, INTERLINEA = 11;
+    static final int COLUMNAS = (ANCHO - 2 * MARGEN) * 1000 / (600 * TAMANO); // Courier: 600/1000 de em por carácter
+    static final int LINEAS_POR_PAGINA = (ALTO - 2 * MARGEN) / INTERLINEA - 2; // Deja espacio al pie de página
+
+    // Objetos fijos; a partir del 4 cada página usa dos: contenido (4 + 2i) y /Page (5 + 2i)
+    private static final int CATALOGO = 1, PAGINAS = 2, FUENTE = 3;
+
+    private final FileChannel canal;
+    private final OutputStream out;
+    private long posicion;
+    private long[] offsets = new long[64];
+    private int objetos = FUENTE;
+    private int paginas;
+
+    private final ByteArrayOutputStream contenido = new ByteArrayOutputStream(8 * 1024);
+    private int lineasEnPagina;
+    private final StringBuilder linea = new StringBuilder(COLUMNAS + 1);
+    private boolean cerrado;
+
+    EscritorPDF(Path archivo) throws IOException {
+
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        out = new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16);
+        escribir("%PDF-1.4\n");
+        escribir(new byte[] { '%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n' }); // Marca de archivo binario
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+
+        if (cerrado) throw new IOException("El PDF ya fue cerrado");
+        for (int i = off; i < off + len; i++) {
+            char c = cbuf[i];
+            if (c == '\n') {
+                terminarLinea();
+            } else if (c != '\r') {
+                linea.append(c == '\t' ? ' ' : c);
+                if (linea.length() > COLUMNAS) partirLinea();
+            }
+        }
+    }
+
+    // Línea más ancha que la página: corta en el último espacio (o en el ancho exacto si no hay)
+    private void partirLinea() throws IOException {
+
+        int corte = linea.lastIndexOf(" ", COLUMNAS);
+        if (corte < COLUMNAS / 2) corte = COLUMNAS;
+        String resto = linea.substring(corte).stripLeading();
+        linea.setLength(corte);
+        terminarLinea();
+        linea.append(resto);
+    }
+
+    private void terminarLinea() throws IOException {
+
+        if (lineasEnPagina == LINEAS_POR_PAGINA) cerrarPagina();
+        if (lineasEnPagina == 0) {
+            ascii(contenido, "BT\n/F1 " + TAMANO + " Tf\n" + INTERLINEA + " TL\n" + MARGEN + " " + (ALTO - MARGEN) + " Td\n");
+        }
+        texto(contenido, linea);
+        ascii(contenido, " Tj T*\n");
+        linea.setLength(0);
+        lineasEnPagina++;
+    }
+
+    private void cerrarPagina() throws IOException {
+
+        if (lineasEnPagina > 0) ascii(contenido, "ET\n");
+        paginas++;
+        ascii(contenido, "BT\n/F1 8 Tf\n" + MARGEN + " " + (MARGEN / 2) + " Td\n");
+        texto(contenido, "CFE - Página " + paginas);
+        ascii(contenido, " Tj\nET\n");
+
+        int idContenido = iniciarObjeto();
+        escribir("<< /Length " + contenido.size() + " >>\nstream\n");
+        escribir(contenido.toByteArray());
+        escribir("\nendstream\nendobj\n");
+
+        iniciarObjeto();
+        escribir("<< /Type /Page /Parent " + PAGINAS + " 0 R /MediaBox [0 0 " + ANCHO + " " + ALTO + "]"
+                + " /Resources << /Font << /F1 " + FUENTE + " 0 R >> >> /Contents " + idContenido + " 0 R >>\nendobj\n");
+
+        contenido.reset();
+        lineasEnPagina = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush(); // La página en curso se escribe completa al llenarse o al cerrar
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (cerrado) return;
+        cerrado = true;
+
+        try {
+            if (linea.length() > 0) terminarLinea();
+            if (lineasEnPagina > 0 || paginas == 0) cerrarPagina();
+
+            iniciarObjeto(FUENTE);
+            escribir("<< /Type /Font /Subtype /Type1 /BaseFont /Courier /Encoding /WinAnsiEncoding >>\nendobj\n");
+
+            // Las páginas se numeran por fórmula: no hace falta haberlas guardado
+            iniciarObjeto(PAGINAS);
+            escribir("<< /Type /Pages /Count " + paginas + " /Kids [");
+            for (int i = 0; i < paginas; i++) escribir((i % 16 == 0 ? "\n" : " ") + (FUENTE + 2 + 2 * i) + " 0 R");
+            escribir("\n] >>\nendobj\n");
+
+            iniciarObjeto(CATALOGO);
+            escribir("<< /Type /Catalog /Pages " + PAGINAS + " 0 R >>\nendobj\n");
+
+            long xref = posicion;
+            escribir("xref\n0 " + (objetos + 1) + "\n0000000000 65535 f \n");
+            StringBuilder entrada = new StringBuilder(20);
+            for (int i = 1; i <= objetos; i++) {
+                entrada.setLength(0);
+                String offset = Long.toString(offsets[i]);
+                for (int k = offset.length(); k < 10; k++) entrada.append('0');
+                entrada.append(offset).append(" 00000 n \n");
+                escribir(entrada.toString());
+            }
+            escribir("trailer\n<< /Size " + (objetos + 1) + " /Root " + CATALOGO + " 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+            out.flush();
+        } finally {
+            canal.close();
+        }
+    }
+
+    private int iniciarObjeto() throws IOException {
+        return iniciarObjeto(++objetos);
+    }
+
+    private int iniciarObjeto(int id) throws IOException {
+        if (id >= offsets.length) offsets = Arrays.copyOf(offsets, Math.max(id + 1, offsets.length * 2));
+        offsets[id] = posicion;
+        escribir(id + " 0 obj\n");
+        return id;
+    }
+
+    // Cadena literal de PDF: paréntesis y diagonal invertida escapados; lo que no existe en WinAnsi queda como '?'
+    private static void texto(ByteArrayOutputStream destino, CharSequence texto) {
+
+        destino.write('(');
+        for (byte b : texto.toString().getBytes(WIN_ANSI)) {
+            if (b == '(' || b == ')' || b == '\\') destino.write('\\');
+            destino.write(b);
+        }
+        destino.write(')');
+    }
+
+    private static void ascii(ByteArrayOutputStream destino, String texto) {
+        destino.writeBytes(texto.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void escribir(String texto) throws IOException {
+        escribir(texto.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void escribir(byte[] bytes) throws IOException {
+        out.write(bytes);
+        posicion += bytes.length;
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Modo carga (--carga [segundos]): prueba de resistencia sobre la ruta real de persistencia (journals, snapshot,
+// bus, índices). N solicitantes crean y consultan sus solicitudes y M responsables buscan folios, comentan y
+// cambian estados, con la mezcla y el ritmo configurables. Cada intervalo escribe una línea JSON con throughput,
+// percentiles de latencia por operación, tamaño de los archivos y heap; al final, un resumen de toda la corrida.
+// Escribe datos de verdad: ejecútelo sobre una copia de la carpeta de datos.
+//   -Dcfe.carga.solicitantes=8  -Dcfe.carga.responsables=4  -Dcfe.carga.ops=0 (ops/s en total; 0 = sin límite)
+//   -Dcfe.carga.mezcla=crear=3,consultar=7,buscar=6,comentar=2,estado=2  -Dcfe.carga.intervalo=10 (segundos)
+class GeneradorCarga {
+
+    // Los solicitantes no comentan: en su menú solo registran y consultan (RF19); los comentarios vienen de los responsables
+    private static final String[] OPS_SOLICITANTE = {"crear", "consultar"};
+    private static final String[] OPS_RESPONSABLE = {"buscar", "comentar", "estado"};
+    private static final String MEZCLA_POR_DEFECTO = "crear=3,consultar=7,buscar=6,comentar=2,estado=2";
+    private static final int FOLIOS_RECIENTES = 4096;
+    private static final String[] PALABRAS = {"transformador", "medidor", "poste", "acometida", "licencia", "equipo",
+            "contrato", "factura", "cableado", "subestación", "mantenimiento", "reparación", "compra", "servidor"};
+
+    private final PrintStream salida;
+    private final Telemetria telemetria;
+    private final Path directorioDatos;
+    private final Path snapshot;
+    private final int solicitantes = Integer.getInteger("cfe.carga.solicitantes", 8);
+    private final int responsables = Integer.getInteger("cfe.carga.responsables", 4);
+    private final double opsPorSegundo = Double.parseDouble(System.getProperty("cfe.carga.ops", "0"));
+    private final long intervaloNanos = TimeUnit.SECONDS.toNanos(Long.getLong("cfe.carga.intervalo", 10));
+    private final Map<String, Integer> mezcla;
+
+    // Latencias del intervalo en curso (se reemplaza al reportar) y de toda la corrida
+    private volatile Telemetria ventana = new Telemetria();
+    private final Telemetria total = new Telemetria();
+    private final Map<String, LongAdder> errores = new ConcurrentHashMap<>();
+    private final LongAdder conflictos = new LongAdder();
+
+    // Folios sobre los que trabajan los responsables: los que había al empezar y los que se van creando
+    private final AtomicReferenceArray<String> recientes = new AtomicReferenceArray<>(FOLIOS_RECIENTES);
+    private final AtomicLong creados = new AtomicLong();
+    private List<String> existentes;
+
+    private volatile boolean detener;
+
+    GeneradorCarga(PrintStream salida, Telemetria telemetria, Path directorioDatos, Path snapshot) {
+        this.salida = salida;
+        this.telemetria = telemetria;
+        this.directorioDatos = directorioDatos;
+        this.snapshot = snapshot;
+        this.mezcla = mezcla(System.getProperty("cfe.carga.mezcla", MEZCLA_POR_DEFECTO));
+    }
+
+    // Devuelve el número de operaciones con error (los conflictos de versión no cuentan: son parte de la carga)
+    public long ejecutar(long segundos) throws InterruptedException {
+
+        existentes = Main.foliosEnMemoria();
+        int usuarios = solicitantes + responsables;
+        double porUsuario = opsPorSegundo / Math.max(usuarios, 1);
+
+        Map<String, Long> archivosInicio = tamanos();
+        long heapInicio = heapVivo();
+        long inicio = System.nanoTime();
+
+        ExecutorService hilos = ServidorSesiones.crearEjecutorSesiones();
+        for (int i = 0; i < solicitantes; i++) {
+            Main.Usuario u = new Main.Usuario("carga_sol" + (i + 1), "", Main.Rol.SOLICITANTE);
+            hilos.execute(() -> simular(u, OPS_SOLICITANTE, porUsuario));
+        }
+        for (int i = 0; i < responsables; i++) {
+            Main.Usuario u = new Main.Usuario("carga_resp" + (i + 1), "", Main.Rol.RESPONSABLE);
+            hilos.execute(() -> simular(u, OPS_RESPONSABLE, porUsuario));
+        }
+
+        long fin = inicio + TimeUnit.SECONDS.toNanos(segundos);
+        long siguiente = inicio + intervaloNanos;
+        while (System.nanoTime() < fin) {
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, Math.min(siguiente, fin) - System.nanoTime()));
+            if (System.nanoTime() < siguiente) continue;
+            Telemetria terminada = ventana;
+            ventana = new Telemetria();
+            salida.println(Json.escribir(Collections.singletonMap("intervalo", medir(terminada, inicio, intervaloNanos))));
+            salida.flush();
+            siguiente += intervaloNanos;
+        }
+
+        detener = true;
+        hilos.shutdown();
+        hilos.awaitTermination(1, TimeUnit.MINUTES);
+        Main.vaciarPersistencia(); // Los tamaños finales incluyen lo que quedaba en el buffer del journal
+        long heapFin = heapVivo();
+
+        long nanos = System.nanoTime() - inicio;
+        Map<String, Object> resumen = medir(total, inicio, nanos);
+        resumen.put("solicitantes", solicitantes);
+        resumen.put("responsables", responsables);
+        resumen.put("ops_objetivo", opsPorSegundo);
+        resumen.put("mezcla", new LinkedHashMap<String, Object>(mezcla));
+        resumen.put("heap_vivo_inicio_mb", mb(heapInicio));
+        resumen.put("heap_vivo_fin_mb", mb(heapFin));
+        Map<String, Object> crecimiento = new LinkedHashMap<>();
+        tamanos().forEach((archivo, bytes) -> crecimiento.put(archivo, bytes - archivosInicio.getOrDefault(archivo, 0L)));
+        resumen.put("bytes_agregados", crecimiento);
+        salida.println(Json.escribir(Collections.singletonMap("resumen", resumen)));
+        salida.flush();
+
+        long conError = 0;
+        for (LongAdder e : errores.values()) conError += e.sum();
+        return conError;
+    }
+
+    private void simular(Main.Usuario usuario, String[] ops, double porSegundo) {
+
+        Main.abrirSesion(usuario);
+        try {
+            long periodo = porSegundo > 0 ? (long) (1e9 / porSegundo) : 0;
+            long programada = System.nanoTime();
+            while (!detener) {
+                if (periodo > 0) {
+                    // Con ritmo fijo la latencia se mide desde la hora programada: un retraso del sistema no
+                    // reduce la carga ofrecida ni se esconde en el promedio
+                    programada += periodo;
+                    long espera = programada - System.nanoTime();
+                    if (espera > 0) TimeUnit.NANOSECONDS.sleep(espera);
+                } else {
+                    programada = System.nanoTime();
+                }
+                String op = elegir(ops);
+                try {
+                    ejecutar(op, usuario);
+                } catch (Main.ConflictoVersion e) {
+                    conflictos.increment(); // Otro responsable cambió el folio entre la consulta y el cambio
+                } catch (RuntimeException e) { // Incluye candados de folio y recargas fallidas (IllegalStateException)
+                    errores.computeIfAbsent(op, k -> new LongAdder()).increment();
+                }
+                long nanos = System.nanoTime() - programada;
+                ventana.registrar(op, nanos);
+                total.registrar(op, nanos);
+                telemetria.registrar("carga." + op, nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            Main.cerrarSesion();
+        }
+    }
+
+    private void ejecutar(String op, Main.Usuario usuario) {
+
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        switch (op) {
+
+            case "crear": {
+                Main.Solicitud s = Main.registrarSolicitud(texto(r, 4), texto(r, 12));
+                recientes.set((int) (creados.getAndIncrement() % FOLIOS_RECIENTES), s.folio);
+                break;
+            }
+
+            case "consultar": // Menú del solicitante: sus solicitudes y el detalle de una de ellas
+                List<Main.Solicitud> propias = Main.solicitudesDe(usuario.username);
+                if (!propias.isEmpty()) Main.historialDe(propias.get(r.nextInt(propias.size())).folio);
+                break;
+
+            case "buscar": {
+                Main.Solicitud s = folioAlAzar(r);
+                if (s != null) Main.historialDe(s.folio);
+                break;
+            }
+
+            case "comentar": {
+                Main.Solicitud s = folioAlAzar(r);
+                if (s != null) Main.registrarComentario(s, texto(r, 8));
+                break;
+            }
+
+            default: { // estado: avanza por el flujo normal; una de cada diez se cancela
+                Main.Solicitud s = folioAlAzar(r);
+                if (s == null) break;
+                int version = Main.version(s);
+                Main.Estado actual = s.estado;
+                Main.Estado nuevo;
+                if (actual == Main.Estado.COMPLETADA || actual == Main.Estado.CANCELADA) break;
+                else if (r.nextInt(10) == 0) nuevo = Main.Estado.CANCELADA;
+                else nuevo = actual == Main.Estado.RECIBIDA ? Main.Estado.EN_PROCESO : Main.Estado.COMPLETADA;
+                Main.aplicarCambioEstado(s, nuevo, version);
+            }
+        }
+    }
+
+    // Tres de cada cuatro veces un folio creado durante la corrida (el trabajo real se concentra en lo reciente)
+    private Main.Solicitud folioAlAzar(ThreadLocalRandom r) {
+
+        long n = Math.min(creados.get(), FOLIOS_RECIENTES);
+        String folio;
+        if (n > 0 && (existentes.isEmpty() || r.nextInt(4) > 0)) folio = recientes.get(r.nextInt((int) n));
+        else if (!existentes.isEmpty()) folio = existentes.get(r.nextInt(existentes.size()));
+        else return null;
+        return folio == null ? null : Main.buscarSolicitud(folio); // null si ya se archivó
+    }
+
+    private String elegir(String[] ops) {
+
+        int suma = 0;
+        for (String op : ops) suma += mezcla.getOrDefault(op, 0);
+        if (suma == 0) return ops[0];
+        int x = ThreadLocalRandom.current().nextInt(suma);
+        for (String op : ops) {
+            x -= mezcla.getOrDefault(op, 0);
+            if (x < 0) return op;
+        }
+        return ops[ops.length - 1];
+    }
+
+    private static String texto(ThreadLocalRandom r, int palabras) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < palabras; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(PALABRAS[r.nextInt(PALABRAS.length)]);
+        }
+        return sb.append(' ').append(r.nextInt(100_000)).toString();
+    }
+
+    private static Map<String, Integer> mezcla(String texto) {
+
+        Map<String, Integer> pesos = new LinkedHashMap<>();
+        for (String par : texto.split(",")) {
+            String[] kv = par.split("=");
+            String op = kv[0].trim().toLowerCase();
+            if (!Arrays.asList(OPS_SOLICITANTE).contains(op) && !Arrays.asList(OPS_RESPONSABLE).contains(op)) {
+                throw new IllegalArgumentException("Operación desconocida en cfe.carga.mezcla: " + op);
+            }
+            try {
+                pesos.put(op, kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Peso inválido en cfe.carga.mezcla: " + par);
+            }
+        }
+        return pesos;
+    }
+
+    private Map<String, Object> medir(Telemetria latencias, long inicio, long nanos) {
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("segundos", Math.round((System.nanoTime() - inicio) / 1e6) / 1000.0);
+
+        long operaciones = 0;
+        Map<String, Object> porOperacion = new LinkedHashMap<>();
+        for (String op : mezcla.keySet()) {
+            Telemetria.Histograma h = latencias.histograma(op);
+            operaciones += h.conteo();
+            Map<String, Object> o = new LinkedHashMap<>();
+            o.put("ops", h.conteo());
+            o.put("p50_ms", ms(h.percentil(0.50)));
+            o.put("p90_ms", ms(h.percentil(0.90)));
+            o.put("p99_ms", ms(h.percentil(0.99)));
+            o.put("p999_ms", ms(h.percentil(0.999)));
+            o.put("max_ms", ms(h.maximo()));
+            LongAdder e = errores.get(op);
+            if (e != null) o.put("errores_acumulados", e.sum());
+            porOperacion.put(op, o);
+        }
+        m.put("ops", operaciones);
+        m.put("ops_s", Math.round(operaciones / (nanos / 1e9)));
+        long conError = 0;
+        for (LongAdder e : errores.values()) conError += e.sum();
+        m.put("errores_acumulados", conError);
+        m.put("conflictos_acumulados", conflictos.sum());
+        m.put("por_operacion", porOperacion);
+
+        m.put("solicitudes", telemetria.conteo("solicitudes"));
+        m.put("eventos", telemetria.conteo("historial"));
+        m.put("journal_pendientes", telemetria.conteo("journalPendientes"));
+        m.put("archivos_bytes", new LinkedHashMap<String, Object>(tamanos()));
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        m.put("heap_usado_mb", mb(heap.getUsed()));
+        m.put("heap_viejo_mb", mb(heapViejo()));
+        return m;
+    }
+
+    // Generación vieja (todo el heap con recolectores de una sola área): la basura de corta vida no llega ahí, así
+    // que su tendencia entre intervalos muestra si algo crece sin límite
+    private static long heapViejo() {
+        long bytes = 0;
+        for (MemoryPoolMXBean area : ManagementFactory.getMemoryPoolMXBeans()) {
+            String nombre = area.getName();
+            if (area.getType() == MemoryType.HEAP && !nombre.contains("Eden") && !nombre.contains("Survivor")) bytes += area.getUsage().getUsed();
+        }
+        return bytes;
+    }
+
+    // Solo al inicio y al final, fuera de la ventana medida: forzar una recolección en cada intervalo alteraría
+    // las latencias
+    private static long heapVivo() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    // Bytes por tipo de archivo: journals de solicitudes e historial (todas las particiones) y snapshot
+    private Map<String, Long> tamanos() {
+
+        Map<String, Long> bytes = new TreeMap<>();
+        bytes.put("solicitudes", 0L);
+        bytes.put("historial", 0L);
+        if (Files.isDirectory(directorioDatos)) {
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(directorioDatos, "*-*.csv")) {
+                for (Path p : ds) {
+                    String nombre = p.getFileName().toString();
+                    String tipo = nombre.substring(0, nombre.indexOf('-'));
+                    try {
+                        bytes.merge(tipo, Files.size(p), Long::sum);
+                    } catch (IOException e) {
+                        // Partición reescrita (compactación o archivo histórico) mientras se medía
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ No se pudo medir " + directorioDatos + ": " + e.getMessage());
+            }
+        }
+        try {
+            bytes.put("snapshot", Files.exists(snapshot) ? Files.size(snapshot) : 0L);
+        } catch (IOException e) {
+            bytes.put("snapshot", 0L);
+        }
+        return bytes;
+    }
+
+    private static double ms(long nanos) {
+        return Math.round(nanos / 1e3) / 1000.0;
+    }
+
+    private static double mb(long bytes) {
+        return Math.round(bytes / 1048.576) / 1000.0;
+    }
+}
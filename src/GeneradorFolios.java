@@ -0,0 +1,176 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Folios secuenciales por día (RF3): CFE-yyyyMMdd-NNNN sin colisiones y sin candados en el camino normal.
+// La marca máxima por día se persiste por adelantado en bloques, así un reinicio nunca repite un folio.
+// En modo multiproceso cada bloque se reserva con la región de folios tomada y releyendo las marcas de los
+// demás procesos: si otro ya reservó más allá, la secuencia salta por encima de su bloque (piso).
+class GeneradorFolios {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final long BASE = 1000; // Compatible con los folios aleatorios previos (1000-9999)
+    private static final long RESERVA = 100;
+    private static final int DIAS_CONSERVADOS = 31;
+
+    private static final class Secuencia {
+
+        final String dia;
+        final AtomicLong ultimo;
+        final AtomicLong reservado;
+        volatile long piso; // Los números hasta aquí ya no son de este proceso
+
+        Secuencia(String dia, long inicio) {
+            this.dia = dia;
+            this.ultimo = new AtomicLong(inicio);
+            this.reservado = new AtomicLong(inicio);
+        }
+    }
+
+    // Rango contiguo de folios entregado de una sola vez (importaciones masivas)
+    static final class BloqueFolios {
+
+        private final String dia;
+        private long siguiente;
+        private final long fin;
+
+        BloqueFolios(String dia, long inicio, long fin) {
+            this.dia = dia; this.siguiente = inicio; this.fin = fin;
+        }
+
+        public boolean hayMas() {
+            return siguiente <= fin;
+        }
+
+        public String siguiente() {
+            if (siguiente > fin) throw new NoSuchElementException("Bloque de folios agotado");
+            return formatear(dia, siguiente++);
+        }
+    }
+
+    private final String archivo;
+    private final AlmacenCompartido compartido; // null: un solo proceso
+    private final TreeMap<String, Long> marcas = new TreeMap<>();
+    private final AtomicReference<Secuencia> actual = new AtomicReference<>(new Secuencia("", BASE));
+
+    public GeneradorFolios(String archivo) {
+        this(archivo, null);
+    }
+
+    public GeneradorFolios(String archivo, AlmacenCompartido compartido) {
+        this.archivo = archivo;
+        this.compartido = compartido;
+    }
+
+    // Combina la marca persistida con los folios ya existentes (incluidos los aleatorios de versiones previas)
+    public synchronized void sincronizar(Collection<String> foliosExistentes) {
+
+        marcas.clear();
+        leerMarcas();
+
+        for (String folio : foliosExistentes) {
+            String dia = MetricasSolicitudes.diaDeFolio(folio);
+            int guion = folio.lastIndexOf('-');
+            try {
+                marcas.merge(dia, Long.parseLong(folio.substring(guion + 1)), Math::max);
+            } catch (NumberFormatException e) {
+                // Folio con formato ajeno: no afecta la secuencia
+            }
+        }
+        actual.set(new Secuencia("", BASE));
+    }
+
+    private void leerMarcas() {
+        try (BufferedReader br = new BufferedReader(new FileReader(archivo))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] values = line.split(";");
+                if (values.length == 2) marcas.merge(values[0], Long.parseLong(values[1]), Math::max);
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Sin archivo de secuencia: se parte de los folios existentes
+        }
+    }
+
+    // reservado se lee antes que piso: reservarHasta escribe piso primero
+    public String siguiente() {
+
+        while (true) {
+            Secuencia s = secuenciaDeHoy();
+            long n = s.ultimo.incrementAndGet();
+            if ((n <= s.reservado.get() && n > s.piso) || reservarHasta(s, n, n)) return formatear(s.dia, n);
+        }
+    }
+
+    public BloqueFolios reservarBloque(int cantidad) {
+
+        while (true) {
+            Secuencia s = secuenciaDeHoy();
+            long inicio = s.ultimo.getAndAdd(cantidad) + 1;
+            long fin = inicio + cantidad - 1;
+            if ((fin <= s.reservado.get() && inicio > s.piso) || reservarHasta(s, inicio, fin)) return new BloqueFolios(s.dia, inicio, fin);
+        }
+    }
+
+    private Secuencia secuenciaDeHoy() {
+
+        String hoy = LocalDate.now().format(DAY_FORMAT);
+        Secuencia s = actual.get();
+
+        while (!s.dia.equals(hoy)) {
+            Secuencia nueva = new Secuencia(hoy, marcaDe(hoy));
+            if (actual.compareAndSet(s, nueva)) return nueva;
+            s = actual.get();
+        }
+        return s;
+    }
+
+    private synchronized long marcaDe(String dia) {
+        return marcas.getOrDefault(dia, BASE);
+    }
+
+    // Camino lento (una vez cada RESERVA folios): persiste la nueva marca antes de entregar el folio.
+    // Devuelve false si [inicio, fin] quedó dentro de lo reservado por otro proceso (hay que pedir otro número).
+    @SuppressWarnings("try")
+    private synchronized boolean reservarHasta(Secuencia s, long inicio, long fin) {
+
+        if (inicio <= s.piso) return false;
+        if (fin <= s.reservado.get()) return true;
+
+        try (AlmacenCompartido.Region region = compartido == null ? null : compartido.bloquearFolios()) {
+
+            if (compartido != null) {
+                leerMarcas();
+                long ajena = marcas.getOrDefault(s.dia, BASE);
+                if (ajena > s.reservado.get()) {
+                    s.piso = ajena;
+                    s.ultimo.accumulateAndGet(ajena, Math::max);
+                    s.reservado.set(ajena); // Sin reserva propia hasta escribir la nueva marca
+                    if (inicio <= ajena) return false;
+                }
+            }
+
+            long marca = fin + RESERVA;
+            marcas.put(s.dia, marca);
+            while (marcas.size() > DIAS_CONSERVADOS) marcas.pollFirstEntry();
+
+            List<String> lineas = new ArrayList<>();
+            marcas.forEach((dia, m) -> lineas.add(dia + ";" + m));
+            PersistenciaDiferida.escribirAtomico(archivo, lineas);
+            s.reservado.set(marca);
+            return true;
+
+        } catch (IOException e) {
+            System.err.println("❌ Error al persistir la secuencia de folios: " + e.getMessage());
+            s.reservado.set(fin + RESERVA); // Se entrega aunque la marca no quedó persistida
+            return true;
+        }
+    }
+
+    static String formatear(String dia, long numero) {
+        return "CFE-" + dia + "-" + numero; // RF3
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// Historial en disco (-Dcfe.historial.cache=N): en vez de todos los eventos, en memoria queda por folio la posición
+// de cada renglón suyo en la partición de su mes, y el historial completo de un folio se lee con lecturas
+// posicionales al pedirlo. Los últimos folios leídos se conservan en una cache LRU de hasta N eventos.
+// Los eventos registrados después de la carga se guardan aparte en memoria hasta el siguiente snapshot, que con
+// los journals ya vaciados los pasa al índice (consolidar).
+// Sin sincronización propia para el índice: RepositorioSolicitudes lo modifica con su candado de escritura.
+class HistorialEnDisco {
+
+    private static final int LECTURA = 8192;
+
+    private static final class Indice {
+        long[] posiciones = new long[0];
+        int n;
+        long ultimaFecha = Long.MIN_VALUE;
+        HistorialFolio recientes; // Registrados después de la carga (o del último consolidar)
+
+        void agregar(long posicion) {
+            if (n == posiciones.length) posiciones = Arrays.copyOf(posiciones, Math.max(4, n + (n >> 1)));
+            posiciones[n++] = posicion;
+        }
+    }
+
+    private final Particiones particiones;
+    private final int capacidad;
+    private final Function<String[], Main.Historial> lector;
+
+    private final Map<String, Indice> indice = new HashMap<>();
+    private final Map<String, Long> indexadoHasta = new HashMap<>(); // Partición -> bytes ya indexados
+
+    // Orden de acceso: el primero es el menos usado
+    private final LinkedHashMap<String, HistorialFolio> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long eventosEnCache;
+    private long aciertos, fallos, expulsiones;
+
+    HistorialEnDisco(Particiones particiones, int capacidad, Function<String[], Main.Historial> lector) {
+        this.particiones = particiones;
+        this.capacidad = capacidad;
+        this.lector = lector;
+    }
+
+    public void reiniciar() {
+        indice.clear();
+        indexadoHasta.clear();
+        synchronized (cache) {
+            cache.clear();
+            eventosEnCache = 0;
+        }
+    }
+
+    // Carga: eventos de la partición de un mes con el byte de inicio de cada renglón
+    public void indexar(String mes, List<Main.Historial> eventos, long[] posiciones, long bytes) {
+        for (int i = 0; i < eventos.size(); i++) {
+            Main.Historial h = eventos.get(i);
+            Indice ix = indice.computeIfAbsent(h.folio, k -> new Indice());
+            ix.agregar(posiciones[i]);
+            ix.ultimaFecha = Math.max(ix.ultimaFecha, h.fecha);
+        }
+        indexadoHasta.put(mes, bytes);
+    }
+
+    public void agregar(Main.Historial h) {
+
+        Indice ix = indice.computeIfAbsent(h.folio, k -> new Indice());
+        if (ix.recientes == null) ix.recientes = new HistorialFolio(2);
+        ix.recientes.agregar(h);
+        ix.ultimaFecha = Math.max(ix.ultimaFecha, h.fecha);
+
+        synchronized (cache) {
+            HistorialFolio enCache = cache.get(h.folio);
+            if (enCache != null) {
+                enCache.agregar(h);
+                eventosEnCache++;
+                expulsar();
+            }
+        }
+    }
+
+    public long ultimaFecha(String folio) {
+        Indice ix = indice.get(folio);
+        return ix == null ? Long.MIN_VALUE : ix.ultimaFecha;
+    }
+
+    public int tamano(String folio) {
+        Indice ix = indice.get(folio);
+        return ix == null ? 0 : ix.n + (ix.recientes == null ? 0 : ix.recientes.tamano());
+    }
+
+    // Historial completo del folio pasando por la cache (null si no tiene eventos)
+    public HistorialFolio obtener(String folio) throws IOException {
+
+        synchronized (cache) {
+            HistorialFolio enCache = cache.get(folio);
+            if (enCache != null) {
+                aciertos++;
+                return enCache;
+            }
+            fallos++;
+        }
+
+        HistorialFolio eventos = leer(folio);
+        if (eventos == null || eventos.tamano() > capacidad) return eventos; // Uno más grande que la cache no la vacía
+
+        synchronized (cache) {
+            if (cache.putIfAbsent(folio, eventos) == null) { // Otro lector pudo haberlo cargado mientras tanto
+                eventosEnCache += eventos.tamano();
+                expulsar();
+            }
+            return cache.get(folio);
+        }
+    }
+
+    // Lee del disco sin tocar la cache (archivo histórico, importaciones, recorridos completos)
+    public HistorialFolio leer(String folio) throws IOException {
+
+        Indice ix = indice.get(folio);
+        if (ix == null) return null;
+
+        HistorialFolio eventos = new HistorialFolio(tamano(folio));
+        if (ix.n > 0) {
+            byte[] prefijo = (folio + ";").getBytes(StandardCharsets.UTF_8);
+            try (FileChannel canal = FileChannel.open(particiones.archivo(Particiones.Journal.HISTORIAL, Particiones.mes(folio)), StandardOpenOption.READ)) {
+
+                // Los renglones de un folio suelen estar cerca: una lectura de LECTURA bytes cubre varios
+                ByteBuffer buffer = ByteBuffer.allocate(LECTURA);
+                long inicioBuffer = -1;
+                int largoBuffer = 0;
+
+                for (int i = 0; i < ix.n; i++) {
+                    long pos = ix.posiciones[i];
+                    boolean enBuffer = inicioBuffer >= 0 && pos >= inicioBuffer && pos - inicioBuffer < largoBuffer;
+                    int desde = enBuffer ? (int) (pos - inicioBuffer) : 0;
+                    int fin = enBuffer ? finDeRenglon(buffer.array(), desde, largoBuffer) : -1;
+                    if (fin < 0) {
+                        buffer = leerRenglon(canal, pos, buffer);
+                        inicioBuffer = pos;
+                        largoBuffer = buffer.position();
+                        desde = 0;
+                        fin = finDeRenglon(buffer.array(), 0, largoBuffer);
+                        if (fin < 0) fin = largoBuffer; // Último renglón sin salto final
+                    }
+
+                    byte[] bytes = buffer.array();
+                    if (!empiezaCon(bytes, desde, fin, prefijo)) {
+                        // Otro proceso reescribió la partición: la recarga por generación (refrescar) lo corrige
+                        throw new IOException("La partición del folio " + folio + " cambió desde que se indexó");
+                    }
+                    int hasta = fin > desde && bytes[fin - 1] == '\r' ? fin - 1 : fin;
+                    try {
+                        Main.Historial h = lector.apply(CargaCSV.separar(new String(bytes, desde, hasta - desde, StandardCharsets.UTF_8)));
+                        if (h != null) eventos.agregar(h);
+                    } catch (IllegalArgumentException e) {
+                        // Renglón ajeno inválido indexado al consolidar: también se omitió al cargar
+                    }
+                }
+            }
+        }
+        if (ix.recientes != null) {
+            for (int i = 0; i < ix.recientes.tamano(); i++) eventos.agregar(ix.recientes.evento(folio, i));
+        }
+        return eventos;
+    }
+
+    // Historial archivado: sale del índice y de la cache; devuelve lo que tenía
+    public HistorialFolio retirar(String folio) throws IOException {
+        HistorialFolio eventos = leer(folio);
+        indice.remove(folio);
+        synchronized (cache) {
+            HistorialFolio enCache = cache.remove(folio);
+            if (enCache != null) eventosEnCache -= enCache.tamano();
+        }
+        return eventos;
+    }
+
+    // Tras vaciar los journals (snapshot): lo anexado desde la última indexación ya está en disco, los recientes
+    // pasan a ser posiciones. Debe llamarse sin escrituras pendientes y, en multiproceso, con lo ajeno aplicado.
+    public void consolidar() throws IOException {
+
+        for (String mes : particiones.meses()) {
+            Path ruta = particiones.archivo(Particiones.Journal.HISTORIAL, mes);
+            long desde = indexadoHasta.getOrDefault(mes, 0L);
+            if (!Files.exists(ruta) || Files.size(ruta) <= desde) continue;
+            indexadoHasta.put(mes, indexarRenglones(ruta, desde));
+        }
+        for (Indice ix : indice.values()) ix.recientes = null;
+    }
+
+    // Partición reescrita (archivo histórico): las posiciones de sus folios se vuelven a tomar del archivo
+    public void reindexar(String mes) throws IOException {
+
+        for (Map.Entry<String, Indice> e : indice.entrySet()) {
+            if (Particiones.mes(e.getKey()).equals(mes)) e.getValue().n = 0;
+        }
+        Path ruta = particiones.archivo(Particiones.Journal.HISTORIAL, mes);
+        indexadoHasta.put(mes, Files.exists(ruta) ? indexarRenglones(ruta, 0) : 0L);
+    }
+
+    // Recorre el historial completo mes por mes, un folio a la vez (índice de texto); no usa la cache
+    public void recorrer(BiConsumer<String, HistorialFolio> accion) throws IOException {
+
+        for (String mes : particiones.meses()) {
+            Path ruta = particiones.archivo(Particiones.Journal.HISTORIAL, mes);
+            if (!Files.exists(ruta)) continue;
+
+            List<Main.Historial> leidos;
+            try {
+                leidos = CargaCSV.iniciar(ruta.toString(), 0, lector).get().registros;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                throw new IOException("No se pudo leer " + ruta, e.getCause());
+            }
+
+            Map<String, HistorialFolio> delMes = new LinkedHashMap<>();
+            for (Main.Historial h : leidos) {
+                Indice ix = indice.get(h.folio);
+                if (ix != null && ix.n > 0) delMes.computeIfAbsent(h.folio, k -> new HistorialFolio()).agregar(h);
+            }
+            delMes.forEach((folio, eventos) -> {
+                HistorialFolio recientes = indice.get(folio).recientes;
+                if (recientes != null) {
+                    for (int i = 0; i < recientes.tamano(); i++) eventos.agregar(recientes.evento(folio, i));
+                }
+                accion.accept(folio, eventos);
+            });
+        }
+        // Recientes de folios sin eventos en disco todavía (los demás ya vienen en el recorrido del mes)
+        indice.forEach((folio, ix) -> {
+            if (ix.recientes != null && ix.n == 0) accion.accept(folio, ix.recientes);
+        });
+    }
+
+    public long aciertos() {
+        synchronized (cache) {
+            return aciertos;
+        }
+    }
+
+    public long fallos() {
+        synchronized (cache) {
+            return fallos;
+        }
+    }
+
+    public long expulsiones() {
+        synchronized (cache) {
+            return expulsiones;
+        }
+    }
+
+    public long eventosEnCache() {
+        synchronized (cache) {
+            return eventosEnCache;
+        }
+    }
+
+    public int foliosEnCache() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private void expulsar() {
+        Iterator<Map.Entry<String, HistorialFolio>> it = cache.entrySet().iterator();
+        while (eventosEnCache > capacidad && it.hasNext()) {
+            eventosEnCache -= it.next().getValue().tamano();
+            it.remove();
+            expulsiones++;
+        }
+    }
+
+    // Toma el folio de cada renglón desde la posición dada; devuelve hasta dónde llegó (renglones completos)
+    private long indexarRenglones(Path ruta, long desde) throws IOException {
+
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+
+            long fin = canal.size();
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            StringBuilder folio = new StringBuilder();
+            boolean enFolio = true;
+            long inicioRenglon = desde;
+
+            for (long pos = desde; pos < fin; ) {
+                buffer.clear();
+                int leidos = canal.read(buffer, pos);
+                if (leidos <= 0) break;
+                for (int i = 0; i < leidos; i++) {
+                    byte b = buffer.get(i);
+                    if (b == '\n') {
+                        Indice ix = indice.get(folio.toString());
+                        if (ix != null) ix.agregar(inicioRenglon); // Folios archivados o renglones ajenos inválidos: se omiten
+                        folio.setLength(0);
+                        enFolio = true;
+                        inicioRenglon = pos + i + 1;
+                    } else if (enFolio) {
+                        if (b == ';') enFolio = false;
+                        else folio.append((char) b); // Los folios son ASCII
+                    }
+                }
+                pos += leidos;
+            }
+            return inicioRenglon;
+        }
+    }
+
+    private static ByteBuffer leerRenglon(FileChannel canal, long pos, ByteBuffer buffer) throws IOException {
+
+        buffer.clear();
+        while (true) {
+            int leidos = canal.read(buffer, pos + buffer.position());
+            if (leidos < 0 || finDeRenglon(buffer.array(), 0, buffer.position()) >= 0) return buffer;
+            if (!buffer.hasRemaining()) { // Renglón más largo que el buffer
+                ByteBuffer mayor = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                mayor.put(buffer);
+                buffer = mayor;
+            }
+        }
+    }
+
+    private static int finDeRenglon(byte[] bytes, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (bytes[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static boolean empiezaCon(byte[] bytes, int desde, int hasta, byte[] prefijo) {
+        if (hasta - desde < prefijo.length) return false;
+        for (int i = 0; i < prefijo.length; i++) {
+            if (bytes[desde + i] != prefijo[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Historial de un folio en columnas primitivas (RF7): fecha en segundos epoch, autor como id de
+// Diccionario.USUARIOS, tipo como ordinal y el detalle. Se mantiene en orden cronológico.
+final class HistorialFolio {
+
+    private static final Main.TipoEvento[] TIPOS = Main.TipoEvento.values();
+
+    private long[] fechas;
+    private int[] autores;
+    private byte[] tipos;
+    private String[] detalles;
+    private int n;
+
+    HistorialFolio() {
+        this(4);
+    }
+
+    HistorialFolio(int capacidad) {
+        fechas = new long[capacidad];
+        autores = new int[capacidad];
+        tipos = new byte[capacidad];
+        detalles = new String[capacidad];
+    }
+
+    public int tamano() {
+        return n;
+    }
+
+    public long fecha(int i) {
+        return fechas[i];
+    }
+
+    public int autor(int i) {
+        return autores[i];
+    }
+
+    public Main.TipoEvento tipo(int i) {
+        return TIPOS[tipos[i]];
+    }
+
+    public String detalle(int i) {
+        return detalles[i];
+    }
+
+    public long ultimaFecha() {
+        return n == 0 ? Long.MIN_VALUE : fechas[n - 1];
+    }
+
+    // Inserta tras los eventos de igual fecha (los nuevos casi siempre llegan al final); devuelve la posición
+    public int agregar(long fecha, int autor, Main.TipoEvento tipo, String detalle) {
+
+        if (n == fechas.length) {
+            int capacidad = Math.max(4, n + (n >> 1));
+            fechas = Arrays.copyOf(fechas, capacidad);
+            autores = Arrays.copyOf(autores, capacidad);
+            tipos = Arrays.copyOf(tipos, capacidad);
+            detalles = Arrays.copyOf(detalles, capacidad);
+        }
+
+        int pos = n;
+        while (pos > 0 && fechas[pos - 1] > fecha) pos--;
+        if (pos < n) {
+            System.arraycopy(fechas, pos, fechas, pos + 1, n - pos);
+            System.arraycopy(autores, pos, autores, pos + 1, n - pos);
+            System.arraycopy(tipos, pos, tipos, pos + 1, n - pos);
+            System.arraycopy(detalles, pos, detalles, pos + 1, n - pos);
+        }
+
+        fechas[pos] = fecha;
+        autores[pos] = autor;
+        tipos[pos] = (byte) tipo.ordinal();
+        // Los detalles de creación y cambio de estado son unos cuantos textos fijos: se comparten
+        detalles[pos] = tipo == Main.TipoEvento.CREACION || tipo == Main.TipoEvento.CAMBIO_ESTADO
+                ? Diccionario.DETALLES.canonico(detalle) : detalle;
+        n++;
+        return pos;
+    }
+
+    public int agregar(Main.Historial h) {
+        return agregar(h.fecha, Diccionario.USUARIOS.id(h.usuarioCambio), h.tipo, h.detalle);
+    }
+
+    // Ajusta la capacidad al tamaño real una vez terminada la carga
+    public void compactar() {
+        if (fechas.length == n) return;
+        fechas = Arrays.copyOf(fechas, n);
+        autores = Arrays.copyOf(autores, n);
+        tipos = Arrays.copyOf(tipos, n);
+        detalles = Arrays.copyOf(detalles, n);
+    }
+
+    public Main.Historial evento(String folio, int i) {
+        return new Main.Historial(folio, Diccionario.USUARIOS.valor(autores[i]), tipo(i), detalles[i], fechas[i]);
+    }
+
+    public List<Main.Historial> eventos(String folio) {
+        List<Main.Historial> lista = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) lista.add(evento(folio, i));
+        return lista;
+    }
+}
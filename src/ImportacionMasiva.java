@@ -0,0 +1,249 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Importación masiva de solicitudes migradas con su historial previo. Acepta dos formatos:
+//   CSV:  S;titulo;descripcion;solicitante;estado;fecha   seguido de sus eventos   H;usuario;tipo;detalle;fecha
+//   JSON-lines: {"titulo":..,"descripcion":..,"solicitante":..,"estado":..,"fecha":..,"historial":[{"usuario":..,"tipo":..,"detalle":..,"fecha":..}]}
+// Estado y fechas son opcionales (RECIBIDA / ahora). Los registros se validan en paralelo; los folios y la
+// escritura a los journals los asigna Main al confirmar el lote completo.
+class ImportacionMasiva {
+
+    private static final int UMBRAL = 256;
+    private static final int HILOS = Integer.getInteger("cfe.importacion.hilos", Runtime.getRuntime().availableProcessors());
+
+    static class Registro {
+
+        public final int linea; // Línea del archivo donde empieza el registro
+        final List<String> texto = new ArrayList<>(1);
+        public Main.Solicitud solicitud; // Sin folio hasta confirmar
+        public List<Main.Historial> historial;
+        public String error;
+
+        Registro(int linea) {
+            this.linea = linea;
+        }
+    }
+
+    static class Lote {
+
+        public final List<Registro> validos = new ArrayList<>();
+        public final List<Registro> rechazados = new ArrayList<>();
+        public int eventos;
+        public long bytes;
+        public long nanosLectura;
+        public long nanosValidacion;
+    }
+
+    private static class Validacion extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Registro[] registros;
+        private final int desde, hasta;
+        private final boolean json;
+        private final Set<String> solicitantes, usuarios;
+        private final long ahora;
+
+        Validacion(Registro[] registros, int desde, int hasta, boolean json, Set<String> solicitantes, Set<String> usuarios, long ahora) {
+            this.registros = registros; this.desde = desde; this.hasta = hasta; this.json = json;
+            this.solicitantes = solicitantes; this.usuarios = usuarios; this.ahora = ahora;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (hasta - desde > UMBRAL) {
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new Validacion(registros, desde, medio, json, solicitantes, usuarios, ahora),
+                          new Validacion(registros, medio, hasta, json, solicitantes, usuarios, ahora));
+                return;
+            }
+
+            for (int i = desde; i < hasta; i++) {
+                Registro r = registros[i];
+                if (r.error != null) continue;
+                try {
+                    if (json) validarJson(r, solicitantes, usuarios, ahora);
+                    else validarCsv(r, solicitantes, usuarios, ahora);
+                } catch (IllegalArgumentException e) {
+                    r.error = e.getMessage();
+                    r.solicitud = null;
+                    r.historial = null;
+                }
+            }
+        }
+    }
+
+    // solicitantes: usuarios con rol SOLICITANTE; usuarios: todos los que pueden figurar como autores de eventos
+    public static Lote validar(String archivo, Set<String> solicitantes, Set<String> usuarios) throws IOException {
+
+        Lote lote = new Lote();
+        lote.bytes = new File(archivo).length();
+
+        long inicio = System.nanoTime();
+        List<Registro> registros = new ArrayList<>();
+        boolean json = agrupar(archivo, registros);
+        lote.nanosLectura = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        Registro[] arreglo = registros.toArray(new Registro[0]);
+        ForkJoinPool pool = new ForkJoinPool(HILOS);
+        try {
+            pool.invoke(new Validacion(arreglo, 0, arreglo.length, json, solicitantes, usuarios, Main.aEpoch(LocalDateTime.now())));
+        } finally {
+            pool.shutdown();
+        }
+        lote.nanosValidacion = System.nanoTime() - inicio;
+
+        for (Registro r : arreglo) {
+            if (r.error == null) {
+                lote.validos.add(r);
+                lote.eventos += r.historial.size();
+            } else {
+                lote.rechazados.add(r);
+            }
+        }
+        return lote;
+    }
+
+    // Lectura secuencial: solo agrupa las líneas de cada registro (S + sus H, o una línea JSON)
+    private static boolean agrupar(String archivo, List<Registro> registros) throws IOException {
+
+        Boolean json = null;
+        Registro actual = null;
+
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(archivo), StandardCharsets.UTF_8)) {
+            String line;
+            int numero = 0;
+            while ((line = br.readLine()) != null) {
+                numero++;
+                String limpia = line.strip();
+                if (limpia.isEmpty() || limpia.startsWith("#")) continue;
+                if (json == null) json = limpia.startsWith("{");
+
+                if (json) {
+                    actual = new Registro(numero);
+                    actual.texto.add(limpia);
+                    registros.add(actual);
+                } else if (limpia.startsWith("S;")) {
+                    actual = new Registro(numero);
+                    actual.texto.add(limpia);
+                    registros.add(actual);
+                } else if (limpia.startsWith("H;") && actual != null && actual.error == null) {
+                    actual.texto.add(limpia);
+                } else {
+                    Registro r = new Registro(numero);
+                    r.texto.add(limpia);
+                    r.error = limpia.startsWith("H;") ? "Evento sin solicitud previa" : "Renglón desconocido (se esperaba S; o H;)";
+                    registros.add(r);
+                }
+            }
+        }
+        return json != null && json;
+    }
+
+    private static void validarCsv(Registro r, Set<String> solicitantes, Set<String> usuarios, long ahora) {
+
+        String[] s = r.texto.get(0).substring(2).split(";", -1);
+        if (s.length < 3 || s.length > 5) {
+            throw new IllegalArgumentException("Se esperaban 3 a 5 campos (titulo;descripcion;solicitante;estado;fecha), hay " + s.length);
+        }
+
+        List<String[]> eventos = new ArrayList<>(r.texto.size() - 1);
+        for (int i = 1; i < r.texto.size(); i++) {
+            String[] h = r.texto.get(i).substring(2).split(";", -1);
+            if (h.length < 4) throw new IllegalArgumentException("Evento en la línea " + (r.linea + i) + ": se esperaba usuario;tipo;detalle;fecha");
+            // El detalle puede traer ';': todo lo que queda entre el tipo y la fecha
+            String detalle = String.join(",", Arrays.copyOfRange(h, 2, h.length - 1));
+            eventos.add(new String[] { h[0], h[1], detalle, h[h.length - 1] });
+        }
+
+        construir(r, s[0], s[1], s[2], s.length > 3 ? s[3] : "", s.length > 4 ? s[4] : "", eventos, solicitantes, usuarios, ahora);
+    }
+
+    private static void validarJson(Registro r, Set<String> solicitantes, Set<String> usuarios, long ahora) {
+
+        Object valor = Json.leer(r.texto.get(0));
+        if (!(valor instanceof Map)) throw new IllegalArgumentException("Se esperaba un objeto JSON");
+        Map<?, ?> o = (Map<?, ?>) valor;
+
+        List<String[]> eventos = new ArrayList<>();
+        Object historial = o.get("historial");
+        if (historial != null) {
+            if (!(historial instanceof List)) throw new IllegalArgumentException("\"historial\" debe ser un arreglo");
+            for (Object e : (List<?>) historial) {
+                if (!(e instanceof Map)) throw new IllegalArgumentException("Cada evento de \"historial\" debe ser un objeto");
+                Map<?, ?> h = (Map<?, ?>) e;
+                eventos.add(new String[] { campo(h, "usuario"), campo(h, "tipo"), campo(h, "detalle"), campo(h, "fecha") });
+            }
+        }
+
+        construir(r, campo(o, "titulo"), campo(o, "descripcion"), campo(o, "solicitante"), campo(o, "estado"), campo(o, "fecha"),
+                eventos, solicitantes, usuarios, ahora);
+    }
+
+    private static String campo(Map<?, ?> o, String nombre) {
+        Object v = o.get(nombre);
+        return v == null ? "" : v.toString();
+    }
+
+    private static void construir(Registro r, String titulo, String descripcion, String solicitante, String estadoTexto, String fechaTexto,
+                                  List<String[]> eventos, Set<String> solicitantes, Set<String> usuarios, long ahora) {
+
+        titulo = limpiar(titulo);
+        if (titulo.isEmpty()) throw new IllegalArgumentException("El título es obligatorio (RF2)");
+
+        solicitante = solicitante.trim().toLowerCase();
+        if (!solicitantes.contains(solicitante)) throw new IllegalArgumentException("Solicitante desconocido o sin rol SOLICITANTE: " + solicitante);
+
+        Main.Estado estado = estadoTexto.isBlank() ? Main.Estado.RECIBIDA : enumerado(Main.Estado.class, estadoTexto, "Estado");
+        long fecha = fecha(fechaTexto, ahora, ahora);
+
+        r.solicitud = new Main.Solicitud(null, titulo, limpiar(descripcion), solicitante, estado, fecha);
+        r.historial = new ArrayList<>(eventos.size() + 1);
+
+        boolean conCreacion = false;
+        for (String[] e : eventos) {
+            String usuario = e[0].trim().toLowerCase();
+            if (!usuarios.contains(usuario)) throw new IllegalArgumentException("Usuario desconocido en el historial: " + usuario);
+            Main.TipoEvento tipo = enumerado(Main.TipoEvento.class, e[1], "Tipo de evento");
+            long cuando = fecha(e[3], fecha, ahora);
+            if (cuando < fecha) throw new IllegalArgumentException("Evento " + tipo + " anterior a la fecha de creación");
+            conCreacion |= tipo == Main.TipoEvento.CREACION;
+            r.historial.add(new Main.Historial(null, usuario, tipo, limpiar(e[2]), cuando));
+        }
+
+        if (!conCreacion) { // RF7: toda solicitud empieza con su evento de creación
+            r.historial.add(0, new Main.Historial(null, solicitante, Main.TipoEvento.CREACION,
+                    "Solicitud importada. Estado al importar: " + estado.name() + ".", fecha));
+        }
+    }
+
+    private static long fecha(String texto, long omision, long ahora) {
+        if (texto.isBlank()) return omision;
+        long fecha = Main.aEpoch(texto.trim());
+        if (fecha > ahora) throw new IllegalArgumentException("Fecha futura: " + texto.trim());
+        return fecha;
+    }
+
+    private static <E extends Enum<E>> E enumerado(Class<E> clase, String texto, String nombre) {
+        try {
+            return Enum.valueOf(clase, texto.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(nombre + " inválido: " + texto.trim());
+        }
+    }
+
+    // Los journals son una línea por registro: sin saltos de línea en los textos
+    private static String limpiar(String texto) {
+        return texto.replace("\r", " ").replace("\n", " ").strip();
+    }
+}
@@ -0,0 +1,263 @@
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice invertido sobre título, descripción y comentarios. Cada folio recibe un id denso; las listas de
+// postings son arreglos primitivos ordenados por id y el estado/solicitante de cada id se guarda aparte
+// para filtrar sin consultar el repositorio.
+class IndiceTexto {
+
+    public static final int PESO_TITULO = 3;
+    public static final int PESO_TEXTO = 1;
+
+    private static final Set<String> VACIAS = Set.of(
+            "de", "la", "el", "en", "y", "a", "los", "las", "del", "al", "por", "para", "con", "sin",
+            "un", "una", "que", "se", "su", "sus", "es", "lo", "le", "no", "o");
+
+    static class Resultado {
+
+        public final String folio;
+        public final double puntaje;
+
+        Resultado(String folio, double puntaje) {
+            this.folio = folio; this.puntaje = puntaje;
+        }
+    }
+
+    static class Pagina {
+
+        public final List<Resultado> resultados;
+        public final int totalCoincidencias;
+        public final long microsegundos;
+
+        Pagina(List<Resultado> resultados, int totalCoincidencias, long microsegundos) {
+            this.resultados = resultados; this.totalCoincidencias = totalCoincidencias; this.microsegundos = microsegundos;
+        }
+    }
+
+    private static final class Postings {
+
+        int[] docs = new int[4];
+        int[] pesos = new int[4];
+        int n;
+
+        void sumar(int doc, int delta) {
+
+            int pos = Arrays.binarySearch(docs, 0, n, doc);
+            if (pos >= 0) {
+                pesos[pos] += delta;
+                if (pesos[pos] <= 0) {
+                    System.arraycopy(docs, pos + 1, docs, pos, n - pos - 1);
+                    System.arraycopy(pesos, pos + 1, pesos, pos, n - pos - 1);
+                    n--;
+                }
+                return;
+            }
+            if (delta <= 0) return;
+
+            pos = -pos - 1;
+            if (n == docs.length) {
+                docs = Arrays.copyOf(docs, n * 2);
+                pesos = Arrays.copyOf(pesos, n * 2);
+            }
+            System.arraycopy(docs, pos, docs, pos + 1, n - pos);
+            System.arraycopy(pesos, pos, pesos, pos + 1, n - pos);
+            docs[pos] = doc;
+            pesos[pos] = delta;
+            n++;
+        }
+    }
+
+    // Acumuladores reutilizados por hilo para no reservar memoria en cada consulta
+    private static final class Acumulador {
+        double[] puntajes = new double[0];
+        int[] tocados = new int[0];
+    }
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> idPorFolio = new HashMap<>();
+    private final List<String> folioPorId = new ArrayList<>();
+    private byte[] estadoPorId = new byte[1024];
+    private int[] solicitantePorId = new int[1024];
+    private final Map<String, Integer> idPorSolicitante = new HashMap<>();
+
+    private final ReadWriteLock candado = new ReentrantReadWriteLock();
+    private final ThreadLocal<Acumulador> acumuladores = ThreadLocal.withInitial(Acumulador::new);
+
+    public void limpiar() {
+        candado.writeLock().lock();
+        try {
+            postings.clear();
+            idPorFolio.clear();
+            folioPorId.clear();
+            idPorSolicitante.clear();
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void registrarSolicitud(Main.Solicitud s) {
+
+        candado.writeLock().lock();
+        try {
+            int doc = id(s.folio);
+            estadoPorId[doc] = (byte) s.estado.ordinal();
+            solicitantePorId[doc] = idPorSolicitante.computeIfAbsent(s.solicitanteUsername, k -> idPorSolicitante.size());
+            sumar(doc, s.titulo, PESO_TITULO);
+            sumar(doc, s.descripcion, PESO_TEXTO);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void actualizarEstado(String folio, Main.Estado estado) {
+
+        candado.writeLock().lock();
+        try {
+            Integer doc = idPorFolio.get(folio);
+            if (doc != null) estadoPorId[doc] = (byte) estado.ordinal();
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void indexar(String folio, String texto, int peso) {
+
+        candado.writeLock().lock();
+        try {
+            sumar(id(folio), texto, peso);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void reemplazar(String folio, String textoAnterior, String textoNuevo, int peso) {
+
+        candado.writeLock().lock();
+        try {
+            int doc = id(folio);
+            sumar(doc, textoAnterior, -peso);
+            sumar(doc, textoNuevo, peso);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    private int id(String folio) {
+
+        Integer doc = idPorFolio.get(folio);
+        if (doc != null) return doc;
+
+        int nuevo = folioPorId.size();
+        folioPorId.add(folio);
+        idPorFolio.put(folio, nuevo);
+        if (nuevo == estadoPorId.length) {
+            estadoPorId = Arrays.copyOf(estadoPorId, nuevo * 2);
+            solicitantePorId = Arrays.copyOf(solicitantePorId, nuevo * 2);
+        }
+        solicitantePorId[nuevo] = -1;
+        return nuevo;
+    }
+
+    private void sumar(int doc, String texto, int delta) {
+        for (String t : tokenizar(texto)) {
+            Postings p = postings.computeIfAbsent(t, k -> new Postings());
+            p.sumar(doc, delta);
+            if (p.n == 0) postings.remove(t);
+        }
+    }
+
+    // Ranking TF-IDF (OR entre términos). estado y solicitante son filtros opcionales (null = todos)
+    public Pagina buscar(String consulta, Main.Estado estado, String solicitante, int pagina, int tamanoPagina) {
+
+        long inicio = System.nanoTime();
+        Set<String> terminos = new LinkedHashSet<>(tokenizar(consulta));
+        int limite = (pagina + 1) * tamanoPagina;
+
+        // Mínimo del top-k en la raíz; en empate de puntaje gana el folio más antiguo (id menor)
+        Comparator<double[]> orden = (a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(b[1], a[1]);
+        PriorityQueue<double[]> mejores = new PriorityQueue<>(orden);
+        int coincidencias = 0;
+        List<Resultado> resultados = new ArrayList<>();
+
+        candado.readLock().lock();
+        try {
+            Acumulador acc = acumuladores.get();
+            int totalDocs = folioPorId.size();
+            if (acc.puntajes.length < totalDocs) {
+                acc.puntajes = new double[totalDocs];
+                acc.tocados = new int[totalDocs];
+            }
+            double[] puntajes = acc.puntajes;
+            int[] tocados = acc.tocados;
+            int nTocados = 0;
+
+            for (String t : terminos) {
+                Postings p = postings.get(t);
+                if (p == null) continue;
+                double idf = Math.log(1 + (double) totalDocs / p.n);
+                for (int i = 0; i < p.n; i++) {
+                    int doc = p.docs[i];
+                    if (puntajes[doc] == 0) tocados[nTocados++] = doc;
+                    puntajes[doc] += (1 + Math.log(p.pesos[i])) * idf;
+                }
+            }
+
+            int filtroEstado = estado == null ? -1 : estado.ordinal();
+            Integer idSolicitante = solicitante == null ? null : idPorSolicitante.get(solicitante);
+            boolean sinCoincidencias = solicitante != null && idSolicitante == null;
+
+            for (int i = 0; i < nTocados; i++) {
+                int doc = tocados[i];
+                double puntaje = puntajes[doc];
+                puntajes[doc] = 0;
+
+                if (sinCoincidencias) continue;
+                if (filtroEstado >= 0 && estadoPorId[doc] != filtroEstado) continue;
+                if (idSolicitante != null && solicitantePorId[doc] != idSolicitante) continue;
+
+                coincidencias++;
+                if (mejores.size() < limite) {
+                    mejores.add(new double[] { puntaje, doc });
+                } else if (puntaje > mejores.peek()[0]) {
+                    mejores.poll();
+                    mejores.add(new double[] { puntaje, doc });
+                }
+            }
+
+            List<double[]> ordenados = new ArrayList<>(mejores);
+            ordenados.sort(orden.reversed());
+            for (int i = pagina * tamanoPagina; i < ordenados.size(); i++) {
+                resultados.add(new Resultado(folioPorId.get((int) ordenados.get(i)[1]), ordenados.get(i)[0]));
+            }
+        } finally {
+            candado.readLock().unlock();
+        }
+
+        return new Pagina(resultados, coincidencias, (System.nanoTime() - inicio) / 1_000);
+    }
+
+    // Minúsculas, sin acentos, separando por cualquier carácter que no sea letra o dígito
+    static List<String> tokenizar(String texto) {
+
+        List<String> terminos = new ArrayList<>();
+        if (texto == null || texto.isEmpty()) return terminos;
+
+        String normalizado = Normalizer.normalize(texto.toLowerCase(), Normalizer.Form.NFD);
+        StringBuilder actual = new StringBuilder();
+
+        for (int i = 0; i <= normalizado.length(); i++) {
+            char c = i < normalizado.length() ? normalizado.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(c)) {
+                actual.append(c);
+            } else if (actual.length() > 0) {
+                String t = actual.toString();
+                if (t.length() > 1 && !VACIAS.contains(t)) terminos.add(t);
+                actual.setLength(0);
+            }
+        }
+        return terminos;
+    }
+}
@@ -0,0 +1,207 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// JSON mínimo (sin dependencias). Lectura: objetos -> Map, arreglos -> List, números -> Double,
+// true/false -> Boolean y null. Escritura: lo mismo de regreso, en una sola línea (JSON-lines).
+final class Json {
+
+    private final String texto;
+    private int pos;
+
+    private Json(String texto) {
+        this.texto = texto;
+    }
+
+    public static Object leer(String texto) {
+
+        Json json = new Json(texto);
+        Object valor = json.valor();
+        json.espacios();
+        if (json.pos != texto.length()) throw json.error("Contenido extra después del valor");
+        return valor;
+    }
+
+    public static String escribir(Object valor) {
+        StringBuilder sb = new StringBuilder();
+        escribir(sb, valor);
+        return sb.toString();
+    }
+
+    private static void escribir(StringBuilder sb, Object valor) {
+
+        if (valor == null) {
+            sb.append("null");
+        } else if (valor instanceof Map) {
+            sb.append('{');
+            boolean primero = true;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) valor).entrySet()) {
+                if (!primero) sb.append(',');
+                primero = false;
+                cadena(sb, String.valueOf(e.getKey()));
+                sb.append(':');
+                escribir(sb, e.getValue());
+            }
+            sb.append('}');
+        } else if (valor instanceof Iterable) {
+            sb.append('[');
+            boolean primero = true;
+            for (Object o : (Iterable<?>) valor) {
+                if (!primero) sb.append(',');
+                primero = false;
+                escribir(sb, o);
+            }
+            sb.append(']');
+        } else if (valor instanceof Number || valor instanceof Boolean) {
+            sb.append(valor);
+        } else {
+            cadena(sb, valor.toString());
+        }
+    }
+
+    private static void cadena(StringBuilder sb, String texto) {
+
+        sb.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private Object valor() {
+
+        espacios();
+        if (pos >= texto.length()) throw error("Fin inesperado");
+
+        char c = texto.charAt(pos);
+        switch (c) {
+            case '{': return objeto();
+            case '[': return arreglo();
+            case '"': return cadena();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return numero();
+                throw error("Carácter inesperado '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> objeto() {
+
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        pos++;
+        espacios();
+        if (siguienteEs('}')) return mapa;
+
+        while (true) {
+            espacios();
+            if (pos >= texto.length() || texto.charAt(pos) != '"') throw error("Se esperaba el nombre de un campo");
+            String clave = cadena();
+            espacios();
+            esperar(':');
+            mapa.put(clave, valor());
+            espacios();
+            if (siguienteEs('}')) return mapa;
+            esperar(',');
+        }
+    }
+
+    private List<Object> arreglo() {
+
+        List<Object> lista = new ArrayList<>();
+        pos++;
+        espacios();
+        if (siguienteEs(']')) return lista;
+
+        while (true) {
+            lista.add(valor());
+            espacios();
+            if (siguienteEs(']')) return lista;
+            esperar(',');
+        }
+    }
+
+    private String cadena() {
+
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (pos < texto.length()) {
+            char c = texto.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= texto.length()) break;
+            char e = texto.charAt(pos++);
+            switch (e) {
+                case '"': case '\\': case '/': sb.append(e); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > texto.length()) throw error("Escape \\u incompleto");
+                    try {
+                        sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Escape \\u inválido");
+                    }
+                    pos += 4;
+                    break;
+                default: throw error("Escape inválido \\" + e);
+            }
+        }
+        throw error("Cadena sin cerrar");
+    }
+
+    private Double numero() {
+
+        int inicio = pos;
+        while (pos < texto.length() && "+-0123456789.eE".indexOf(texto.charAt(pos)) >= 0) pos++;
+        try {
+            return Double.valueOf(texto.substring(inicio, pos));
+        } catch (NumberFormatException e) {
+            throw error("Número inválido");
+        }
+    }
+
+    private Object literal(String palabra, Object valor) {
+        if (!texto.startsWith(palabra, pos)) throw error("Valor desconocido");
+        pos += palabra.length();
+        return valor;
+    }
+
+    private void espacios() {
+        while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) pos++;
+    }
+
+    private boolean siguienteEs(char c) {
+        if (pos < texto.length() && texto.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void esperar(char c) {
+        if (!siguienteEs(c)) throw error("Se esperaba '" + c + "'");
+    }
+
+    private IllegalArgumentException error(String mensaje) {
+        return new IllegalArgumentException(mensaje + " (posición " + (pos + 1) + ")");
+    }
+}
@@ -1,48 +1,98 @@
 import java.io.*;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
-
-// NOTA: Esta clase requiere la dependencia de iText
-
-class ReportePDFGenerator {
-
-    public static void generarPDF(String nombreArchivo, String contenido) {
-
-        try (PrintWriter out = new PrintWriter(nombreArchivo)) {
-
-            out.println("--- INICIO REPORTE CFE (PDF GENERADOR) ---");
-            out.println(contenido);
-            out.println("--- FIN REPORTE CFE ---");
-            System.out.println("✅ Reporte generado y guardado como texto en: " + nombreArchivo);
-
-        } catch (IOException e) {
-
-            System.err.println("❌ Error al simular la generación de PDF: " + e.getMessage());
-
-        }
-    }
-}
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 public class Main {
 
     private static final String CSV_DELIMITER = ";";
-    private static final Scanner scanner = new Scanner(System.in);
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
 
     private static final String ARCHIVO_USUARIOS = "usuarios.csv";
-    private static final String ARCHIVO_SOLICITUDES = "solicitudes.csv";
+    private static final String ARCHIVO_SOLICITUDES = "solicitudes.csv"; // Journals únicos de versiones anteriores (se migran a DIRECTORIO_DATOS)
     private static final String ARCHIVO_HISTORIAL = "historial.csv";
-
-    private static List<Usuario> usuarios = new ArrayList<>();
-    private static List<Solicitud> solicitudes = new ArrayList<>();
-    private static List<Historial> historial = new ArrayList<>();
-    private static Usuario usuarioActual = null;
+    private static final String DIRECTORIO_DATOS = "datos";
+    private static final String ARCHIVO_FOLIOS = "folios.csv";
+    private static final String ARCHIVO_SNAPSHOT = "cfe.snapshot";
+    private static final int EVENTOS_POR_SNAPSHOT = Integer.getInteger("cfe.snapshot.eventos", 100_000);
+    private static final String ARCHIVO_METRICAS = "cfe-metricas.txt";
+    private static final String ARCHIVO_NOTIFICACIONES = "notificaciones.log";
+    private static final String ARCHIVO_CANDADOS = "cfe.lock";
+    private static final String DIRECTORIO_ARCHIVO = "archivo";
+    private static final int DIAS_PARA_ARCHIVAR = Integer.getInteger("cfe.archivo.dias", 90);
+    private static final long SEGUNDOS_METRICAS = Long.getLong("cfe.metricas.segundos", 60);
+    static final long HORAS_SLA = Long.getLong("cfe.sla.horas", 72);
+    private static final int EVENTOS_POR_BLOQUE = 512;
+    private static final int CAPACIDAD_BUS = Integer.getInteger("cfe.bus.capacidad", 4096);
+    private static final long REFRESCO_MS = Long.getLong("cfe.refresco.ms", 1000);
+    private static final int HISTORIAL_EN_CACHE = Integer.getInteger("cfe.historial.cache", 0); // Eventos; 0: todo el historial en memoria
+
+    // Modo multiproceso (-Dcfe.multiproceso=true, ver AlmacenCompartido); null con un solo proceso
+    private static final AlmacenCompartido compartido = Boolean.getBoolean("cfe.multiproceso") ? AlmacenCompartido.abrir(ARCHIVO_CANDADOS) : null;
+
+    private static List<Usuario> usuarios = new CopyOnWriteArrayList<>();
+    private static final Object CANDADO_USUARIOS = new Object();
+    private static final Telemetria telemetria = new Telemetria();
+    private static final Particiones particiones = new Particiones(DIRECTORIO_DATOS);
+    private static final RepositorioSolicitudes repositorio = new RepositorioSolicitudes(HISTORIAL_EN_CACHE <= 0 ? null
+            : new HistorialEnDisco(particiones, HISTORIAL_EN_CACHE, campos -> desdeCampos(campos, Historial.class)));
+    private static final GeneradorFolios folios = new GeneradorFolios(ARCHIVO_FOLIOS, compartido);
+    private static final ArchivoHistorico archivo = new ArchivoHistorico(DIRECTORIO_ARCHIVO);
+    private static final ConsultaAuditoria auditoria = new ConsultaAuditoria(particiones, archivo);
+    private static final IndiceTexto indiceTexto = new IndiceTexto();
+    private static final PersistenciaDiferida persistencia = PersistenciaDiferida.desdePropiedades(particiones, telemetria, compartido);
+    private static final AtomicInteger eventosDesdeSnapshot = new AtomicInteger();
+    private static final AtomicBoolean snapshotEnCurso = new AtomicBoolean();
+    private static final BusEventos bus = new BusEventos(Long.getLong("cfe.bus.espera.ms", 5), telemetria);
+    private static final BandejaTrabajo bandeja = new BandejaTrabajo();
+    private static final ExecutorService TAREAS_FONDO = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "cfe-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Contexto por sesión: en modo consola es único; en modo servidor cada hilo tiene el suyo
+    private static final Sesion CONSOLA = new Sesion(new Scanner(System.in), System.out, System.err);
+    private static final ThreadLocal<Sesion> SESION = ThreadLocal.withInitial(() -> CONSOLA);
 
     enum Rol { SOLICITANTE, RESPONSABLE, ADMIN }
     enum Estado { RECIBIDA, EN_PROCESO, COMPLETADA, CANCELADA }
     enum TipoEvento { CAMBIO_ESTADO, COMENTARIO, MODIFICACION_DATOS, CREACION }
 
+    static class Sesion {
+
+        public final Scanner scanner;
+        public final PrintStream out;
+        public final PrintStream err;
+        public Usuario usuario;
+
+        public Sesion(Scanner scanner, PrintStream out, PrintStream err) {
+            this.scanner = scanner; this.out = out; this.err = err;
+        }
+    }
+
+    static Sesion sesion() {
+        return SESION.get();
+    }
+
     static class Usuario {
 
         public String username;
@@ -60,23 +110,27 @@ public class Main {
     static class Solicitud {
 
         public String folio;
-        public String titulo;
-        public String descripcion;
+        public volatile String titulo;
+        public volatile String descripcion;
         public String solicitanteUsername;
-        public Estado estado;
-        public String fechaCreacion;
+        public volatile Estado estado;
+        public long fechaCreacion; // Segundos epoch de la hora local (ver aEpoch)
 
-        public Solicitud(String folio, String titulo, String descripcion, String solicitanteUsername, Estado estado, String fechaCreacion) {
+        public Solicitud(String folio, String titulo, String descripcion, String solicitanteUsername, Estado estado, long fechaCreacion) {
             this.folio = folio; this.titulo = titulo; this.descripcion = descripcion;
-            this.solicitanteUsername = solicitanteUsername; this.estado = estado;
+            this.solicitanteUsername = Diccionario.USUARIOS.canonico(solicitanteUsername); this.estado = estado;
             this.fechaCreacion = fechaCreacion;
         }
 
+        public Solicitud(String folio, String titulo, String descripcion, String solicitanteUsername, Estado estado, String fechaCreacion) {
+            this(folio, titulo, descripcion, solicitanteUsername, estado, aEpoch(fechaCreacion));
+        }
+
         public String toCSV() {
 
             return String.join(CSV_DELIMITER, folio, titulo.replace(CSV_DELIMITER, ","),
                     descripcion.replace(CSV_DELIMITER, ",").replace("\n", " "),
-                    solicitanteUsername, estado.name(), fechaCreacion);
+                    solicitanteUsername, estado.name(), formatearFecha(fechaCreacion));
         }
 
         @Override
@@ -93,20 +147,117 @@ public class Main {
         public String usuarioCambio;
         public TipoEvento tipo;
         public String detalle;
-        public String fecha;
+        public long fecha; // Segundos epoch de la hora local (ver aEpoch)
 
-        public Historial(String folio, String usuarioCambio, TipoEvento tipo, String detalle, String fecha) {
+        public Historial(String folio, String usuarioCambio, TipoEvento tipo, String detalle, long fecha) {
 
-            this.folio = folio; this.usuarioCambio = usuarioCambio; this.tipo = tipo;
+            this.folio = folio; this.usuarioCambio = Diccionario.USUARIOS.canonico(usuarioCambio); this.tipo = tipo;
             this.detalle = detalle; this.fecha = fecha;
         }
 
+        public Historial(String folio, String usuarioCambio, TipoEvento tipo, String detalle, String fecha) {
+            this(folio, usuarioCambio, tipo, detalle, aEpoch(fecha));
+        }
+
         public String toCSV() {
-            return String.join(CSV_DELIMITER, folio, usuarioCambio, tipo.name(), detalle.replace(CSV_DELIMITER, ","), fecha);
+            return String.join(CSV_DELIMITER, folio, usuarioCambio, tipo.name(), detalle.replace(CSV_DELIMITER, ","), formatearFecha(fecha));
         }
 
         public String toReportString() {
-            return String.format("[%s] [%-15s] [%-20s] Detalle: %s", fecha, usuarioCambio, tipo.name(), detalle);
+            return String.format("[%s] [%-15s] [%-20s] Detalle: %s", formatearFecha(fecha), usuarioCambio, tipo.name(), detalle);
+        }
+    }
+
+    // Otro usuario o proceso cambió la solicitud después de que se leyó su versión (o una recarga la reemplazó)
+    static class ConflictoVersion extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        public ConflictoVersion(String folio) {
+            super("La solicitud " + folio + " fue modificada por otro usuario mientras la editaba. Consúltela de nuevo y repita el cambio.");
+        }
+    }
+
+    // Fechas "yyyy-MM-dd HH:mm:ss" como segundos epoch de la hora local tomada como UTC: el valor ordena igual
+    // que el texto, vuelve exactamente al mismo texto y no depende de cambios de horario. La conversión es
+    // aritmética (sin DateTimeFormatter) porque se hace por cada renglón al cargar y al escribir.
+    static long aEpoch(String fecha) {
+
+        if (fecha.length() != 19 || fecha.charAt(4) != '-' || fecha.charAt(7) != '-' || fecha.charAt(10) != ' '
+                || fecha.charAt(13) != ':' || fecha.charAt(16) != ':') {
+            throw new IllegalArgumentException("Fecha inválida: " + fecha);
+        }
+        long y = digitos(fecha, 0, 4), m = digitos(fecha, 5, 2), d = digitos(fecha, 8, 2);
+        long hh = digitos(fecha, 11, 2), mm = digitos(fecha, 14, 2), ss = digitos(fecha, 17, 2);
+        if (m < 1 || m > 12 || d < 1 || d > diasDelMes(y, m) || hh > 23 || mm > 59 || ss > 59) {
+            throw new IllegalArgumentException("Fecha inválida: " + fecha);
+        }
+
+        // Días desde 1970-01-01 en el calendario gregoriano (algoritmo days_from_civil)
+        y -= m <= 2 ? 1 : 0;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        long dias = era * 146097 + doe - 719468;
+
+        return dias * 86_400 + hh * 3_600 + mm * 60 + ss;
+    }
+
+    private static long diasDelMes(long y, long m) {
+        if (m == 2) return y % 4 == 0 && (y % 100 != 0 || y % 400 == 0) ? 29 : 28;
+        return m == 4 || m == 6 || m == 9 || m == 11 ? 30 : 31;
+    }
+
+    static long aEpoch(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static String formatearFecha(long epoch) {
+
+        long dias = Math.floorDiv(epoch, 86_400);
+        long segundos = epoch - dias * 86_400;
+
+        // Inverso de aEpoch (algoritmo civil_from_days)
+        long z = dias + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long d = doy - (153 * mp + 2) / 5 + 1;
+        long m = mp < 10 ? mp + 3 : mp - 9;
+        long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+
+        char[] c = new char[19];
+        escribirDigitos(c, 0, 4, y);
+        c[4] = '-';
+        escribirDigitos(c, 5, 2, m);
+        c[7] = '-';
+        escribirDigitos(c, 8, 2, d);
+        c[10] = ' ';
+        escribirDigitos(c, 11, 2, segundos / 3_600);
+        c[13] = ':';
+        escribirDigitos(c, 14, 2, segundos / 60 % 60);
+        c[16] = ':';
+        escribirDigitos(c, 17, 2, segundos % 60);
+        return new String(c);
+    }
+
+    private static long digitos(String texto, int desde, int cantidad) {
+        long valor = 0;
+        for (int i = desde; i < desde + cantidad; i++) {
+            char ch = texto.charAt(i);
+            if (ch < '0' || ch > '9') throw new IllegalArgumentException("Fecha inválida: " + texto);
+            valor = valor * 10 + (ch - '0');
+        }
+        return valor;
+    }
+
+    private static void escribirDigitos(char[] destino, int desde, int cantidad, long valor) {
+        for (int i = desde + cantidad - 1; i >= desde; i--) {
+            destino[i] = (char) ('0' + valor % 10);
+            valor /= 10;
         }
     }
 
@@ -124,138 +275,778 @@ public class Main {
                 guardarUsuarios();
             }
 
-            new File(ARCHIVO_SOLICITUDES).createNewFile();
-            new File(ARCHIVO_HISTORIAL).createNewFile();
+            boolean anteriores = new File(ARCHIVO_SOLICITUDES).exists() || new File(ARCHIVO_HISTORIAL).exists();
+            if (!particiones.existe() || anteriores) {
+                particiones.migrar(ARCHIVO_SOLICITUDES, ARCHIVO_HISTORIAL);
+                if (anteriores) {
+                    SnapshotBinario.invalidar(ARCHIVO_SNAPSHOT);
+                    sesion().out.println("📂 Journals repartidos por mes en " + DIRECTORIO_DATOS + "/ (los originales quedan como *.migrado).");
+                }
+            }
 
         } catch (IOException e) {
-            System.err.println("Error al asegurar archivos iniciales.");
+            sesion().err.println("Error al asegurar archivos iniciales.");
         }
     }
 
     private static <T> List<T> cargarDesdeCSV(String archivo, Class<T> clazz) {
+        return cargarDesdeCSV(archivo, clazz, 0);
+    }
 
-        List<T> lista = new ArrayList<>();
+    private static <T> List<T> cargarDesdeCSV(String archivo, Class<T> clazz, long desde) {
+        return terminarCarga(archivo, iniciarCarga(archivo, clazz, desde)).registros;
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(archivo))) {
+    // Los archivos se cargan a la vez: se inician todos y después se espera cada uno con terminarCarga
+    private static <T> ForkJoinTask<CargaCSV.Resultado<T>> iniciarCarga(String archivo, Class<T> clazz, long desde) {
+        return CargaCSV.iniciar(archivo, desde, campos -> desdeCampos(campos, clazz));
+    }
 
-            String line;
+    // Los renglones inválidos se anexan a <archivo>.rechazados.txt; si el archivo no existe devuelve un resultado vacío
+    private static <T> CargaCSV.Resultado<T> terminarCarga(String archivo, ForkJoinTask<CargaCSV.Resultado<T>> carga) {
 
-            while ((line = br.readLine()) != null) {
+        CargaCSV.Resultado<T> resultado;
+        try {
+            resultado = carga.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) return new CargaCSV.Resultado<>(); // Manejo silencioso: archivo inexistente o ilegible
+            throw new IllegalStateException("Error al cargar " + archivo, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new CargaCSV.Resultado<>();
+        }
+        telemetria.registrar("cargaCSV", resultado.nanos, resultado.bytes);
+
+        if (!resultado.rechazados.isEmpty()) {
+            String archivoRechazos = archivo + ".rechazados.txt";
+            List<String> lineas = new ArrayList<>(resultado.rechazados.size() + 1);
+            lineas.add("# Carga del " + formatearFecha(aEpoch(LocalDateTime.now())));
+            lineas.addAll(resultado.rechazados);
+            try {
+                Files.write(Paths.get(archivoRechazos), lineas, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                sesion().err.printf("⚠️ Se omitieron %d renglones inválidos de %s; quedaron en %s.%n", resultado.rechazados.size(), archivo, archivoRechazos);
+            } catch (IOException e) {
+                sesion().err.println("❌ No se pudo escribir " + archivoRechazos + ": " + e.getMessage());
+            }
+        }
+        return resultado;
+    }
 
-                String[] values = line.split(CSV_DELIMITER);
-                if (clazz.equals(Usuario.class) && values.length == 3) {
-                    lista.add(clazz.cast(new Usuario(values[0], values[1], Rol.valueOf(values[2]))));
-                } else if (clazz.equals(Solicitud.class) && values.length == 6) {
-                    lista.add(clazz.cast(new Solicitud(values[0], values[1], values[2], values[3], Estado.valueOf(values[4]), values[5])));
-                } else if (clazz.equals(Historial.class) && values.length == 5) {
-                    lista.add(clazz.cast(new Historial(values[0], values[1], TipoEvento.valueOf(values[2]), values[3], values[4])));
-                }
+    // Renglón suelto (refresco multiproceso); null si no tiene el número de campos de la clase
+    private static <T> T desdeCSV(String line, Class<T> clazz) {
+        return desdeCampos(CargaCSV.separar(line), clazz);
+    }
+
+    // null si no es el número de campos de la clase; IllegalArgumentException si un valor es inválido
+    private static <T> T desdeCampos(String[] values, Class<T> clazz) {
+
+        if (clazz.equals(Usuario.class) && values.length == 3) {
+            return clazz.cast(new Usuario(values[0], values[1], Rol.valueOf(values[2])));
+        } else if (clazz.equals(Solicitud.class) && values.length == 6) {
+            return clazz.cast(new Solicitud(values[0], values[1], values[2], values[3], Estado.valueOf(values[4]), values[5]));
+        } else if (clazz.equals(Historial.class) && values.length == 5) {
+            return clazz.cast(new Historial(values[0], values[1], TipoEvento.valueOf(values[2]), values[3], values[4]));
+        }
+        return null;
+    }
+
+    private static boolean guardarLista(String archivo, List<?> lista) {
+
+        long inicio = System.nanoTime();
+        List<String> lineas = new ArrayList<>(lista.size());
+
+        for (Object obj : lista) {
+
+            if (obj instanceof Usuario) lineas.add(((Usuario) obj).toCSV());
+            else if (obj instanceof Solicitud) lineas.add(((Solicitud) obj).toCSV());
+            else if (obj instanceof Historial) lineas.add(((Historial) obj).toCSV());
+        }
+
+        try {
+            PersistenciaDiferida.escribirAtomico(archivo, lineas);
+            telemetria.registrar("guardarLista", System.nanoTime() - inicio, new File(archivo).length());
+            return true;
+        } catch (IOException e) {
+            sesion().err.println("❌ Error de persistencia en " + archivo + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Reescritura completa de una partición de solicitudes (compactación, archivo histórico). Se hace con la región
+    // del journal tomada (carga inicial o recarga): los demás procesos recargan.
+    private static void guardarParticion(String mes, List<Solicitud> lista) {
+
+        String ruta = particiones.archivo(Particiones.Journal.SOLICITUDES, mes).toString();
+        if (!guardarLista(ruta, lista)) return;
+
+        try {
+            if (compartido != null) compartido.reescrito(ruta);
+        } catch (IOException e) {
+            sesion().err.println("❌ Error al avisar a los demás procesos de la reescritura de " + ruta + ": " + e.getMessage());
+        }
+    }
+
+    // Rutas de todas las particiones de ambos journals (para el modo multiproceso)
+    private static String[] archivosJournal() {
+        List<String> rutas = new ArrayList<>();
+        for (Particiones.Journal j : Particiones.Journal.values()) {
+            for (Path p : particiones.archivos(j)) rutas.add(p.toString());
+        }
+        return rutas.toArray(new String[0]);
+    }
+
+    // Una carga por partición del journal, todas a la vez; desde el offset del snapshot si lo hay
+    private static <T> Map<String, ForkJoinTask<CargaCSV.Resultado<T>>> iniciarCargas(Particiones.Journal journal, Class<T> clazz, SnapshotBinario.Contenido snapshot) {
+        Map<String, ForkJoinTask<CargaCSV.Resultado<T>>> cargas = new LinkedHashMap<>();
+        for (String mes : particiones.meses()) {
+            Path ruta = particiones.archivo(journal, mes);
+            cargas.put(mes, iniciarCarga(ruta.toString(), clazz, snapshot == null ? 0 : snapshot.offset(ruta.getFileName().toString())));
+        }
+        return cargas;
+    }
+
+    private static <T> Map<String, CargaCSV.Resultado<T>> terminarCargas(Particiones.Journal journal, Map<String, ForkJoinTask<CargaCSV.Resultado<T>>> cargas) {
+        Map<String, CargaCSV.Resultado<T>> resultados = new LinkedHashMap<>();
+        cargas.forEach((mes, carga) -> resultados.put(mes, terminarCarga(particiones.archivo(journal, mes).toString(), carga)));
+        return resultados;
+    }
+
+    // Cada versión de una solicitud se anexa a la partición de su mes; al cargar gana la última línea de cada folio
+    private static List<Solicitud> cargarSolicitudes(Map<String, CargaCSV.Resultado<Solicitud>> porMes) {
+
+        List<Solicitud> vigentes = new ArrayList<>();
+        porMes.forEach((mes, leidas) -> {
+
+            Map<String, Solicitud> porFolio = new LinkedHashMap<>();
+            for (Solicitud s : leidas.registros) porFolio.put(s.folio, s);
+            List<Solicitud> delMes = new ArrayList<>(porFolio.values());
+
+            if (leidas.registros.size() > 2 * delMes.size()) {
+                SnapshotBinario.invalidar(ARCHIVO_SNAPSHOT); // Sus offsets dejan de valer al reescribir la partición
+                guardarParticion(mes, delMes); // Compactación solo de ese mes
+            }
+            vigentes.addAll(delMes);
+        });
+        return vigentes;
+    }
+
+    private static void cargarTodo() {
+        cargarTodo(true);
+    }
+
+    // Sin snapshot nuevo al recargar por cambios de otro proceso: se está dentro de congelar()
+    private static void cargarTodo(boolean crearSnapshot) {
+
+        long inicio = System.nanoTime();
+        try {
+            particiones.cargar();
+        } catch (IOException e) {
+            sesion().err.println("⚠️ No se pudo leer el manifiesto de " + DIRECTORIO_DATOS + ": " + e.getMessage());
+        }
+        SnapshotBinario.Contenido snapshot = SnapshotBinario.leer(ARCHIVO_SNAPSHOT, particiones.directorio());
+
+        if (snapshot != null) {
+
+            // Snapshot + reproducción solo de lo que se anexó a los journals después de él
+            boolean usuariosVigentes = snapshot.selloUsuarios == SnapshotBinario.sello(ARCHIVO_USUARIOS);
+            ForkJoinTask<CargaCSV.Resultado<Usuario>> cargaUsuarios = usuariosVigentes ? null : iniciarCarga(ARCHIVO_USUARIOS, Usuario.class, 0);
+            Map<String, ForkJoinTask<CargaCSV.Resultado<Solicitud>>> cargasSolicitudes = iniciarCargas(Particiones.Journal.SOLICITUDES, Solicitud.class, snapshot);
+            Map<String, ForkJoinTask<CargaCSV.Resultado<Historial>>> cargasHistorial = repositorio.enDisco() != null ? Map.of()
+                    : iniciarCargas(Particiones.Journal.HISTORIAL, Historial.class, snapshot);
+
+            usuarios = new CopyOnWriteArrayList<>(usuariosVigentes ? snapshot.usuarios : terminarCarga(ARCHIVO_USUARIOS, cargaUsuarios).registros);
+
+            Map<String, Solicitud> porFolio = new LinkedHashMap<>();
+            for (Solicitud s : snapshot.solicitudes) porFolio.put(s.folio, s);
+            List<Solicitud> nuevasSolicitudes = new ArrayList<>();
+            for (CargaCSV.Resultado<Solicitud> r : terminarCargas(Particiones.Journal.SOLICITUDES, cargasSolicitudes).values()) nuevasSolicitudes.addAll(r.registros);
+            for (Solicitud s : nuevasSolicitudes) porFolio.put(s.folio, s);
+
+            List<Historial> nuevosEventos = new ArrayList<>();
+            for (CargaCSV.Resultado<Historial> r : terminarCargas(Particiones.Journal.HISTORIAL, cargasHistorial).values()) nuevosEventos.addAll(r.registros);
+
+            if (repositorio.enDisco() != null) {
+                repositorio.cargar(new ArrayList<>(porFolio.values()), List.of()); // El snapshot no lleva historial en este modo
+                cargarHistorialEnDisco();
+            } else {
+                repositorio.cargar(new ArrayList<>(porFolio.values()), snapshot.historial, nuevosEventos);
             }
+            eventosDesdeSnapshot.set(nuevasSolicitudes.size() + nuevosEventos.size());
+            sesion().out.printf("⏱️ Datos cargados desde snapshot en %d ms (%d líneas reproducidas del journal).%n",
+                    (System.nanoTime() - inicio) / 1_000_000, nuevasSolicitudes.size() + nuevosEventos.size());
+
+        } else {
 
-        } catch (IOException | IllegalArgumentException e) {
-            // Manejo silencioso: si el archivo no existe o está mal, devuelve lista vacía
+            ForkJoinTask<CargaCSV.Resultado<Usuario>> cargaUsuarios = iniciarCarga(ARCHIVO_USUARIOS, Usuario.class, 0);
+            Map<String, ForkJoinTask<CargaCSV.Resultado<Solicitud>>> cargasSolicitudes = iniciarCargas(Particiones.Journal.SOLICITUDES, Solicitud.class, null);
+            Map<String, ForkJoinTask<CargaCSV.Resultado<Historial>>> cargasHistorial = repositorio.enDisco() != null ? Map.of()
+                    : iniciarCargas(Particiones.Journal.HISTORIAL, Historial.class, null);
+
+            CargaCSV.Resultado<Usuario> leidosUsuarios = terminarCarga(ARCHIVO_USUARIOS, cargaUsuarios);
+            Map<String, CargaCSV.Resultado<Solicitud>> leidasSolicitudes = terminarCargas(Particiones.Journal.SOLICITUDES, cargasSolicitudes);
+            Map<String, CargaCSV.Resultado<Historial>> leidosEventos = terminarCargas(Particiones.Journal.HISTORIAL, cargasHistorial);
+
+            long renglones = leidosUsuarios.renglones;
+            List<Historial> eventos = new ArrayList<>();
+            for (CargaCSV.Resultado<Solicitud> r : leidasSolicitudes.values()) renglones += r.renglones;
+            for (CargaCSV.Resultado<Historial> r : leidosEventos.values()) {
+                renglones += r.renglones;
+                eventos.addAll(r.registros);
+            }
+            long nanosLectura = Math.max(1, System.nanoTime() - inicio);
+
+            usuarios = new CopyOnWriteArrayList<>(leidosUsuarios.registros);
+            repositorio.cargar(cargarSolicitudes(leidasSolicitudes), eventos);
+            if (repositorio.enDisco() != null) renglones += cargarHistorialEnDisco();
+            sesion().out.printf("⏱️ Datos cargados desde CSV en %d ms (%,d renglones leídos a %,d renglones/s).%n",
+                    (System.nanoTime() - inicio) / 1_000_000, renglones, renglones * 1_000_000_000L / nanosLectura);
+            if (crearSnapshot) escribirSnapshot();
         }
-        return lista;
+
+        archivo.cargar();
+        folios.sincronizar(repositorio.folios());
+        indexarTexto();
+        telemetria.registrar("cargarTodo", System.nanoTime() - inicio);
     }
 
-    private static void guardarLista(String archivo, List<?> lista) {
+    // Historial en disco: una partición a la vez, así nunca hay más de un mes de eventos en memoria
+    private static long cargarHistorialEnDisco() {
+
+        long renglones = 0;
+        for (String mes : particiones.meses()) {
+            String ruta = particiones.archivo(Particiones.Journal.HISTORIAL, mes).toString();
+            CargaCSV.Resultado<Historial> leidos = terminarCarga(ruta, CargaCSV.iniciar(ruta, 0, campos -> desdeCampos(campos, Historial.class), true));
+            repositorio.cargarMes(mes, leidos.registros, leidos.posiciones == null ? new long[0] : leidos.posiciones, leidos.bytes);
+            renglones += leidos.renglones;
+        }
+        return renglones;
+    }
+
+    // Mueve al archivo histórico las cerradas sin actividad en DIAS_PARA_ARCHIVAR días y compacta los journals
+    private static void archivarCerradas() {
+
+        if (DIAS_PARA_ARCHIVAR <= 0) return;
+
+        long limite = aEpoch(LocalDateTime.now().minusDays(DIAS_PARA_ARCHIVAR));
+        List<Solicitud> cerradas = repositorio.cerradasAntesDe(limite);
+        if (cerradas.isEmpty()) return;
 
-        try (PrintWriter pw = new PrintWriter(new FileWriter(archivo))) {
+        long inicio = System.nanoTime();
+        boolean[] archivadas = { false };
 
-            for (Object obj : lista) {
+        repositorio.congelar(() -> {
 
-                if (obj instanceof Usuario) pw.println(((Usuario) obj).toCSV());
-                else if (obj instanceof Solicitud) pw.println(((Solicitud) obj).toCSV());
-                else if (obj instanceof Historial) pw.println(((Historial) obj).toCSV());
+            if (!persistencia.vaciar()) return; // Los journals se reescriben: no puede quedar nada pendiente
+
+            List<ArchivoHistorico.Registro> registros = new ArrayList<>(cerradas.size());
+            List<String> foliosArchivados = new ArrayList<>(cerradas.size());
+            for (Solicitud s : cerradas) {
+                registros.add(new ArchivoHistorico.Registro(s, repositorio.historialDe(s.folio)));
+                foliosArchivados.add(s.folio);
+            }
+
+            try {
+                archivo.archivar(registros);
+            } catch (IOException e) {
+                sesion().err.println("❌ Error al archivar solicitudes cerradas: " + e.getMessage());
+                return;
+            }
+
+            repositorio.retirar(foliosArchivados);
+            SnapshotBinario.invalidar(ARCHIVO_SNAPSHOT);
+
+            // Solo se reescriben las particiones de los meses con folios archivados
+            Map<String, List<Solicitud>> solicitudesPorMes = new TreeMap<>();
+            for (String folio : foliosArchivados) solicitudesPorMes.put(Particiones.mes(folio), new ArrayList<>());
+            for (Solicitud s : repositorio.todas()) {
+                List<Solicitud> delMes = solicitudesPorMes.get(Particiones.mes(s.folio));
+                if (delMes != null) delMes.add(s);
+            }
+            solicitudesPorMes.forEach((mes, delMes) -> guardarParticion(mes, delMes));
+            for (String mes : solicitudesPorMes.keySet()) depurarHistorial(mes, new HashSet<>(foliosArchivados));
+            archivadas[0] = true;
+        });
+
+        if (!archivadas[0]) return;
+
+        indexarTexto();
+        escribirSnapshot();
+        telemetria.registrar("archivarCerradas", System.nanoTime() - inicio);
+        sesion().out.printf("📦 %d solicitudes cerradas archivadas (sin actividad desde %s) en %d ms.%n",
+                cerradas.size(), formatearFecha(limite).substring(0, 10), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    // Reescribe la partición de historial del mes sin los eventos de los folios archivados: se filtra el archivo
+    // renglón por renglón (el historial puede no estar en memoria, ver HistorialEnDisco)
+    private static void depurarHistorial(String mes, Set<String> archivados) {
+
+        Path ruta = particiones.archivo(Particiones.Journal.HISTORIAL, mes);
+        if (!Files.exists(ruta)) return;
+
+        long inicio = System.nanoTime();
+        try {
+            List<String> vigentes = new ArrayList<>();
+            String ultimoDia = "";
+            try (BufferedReader br = Files.newBufferedReader(ruta, StandardCharsets.UTF_8)) {
+                String linea;
+                while ((linea = br.readLine()) != null) {
+                    if (linea.isBlank() || archivados.contains(Particiones.folioDe(linea))) continue;
+                    vigentes.add(linea);
+                    String dia = Particiones.diaDe(linea);
+                    if (dia.compareTo(ultimoDia) > 0) ultimoDia = dia;
+                }
             }
+            PersistenciaDiferida.escribirAtomico(ruta.toString(), vigentes);
+            telemetria.registrar("guardarLista", System.nanoTime() - inicio, ruta.toFile().length());
 
+            if (compartido != null) compartido.reescrito(ruta.toString());
+            particiones.reescrito(mes, ultimoDia);
+            if (repositorio.enDisco() != null) repositorio.reindexarHistorial(mes);
         } catch (IOException e) {
-            System.err.println("❌ Error de persistencia en " + archivo + ": " + e.getMessage());
+            sesion().err.println("❌ Error de persistencia en " + ruta + ": " + e.getMessage());
         }
     }
 
-    private static void cargarTodo() {
-        usuarios = cargarDesdeCSV(ARCHIVO_USUARIOS, Usuario.class);
-        solicitudes = cargarDesdeCSV(ARCHIVO_SOLICITUDES, Solicitud.class);
-        historial = cargarDesdeCSV(ARCHIVO_HISTORIAL, Historial.class);
+    private static void indexarTexto() {
+
+        indiceTexto.limpiar();
+        for (Solicitud s : repositorio.todas()) indiceTexto.registrarSolicitud(s);
+        repositorio.recorrerHistorial((folio, eventos) -> {
+            for (int i = 0; i < eventos.tamano(); i++) {
+                if (eventos.tipo(i) == TipoEvento.COMENTARIO) indiceTexto.indexar(folio, eventos.detalle(i), IndiceTexto.PESO_TEXTO);
+            }
+        });
     }
 
-    private static void guardarTodo() {
-        guardarLista(ARCHIVO_USUARIOS, usuarios);
-        guardarLista(ARCHIVO_SOLICITUDES, solicitudes);
-        guardarLista(ARCHIVO_HISTORIAL, historial);
+    // Congela las escrituras, vacía los journals y vuelca el estado con los offsets alcanzados
+    @SuppressWarnings("try")
+    private static void escribirSnapshot() {
+
+        repositorio.congelar(() -> {
+
+            // Multiproceso: con la región del journal tomada y lo de los demás aplicado, los tamaños de los
+            // journals corresponden exactamente a lo que hay en memoria
+            try (AlmacenCompartido.Region region = compartido == null ? null : compartido.bloquearJournal()) {
+                if (compartido != null && refrescar() < 0) return;
+                if (!persistencia.vaciar()) return; // Con escrituras pendientes el snapshot no sería consistente
+
+                long inicio = System.nanoTime();
+                boolean enDisco = repositorio.enDisco() != null;
+                if (enDisco) repositorio.consolidarHistorial(); // Journals vaciados: los eventos recientes pasan al índice
+
+                // Con historial en disco el snapshot no lo lleva: sus particiones se indexan completas al cargar
+                Map<String, Long> longitudes = new TreeMap<>();
+                for (Particiones.Journal j : Particiones.Journal.values()) {
+                    if (enDisco && j == Particiones.Journal.HISTORIAL) continue;
+                    for (Path p : particiones.archivos(j)) longitudes.put(p.getFileName().toString(), p.toFile().length());
+                }
+                SnapshotBinario.escribir(ARCHIVO_SNAPSHOT, longitudes,
+                        SnapshotBinario.sello(ARCHIVO_USUARIOS), usuarios, repositorio.todas(),
+                        enDisco ? 0 : repositorio.totalHistorial(), enDisco ? Map.of() : repositorio.historialPorFolio());
+                eventosDesdeSnapshot.set(0);
+                telemetria.registrar("escribirSnapshot", System.nanoTime() - inicio, new File(ARCHIVO_SNAPSHOT).length());
+            } catch (IOException e) {
+                sesion().err.println("❌ Error al escribir el snapshot: " + e.getMessage());
+            }
+        });
+    }
+
+    private static void guardarSolicitud(Solicitud s) {
+        persistencia.registrarSolicitud(s.folio, s.toCSV());
     }
 
     private static void registrarHistorial(String folio, TipoEvento tipo, String detalle) {
-        Historial h = new Historial(folio, usuarioActual.username, tipo, detalle, DATE_FORMAT.format(new Date()));
-        historial.add(h);
-        guardarTodo();
+        Historial h = new Historial(folio, sesion().usuario.username, tipo, detalle, aEpoch(LocalDateTime.now()));
+        repositorio.agregarHistorial(h);
+        persistencia.registrarEvento(h.toCSV());
+        bus.publicar(h);
+        if (tipo == TipoEvento.COMENTARIO) indiceTexto.indexar(folio, detalle, IndiceTexto.PESO_TEXTO);
+
+        eventosDesdeSnapshot.incrementAndGet();
+        pedirSnapshot(); // Fuera del candado del folio: congelar() espera a que se libere
+    }
+
+    // Un snapshot a la vez. Si no se pudo escribir (E/S, journals pendientes, recarga de otro proceso) el contador no
+    // vuelve a cero y el siguiente evento lo pide otra vez.
+    private static void pedirSnapshot() {
+        if (eventosDesdeSnapshot.get() < EVENTOS_POR_SNAPSHOT || !snapshotEnCurso.compareAndSet(false, true)) return;
+        TAREAS_FONDO.execute(() -> {
+            try {
+                escribirSnapshot();
+            } finally {
+                snapshotEnCurso.set(false);
+            }
+        });
     }
 
     private static void crearSolicitud() {
 
-        if (usuarioActual.rol != Rol.SOLICITANTE) {
-            System.err.println("❌ ERROR: Solo los solicitantes pueden crear nuevas solicitudes.");
+        if (sesion().usuario.rol != Rol.SOLICITANTE) {
+            sesion().err.println("❌ ERROR: Solo los solicitantes pueden crear nuevas solicitudes.");
             return;
         }
 
-        System.out.println("\n--- REGISTRO DE NUEVA SOLICITUD (RF1) ---");
-        System.out.print("Ingrese el Título (Obligatorio - RF2): ");
-        String titulo = scanner.nextLine().trim();
+        sesion().out.println("\n--- REGISTRO DE NUEVA SOLICITUD (RF1) ---");
+        sesion().out.print("Ingrese el Título (Obligatorio - RF2): ");
+        String titulo = sesion().scanner.nextLine().trim();
 
         if (titulo.isEmpty()) {
-            System.err.println("❌ ERROR: El Título es obligatorio.");
+            sesion().err.println("❌ ERROR: El Título es obligatorio.");
             return;
         }
 
-        System.out.print("Ingrese la Descripción detallada: ");
-        String descripcion = scanner.nextLine().trim();
+        sesion().out.print("Ingrese la Descripción detallada: ");
+        String descripcion = sesion().scanner.nextLine().trim();
+
+        Solicitud nueva;
+        try {
+            nueva = registrarSolicitud(titulo, descripcion);
+        } catch (IllegalStateException e) {
+            sesion().err.println("⚠️ " + e.getMessage());
+            return;
+        }
+
+        sesion().out.println("\n✅ SOLICITUD REGISTRADA CON ÉXITO.");
+        sesion().out.println("   Folio Asignado (RF3): " + nueva.folio);
+    }
+
+    // Operaciones sin captura de datos: las usan los menús y el modo script (ModoScript)
+
+    @SuppressWarnings("try")
+    static Solicitud registrarSolicitud(String titulo, String descripcion) {
 
         String folio = generarFolio(); // RF3
-        String fecha = DATE_FORMAT.format(new Date());
+        Solicitud nueva = new Solicitud(folio, titulo, descripcion, sesion().usuario.username, Estado.RECIBIDA, aEpoch(LocalDateTime.now()));
 
-        Solicitud nueva = new Solicitud(folio, titulo, descripcion, usuarioActual.username, Estado.RECIBIDA, fecha);
-        solicitudes.add(nueva);
+        try (RepositorioSolicitudes.Bloqueo bloqueo = bloquearFolio(folio)) {
+            repositorio.agregarSolicitud(nueva);
+            guardarSolicitud(nueva);
+            indiceTexto.registrarSolicitud(nueva);
+            registrarHistorial(folio, TipoEvento.CREACION, "Solicitud creada. Estado inicial: RECIBIDA."); // RF7
+        }
+        return nueva;
+    }
 
-        registrarHistorial(folio, TipoEvento.CREACION, "Solicitud creada. Estado inicial: RECIBIDA."); // RF7
-        guardarTodo();
+    static Estado aplicarCambioEstado(Solicitud s, Estado nuevoEstado) {
+        return aplicarCambioEstado(s, nuevoEstado, -1);
+    }
+
+    // Devuelve el estado anterior, o null si ya estaba en el estado pedido. Con versionLeida >= 0 rechaza el
+    // cambio (IllegalStateException) si la solicitud cambió desde que el usuario la vio.
+    @SuppressWarnings("try")
+    static Estado aplicarCambioEstado(Solicitud s, Estado nuevoEstado, int versionLeida) {
+
+        try (RepositorioSolicitudes.Bloqueo bloqueo = bloquearFolio(s.folio)) {
+
+            verificarVersion(s, versionLeida);
+            Estado estadoAnterior = s.estado; // Otra sesión pudo cambiarlo mientras se capturaba la opción
+            if (estadoAnterior == nuevoEstado) return null;
 
-        System.out.println("\n✅ SOLICITUD REGISTRADA CON ÉXITO.");
-        System.out.println("   Folio Asignado (RF3): " + nueva.folio);
+            repositorio.cambiarEstado(s, nuevoEstado);
+            indiceTexto.actualizarEstado(s.folio, nuevoEstado);
+            guardarSolicitud(s);
+            registrarHistorial(s.folio, TipoEvento.CAMBIO_ESTADO, "Estado cambiado de " + estadoAnterior + " a " + nuevoEstado); // RF7
+            return estadoAnterior;
+        }
     }
 
-    private static void modificarSolicitudDetallada(Solicitud s) {
+    @SuppressWarnings("try")
+    static void registrarComentario(Solicitud s, String comentario) {
+        try (RepositorioSolicitudes.Bloqueo bloqueo = bloquearFolio(s.folio)) {
+            verificarVersion(s, -1);
+            registrarHistorial(s.folio, TipoEvento.COMENTARIO, comentario); // RF10, RF7
+        }
+    }
+
+    // Candado de un folio. En modo multiproceso además toma su región en el archivo de candados, aplica lo que
+    // anexaron los otros procesos y, al soltarlo, vacía los journals para que el siguiente proceso vea el cambio.
+    private static RepositorioSolicitudes.Bloqueo bloquearFolio(String folio) {
+
+        RepositorioSolicitudes.Bloqueo local = repositorio.bloquear(folio);
+        if (compartido == null) return local;
+
+        AlmacenCompartido.Region region;
+        try {
+            region = compartido.bloquearRegistro(folio);
+        } catch (IOException e) {
+            local.close();
+            throw new IllegalStateException("No se pudo bloquear el folio " + folio + ": " + e.getMessage());
+        }
+        if (refrescar() < 0) {
+            region.close();
+            local.close();
+            TAREAS_FONDO.execute(Main::recargarCompleto); // congelar() no puede tomarse con el candado del folio
+            throw new IllegalStateException("Otro proceso reorganizó los archivos; se están recargando los datos, intente de nuevo.");
+        }
+        return () -> {
+            try {
+                persistencia.vaciar();
+            } finally {
+                region.close();
+                local.close();
+            }
+        };
+    }
+
+    // Se llama con el candado del folio tomado. versionLeida < 0: solo verifica que la solicitud siga vigente
+    // (una recarga completa reemplaza los objetos)
+    private static void verificarVersion(Solicitud s, int versionLeida) {
+        repositorio.verificarVersion(s, versionLeida);
+    }
+
+    // Versión para el control optimista de cambios (ver RepositorioSolicitudes.version)
+    static int version(Solicitud s) {
+        return repositorio.version(s.folio);
+    }
 
-        System.out.println("\n** MODIFICAR TÍTULO/DESCRIPCIÓN DE FOLIO " + s.folio + " **");
+    // Modo multiproceso: aplica lo que otros procesos anexaron a los journals desde la última lectura. Devuelve
+    // los renglones aplicados, o -1 si otro proceso reescribió los journals (hay que usar recargarCompleto).
+    @SuppressWarnings("try")
+    static int refrescar() {
 
-        System.out.print("Nuevo Título (Actual: " + s.titulo + " - Dejar vacío para no cambiar): ");
-        String nuevoTitulo = scanner.nextLine().trim();
+        if (compartido == null) return 0;
 
-        if (!nuevoTitulo.isEmpty() && !s.titulo.equals(nuevoTitulo)) {
-            registrarHistorial(s.folio, TipoEvento.MODIFICACION_DATOS, "Título cambiado de '" + s.titulo + "' a '" + nuevoTitulo + "'");
-            s.titulo = nuevoTitulo;
+        long inicio = System.nanoTime();
+        try (AlmacenCompartido.Region region = compartido.bloquearJournal()) {
+
+            if (compartido.reescritoPorOtro()) return -1;
+
+            particiones.cargar(); // Meses que otro proceso haya abierto
+            List<String> solicitudes = new ArrayList<>(), eventos = new ArrayList<>();
+            for (Path p : particiones.archivos(Particiones.Journal.SOLICITUDES)) solicitudes.addAll(compartido.leerNuevas(p.toString()));
+            for (Path p : particiones.archivos(Particiones.Journal.HISTORIAL)) eventos.addAll(compartido.leerNuevas(p.toString()));
+            if (solicitudes.isEmpty() && eventos.isEmpty()) return 0;
+
+            // Primero las solicitudes: los eventos de un folio nuevo lo necesitan en el repositorio
+            for (String linea : solicitudes) {
+                try {
+                    Solicitud s = desdeCSV(linea, Solicitud.class);
+                    if (s != null) aplicarSolicitudAjena(s);
+                } catch (IllegalArgumentException e) {
+                    // Renglón mal formado: se omite como al cargar
+                }
+            }
+            for (String linea : eventos) {
+                try {
+                    Historial h = desdeCSV(linea, Historial.class);
+                    if (h == null) continue;
+                    repositorio.agregarHistorial(h);
+                    if (h.tipo == TipoEvento.COMENTARIO) indiceTexto.indexar(h.folio, h.detalle, IndiceTexto.PESO_TEXTO);
+                    bus.publicar(h);
+                } catch (IllegalArgumentException e) {
+                    // Renglón mal formado: se omite como al cargar
+                }
+            }
+            telemetria.registrar("refrescar", System.nanoTime() - inicio, solicitudes.size() + eventos.size());
+            return solicitudes.size() + eventos.size();
+
+        } catch (IOException e) {
+            sesion().err.println("❌ Error al leer los cambios de otros procesos: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static void aplicarSolicitudAjena(Solicitud nueva) {
+
+        Solicitud actual = repositorio.buscarPorFolio(nueva.folio);
+        if (actual == null) {
+            repositorio.agregarSolicitud(nueva);
+            indiceTexto.registrarSolicitud(nueva);
+            return;
         }
 
-        System.out.print("Nueva Descripción (Dejar vacío para no cambiar): ");
-        String nuevaDescripcion = scanner.nextLine().trim();
+        if (!actual.titulo.equals(nueva.titulo) || !actual.descripcion.equals(nueva.descripcion)) {
+            indiceTexto.reemplazar(actual.folio, actual.titulo, nueva.titulo, IndiceTexto.PESO_TITULO);
+            indiceTexto.reemplazar(actual.folio, actual.descripcion, nueva.descripcion, IndiceTexto.PESO_TEXTO);
+            actual.titulo = nueva.titulo;
+            actual.descripcion = nueva.descripcion;
+            repositorio.publicar(actual);
+        }
+        if (actual.estado != nueva.estado) {
+            repositorio.cambiarEstado(actual, nueva.estado);
+            indiceTexto.actualizarEstado(actual.folio, nueva.estado);
+        }
+    }
+
+    // Otro proceso reescribió los journals (compactación o archivo histórico): la cola ya no sirve y se recarga
+    // todo, congelado para que ninguna operación vea el repositorio a medias
+    @SuppressWarnings("try")
+    static void recargarCompleto() {
+
+        repositorio.congelar(() -> {
+            try (AlmacenCompartido.Region region = compartido.bloquearJournal()) {
+                if (!compartido.reescritoPorOtro()) return; // Ya lo recargó otro hilo
+                if (!persistencia.vaciar()) return; // Lo pendiente de este proceso va primero al journal
+                cargarTodo(false);
+                compartido.sincronizado(archivosJournal());
+            } catch (IOException e) {
+                sesion().err.println("❌ Error al recargar los datos: " + e.getMessage());
+            }
+        });
+    }
+
+    // Solo solicitudes en memoria (las archivadas son de consulta)
+    @SuppressWarnings("try")
+    static Solicitud buscarSolicitud(String folio) {
+        try (Telemetria.Medicion m = telemetria.medir("buscarPorFolio")) {
+            return repositorio.buscarPorFolio(folio);
+        }
+    }
+
+    static List<Solicitud> solicitudesDe(String username) {
+        return repositorio.solicitudesDe(username);
+    }
+
+    static List<String> foliosEnMemoria() {
+        return repositorio.folios();
+    }
+
+    static List<Historial> historialDe(String folio) {
+        return repositorio.historialDe(folio);
+    }
+
+    static RepositorioSolicitudes.PaginaHistorial paginaHistorial(String folio, int desde, int cantidad) {
+        return repositorio.paginaHistorial(folio, desde, cantidad);
+    }
 
-        if (!nuevaDescripcion.isEmpty() && !s.descripcion.equals(nuevaDescripcion)) {
-            registrarHistorial(s.folio, TipoEvento.MODIFICACION_DATOS, "Descripción actualizada.");
-            s.descripcion = nuevaDescripcion;
+    // Solicitud cerrada que ya pasó al archivo histórico (solo consulta), o null
+    @SuppressWarnings("try")
+    static ArchivoHistorico.Registro buscarArchivada(String folio) {
+        try (Telemetria.Medicion m = telemetria.medir("buscarEnArchivo")) {
+            return archivo.buscar(folio);
         }
+    }
+
+    // Menú y modo script; devuelve el nombre del archivo generado
+    static String escribirReporteDetallado(Solicitud s) throws IOException {
+        return escribirReporte(s.folio, out -> escribirReporteDetallado(s, out));
+    }
+
+    // Solicitud archivada: el historial es el que guardó el archivo histórico
+    static String escribirReporteDetallado(ArchivoHistorico.Registro r) throws IOException {
+        return escribirReporte(r.solicitud.folio, out -> {
+            escribirEncabezadoReporte(r.solicitud, out);
+            for (Historial h : r.historial) out.println(h.toReportString());
+        });
+    }
+
+    private static String escribirReporte(String folio, ReportePDFGenerator.ContenidoReporte contenido) throws IOException {
+
+        String nombreArchivo = "Reporte_" + folio + "_" + LocalDate.now().format(DAY_FORMAT) + ".pdf";
+        long inicio = System.nanoTime();
+        long bytes = ReportePDFGenerator.escribirPDF(nombreArchivo, contenido);
+        telemetria.registrar("reporteDetallado", System.nanoTime() - inicio, bytes);
+        return nombreArchivo;
+    }
+
+    // Devuelve los bytes escritos
+    static long escribirReporteDetallado(Solicitud s, String nombreArchivo) throws IOException {
+        return ReportePDFGenerator.escribirPDF(nombreArchivo, out -> escribirReporteDetallado(s, out));
+    }
+
+    static int[] conteoPorEstado() {
+        return repositorio.consultarMetricas(m -> {
+            int[] conteo = new int[Estado.values().length];
+            for (Estado e : Estado.values()) conteo[e.ordinal()] = m.porEstado(e) + archivo.archivadas(e);
+            return conteo;
+        });
+    }
+
+    // Lo mismo leyendo la vista de la API: sin el candado del repositorio
+    static int[] conteoPorEstadoVista() {
+        int[] conteo = repositorio.vista().porEstado();
+        for (Estado e : Estado.values()) conteo[e.ordinal()] += archivo.archivadas(e);
+        return conteo;
+    }
+
+    static VistaSolicitudes vista() {
+        return repositorio.vista();
+    }
+
+    static <T> T consultarAnalitica(Function<AnaliticaEstados, T> consulta) {
+        return repositorio.consultarAnalitica(consulta);
+    }
+
+    // Resumen de SLA que comparten el modo script y la API
+    static Map<String, Object> resumenSla() {
+        long ahora = aEpoch(LocalDateTime.now());
+        return consultarAnalitica(a -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("horas", HORAS_SLA);
+            m.put("fuera_de_sla", a.fueraDeSla(ahora, HORAS_SLA));
+            m.put("horas_prom_recibida", horas(a.promedioEstancia(Estado.RECIBIDA)));
+            m.put("horas_prom_en_proceso", horas(a.promedioEstancia(Estado.EN_PROCESO)));
+            m.put("horas_prom_resolucion", horas(a.promedioResolucion()));
+            return m;
+        });
+    }
+
+    private static Object horas(long segundos) {
+        return segundos < 0 ? null : Math.round(segundos / 36.0) / 100.0;
+    }
+
+    static boolean vaciarPersistencia() {
+        return persistencia.vaciar();
+    }
+
+    static Usuario autenticar(String user, String pass) {
+        return usuarios.stream()
+                .filter(u -> u.username.equals(user) && u.password.equals(pass))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @SuppressWarnings("try")
+    private static void modificarSolicitudDetallada(Solicitud s) {
 
-        guardarTodo();
-        System.out.println("✅ Solicitud " + s.folio + " actualizada.");
+        sesion().out.println("\n** MODIFICAR TÍTULO/DESCRIPCIÓN DE FOLIO " + s.folio + " **");
+        int version = version(s);
+
+        sesion().out.print("Nuevo Título (Actual: " + s.titulo + " - Dejar vacío para no cambiar): ");
+        String nuevoTitulo = sesion().scanner.nextLine().trim();
+
+        sesion().out.print("Nueva Descripción (Dejar vacío para no cambiar): ");
+        String nuevaDescripcion = sesion().scanner.nextLine().trim();
+
+        // Las entradas se leen antes de tomar el candado del folio para no bloquear otras sesiones
+        try (RepositorioSolicitudes.Bloqueo bloqueo = bloquearFolio(s.folio)) {
+
+            verificarVersion(s, version);
+            boolean modificada = false;
+
+            if (!nuevoTitulo.isEmpty() && !s.titulo.equals(nuevoTitulo)) {
+                registrarHistorial(s.folio, TipoEvento.MODIFICACION_DATOS, "Título cambiado de '" + s.titulo + "' a '" + nuevoTitulo + "'");
+                indiceTexto.reemplazar(s.folio, s.titulo, nuevoTitulo, IndiceTexto.PESO_TITULO);
+                s.titulo = nuevoTitulo;
+                modificada = true;
+            }
+
+            if (!nuevaDescripcion.isEmpty() && !s.descripcion.equals(nuevaDescripcion)) {
+                registrarHistorial(s.folio, TipoEvento.MODIFICACION_DATOS, "Descripción actualizada.");
+                indiceTexto.reemplazar(s.folio, s.descripcion, nuevaDescripcion, IndiceTexto.PESO_TEXTO);
+                s.descripcion = nuevaDescripcion;
+                modificada = true;
+            }
+
+            if (modificada) {
+                repositorio.publicar(s);
+                guardarSolicitud(s);
+            }
+        } catch (IllegalStateException e) {
+            sesion().err.println("⚠️ " + e.getMessage());
+            return;
+        }
+        sesion().out.println("✅ Solicitud " + s.folio + " actualizada.");
     }
 
     private static void cambiarEstadoSolicitud(Solicitud s) {
 
-        System.out.println("\n** CAMBIAR ESTADO **");
-        Estado estadoAnterior = s.estado;
-        System.out.println("Estado actual: " + estadoAnterior);
-        System.out.println("1. RECIBIDA | 2. EN_PROCESO | 3. COMPLETADA | 4. CANCELADA");
-        System.out.print("Ingrese el número del nuevo estado: ");
-        String opcionEstadoStr = scanner.nextLine();
+        sesion().out.println("\n** CAMBIAR ESTADO **");
+        int version = version(s);
+        sesion().out.println("Estado actual: " + s.estado);
+        sesion().out.println("1. RECIBIDA | 2. EN_PROCESO | 3. COMPLETADA | 4. CANCELADA");
+        sesion().out.print("Ingrese el número del nuevo estado: ");
+        String opcionEstadoStr = sesion().scanner.nextLine();
 
         try {
 
@@ -268,69 +1059,83 @@ public class Main {
                 case 2: nuevoEstado = Estado.EN_PROCESO; break;
                 case 3: nuevoEstado = Estado.COMPLETADA; break;
                 case 4: nuevoEstado = Estado.CANCELADA; break;
-                default: System.err.println("❌ Opción no válida."); return;
+                default: sesion().err.println("❌ Opción no válida."); return;
 
             }
 
-            if (estadoAnterior != nuevoEstado) {
-
-                s.estado = nuevoEstado;
-                registrarHistorial(s.folio, TipoEvento.CAMBIO_ESTADO, "Estado cambiado de " + estadoAnterior + " a " + nuevoEstado); // RF7
-                guardarTodo();
-                System.out.println("✅ Estado del Folio " + s.folio + " actualizado a: " + nuevoEstado);
-
+            if (aplicarCambioEstado(s, nuevoEstado, version) != null) {
+                sesion().out.println("✅ Estado del Folio " + s.folio + " actualizado a: " + nuevoEstado);
             } else {
-                System.out.println("El estado no ha cambiado.");
+                sesion().out.println("El estado no ha cambiado.");
             }
 
         } catch (NumberFormatException e) {
-            System.err.println("❌ Entrada inválida.");
+            sesion().err.println("❌ Entrada inválida.");
+        } catch (IllegalStateException e) {
+            sesion().err.println("⚠️ " + e.getMessage());
         }
     }
 
     private static void agregarComentario(Solicitud s) {
 
-        System.out.println("\n** AÑADIR COMENTARIO (RF10) **");
-        System.out.print("Ingrese el comentario/observación: ");
-        String comentario = scanner.nextLine().trim();
+        sesion().out.println("\n** AÑADIR COMENTARIO (RF10) **");
+        sesion().out.print("Ingrese el comentario/observación: ");
+        String comentario = sesion().scanner.nextLine().trim();
 
         if (!comentario.isEmpty()) {
-            registrarHistorial(s.folio, TipoEvento.COMENTARIO, comentario); // RF10, RF7
-            System.out.println("✅ Comentario añadido al historial.");
+            try {
+                registrarComentario(s, comentario);
+            } catch (IllegalStateException e) {
+                sesion().err.println("⚠️ " + e.getMessage());
+                return;
+            }
+            sesion().out.println("✅ Comentario añadido al historial.");
 
         } else {
-            System.out.println("Comentario vacío. Cancelado.");
+            sesion().out.println("Comentario vacío. Cancelado.");
         }
     }
 
     private static void buscarGestionarSolicitud(boolean puedeEditar) {
 
-        System.out.println("\n--- BÚSQUEDA Y GESTIÓN DE SOLICITUDES POR FOLIO ---");
-        System.out.print("Ingrese el Folio de la Solicitud (Ej: CFE-12345): ");
-        String folioBuscado = scanner.nextLine().trim().toUpperCase();
+        sesion().out.println("\n--- BÚSQUEDA Y GESTIÓN DE SOLICITUDES POR FOLIO ---");
+        sesion().out.print("Ingrese el Folio de la Solicitud (Ej: CFE-12345): ");
+        String folioBuscado = sesion().scanner.nextLine().trim().toUpperCase();
 
-        Solicitud s = solicitudes.stream()
-                .filter(sol -> sol.folio.equals(folioBuscado))
-                .findFirst()
-                .orElse(null);
+        Solicitud s = buscarSolicitud(folioBuscado);
+
+        List<Historial> historialArchivado = null;
+        if (s == null) {
+            ArchivoHistorico.Registro r = buscarArchivada(folioBuscado);
+            if (r != null) {
+                s = r.solicitud;
+                historialArchivado = r.historial;
+            }
+        }
 
         if (s == null) {
-            System.err.println("❌ ERROR: Folio '" + folioBuscado + "' no encontrado.");
+            sesion().err.println("❌ ERROR: Folio '" + folioBuscado + "' no encontrado.");
             return;
         }
 
-        if (usuarioActual.rol == Rol.SOLICITANTE && !s.solicitanteUsername.equals(usuarioActual.username) && !puedeEditar) {
-            System.err.println("❌ ACCESO DENEGADO: Solo puede consultar sus propias solicitudes.");
+        if (sesion().usuario.rol == Rol.SOLICITANTE && !s.solicitanteUsername.equals(sesion().usuario.username) && !puedeEditar) {
+            sesion().err.println("❌ ACCESO DENEGADO: Solo puede consultar sus propias solicitudes.");
             return;
         }
 
-        System.out.println("\n✅ DETALLE DEL FOLIO " + s.folio + ":");
-        System.out.println("  Folio: " + s.folio);
-        System.out.println("  Solicitante: " + s.solicitanteUsername);
-        System.out.println("  Fecha Creación: " + s.fechaCreacion);
-        System.out.println("  Título: " + s.titulo);
-        System.out.println("  Descripción: " + s.descripcion);
-        System.out.println("  Estado Actual: " + s.estado.name());
+        sesion().out.println("\n✅ DETALLE DEL FOLIO " + s.folio + ":");
+        sesion().out.println("  Folio: " + s.folio);
+        sesion().out.println("  Solicitante: " + s.solicitanteUsername);
+        sesion().out.println("  Fecha Creación: " + formatearFecha(s.fechaCreacion));
+        sesion().out.println("  Título: " + s.titulo);
+        sesion().out.println("  Descripción: " + s.descripcion);
+        sesion().out.println("  Estado Actual: " + s.estado.name());
+
+        if (historialArchivado != null) {
+            imprimirHistorial(historialArchivado);
+            sesion().out.println("📦 Solicitud archivada (cerrada): solo consulta.");
+            return;
+        }
 
         mostrarHistorial(s.folio); // RF14
 
@@ -338,14 +1143,14 @@ public class Main {
 
         while (true) {
 
-            System.out.println("\n--- ACCIONES DE GESTIÓN (RESPONSABLE/ADMIN) ---");
-            System.out.println("1. Modificar Título/Descripción");
-            System.out.println("2. Cambiar Estado (RF6)");
-            System.out.println("3. Agregar Comentario/Observación (RF10)");
-            System.out.println("4. Generar Reporte PDF de Solicitud (RF16)");
-            System.out.println("5. Volver");
-            System.out.print("Seleccione una opción: ");
-            String opcion = scanner.nextLine();
+            sesion().out.println("\n--- ACCIONES DE GESTIÓN (RESPONSABLE/ADMIN) ---");
+            sesion().out.println("1. Modificar Título/Descripción");
+            sesion().out.println("2. Cambiar Estado (RF6)");
+            sesion().out.println("3. Agregar Comentario/Observación (RF10)");
+            sesion().out.println("4. Generar Reporte PDF de Solicitud (RF16)");
+            sesion().out.println("5. Volver");
+            sesion().out.print("Seleccione una opción: ");
+            String opcion = sesion().scanner.nextLine();
 
             switch (opcion) {
                 case "1": modificarSolicitudDetallada(s); break;
@@ -353,67 +1158,468 @@ public class Main {
                 case "3": agregarComentario(s); break;
                 case "4": generarReporteDetalladoPDF(s); break;
                 case "5": return;
-                default: System.err.println("Opción no válida.");
+                default: sesion().err.println("Opción no válida.");
+            }
+        }
+    }
+
+    private static void buscarPorTexto() {
+
+        sesion().out.println("\n--- BÚSQUEDA DE SOLICITUDES POR TEXTO ---");
+        sesion().out.print("Palabras a buscar (título, descripción y comentarios): ");
+        String consulta = sesion().scanner.nextLine().trim();
+
+        if (IndiceTexto.tokenizar(consulta).isEmpty()) {
+            sesion().err.println("❌ ERROR: Ingrese al menos una palabra significativa.");
+            return;
+        }
+
+        sesion().out.print("Filtrar por Estado [1: RECIBIDA, 2: EN_PROCESO, 3: COMPLETADA, 4: CANCELADA, Enter: todos]: ");
+        String opcionEstado = sesion().scanner.nextLine().trim();
+        Estado estado = null;
+
+        if (!opcionEstado.isEmpty()) {
+            switch (opcionEstado) {
+                case "1": estado = Estado.RECIBIDA; break;
+                case "2": estado = Estado.EN_PROCESO; break;
+                case "3": estado = Estado.COMPLETADA; break;
+                case "4": estado = Estado.CANCELADA; break;
+                default: sesion().err.println("❌ Opción no válida."); return;
             }
         }
+
+        sesion().out.print("Filtrar por Solicitante (Enter: todos): ");
+        String solicitante = sesion().scanner.nextLine().trim().toLowerCase();
+
+        final int TAMANO_PAGINA = 10;
+        int pagina = 0;
+
+        while (true) {
+
+            IndiceTexto.Pagina p = indiceTexto.buscar(consulta, estado, solicitante.isEmpty() ? null : solicitante, pagina, TAMANO_PAGINA);
+            telemetria.registrar("buscarPorTexto", p.microsegundos * 1_000);
+            int totalPaginas = Math.max(1, (p.totalCoincidencias + TAMANO_PAGINA - 1) / TAMANO_PAGINA);
+
+            sesion().out.printf("%nCoincidencias: %d | Página %d de %d | %d µs%n", p.totalCoincidencias, pagina + 1, totalPaginas, p.microsegundos);
+
+            if (p.resultados.isEmpty()) {
+                sesion().out.println("➡️ Sin resultados.");
+                return;
+            }
+
+            for (IndiceTexto.Resultado r : p.resultados) {
+                Solicitud s = repositorio.buscarPorFolio(r.folio);
+                if (s != null) sesion().out.printf("[%6.2f] %s%n", r.puntaje, s);
+            }
+
+            sesion().out.print("S: Siguiente página | A: Anterior | Enter: Volver: ");
+            String accion = sesion().scanner.nextLine().trim().toUpperCase();
+
+            if (accion.equals("S") && pagina + 1 < totalPaginas) pagina++;
+            else if (accion.equals("A") && pagina > 0) pagina--;
+            else if (accion.isEmpty()) return;
+        }
     }
 
+    @SuppressWarnings("try")
     private static void mostrarHistorial(String folio) {
 
-        System.out.println("\n--- HISTORIAL DE CAMBIOS (RF7, RF14) ---");
-        List<Historial> hList = historial.stream()
-                .filter(h -> h.folio.equals(folio))
-                .sorted(Comparator.comparing(h -> h.fecha))
-                .collect(Collectors.toList());
+        try (Telemetria.Medicion m = telemetria.medir("mostrarHistorial")) {
+            imprimirHistorial(repositorio.historialDe(folio));
+        }
+    }
+
+    private static void imprimirHistorial(List<Historial> hList) {
+
+        sesion().out.println("\n--- HISTORIAL DE CAMBIOS (RF7, RF14) ---");
 
         if (hList.isEmpty()) {
-            System.out.println("➡️ Sin registros en el historial.");
+            sesion().out.println("➡️ Sin registros en el historial.");
             return;
         }
 
-        hList.forEach(h -> System.out.println(h.toReportString()));
-        System.out.println("----------------------------------------");
+        hList.forEach(h -> sesion().out.println(h.toReportString()));
+        sesion().out.println("----------------------------------------");
     }
 
     private static void generarReporteDetalladoPDF(Solicitud s) {
 
-        System.out.println("\n** GENERANDO REPORTE DETALLADO (PDF) **");
-        StringBuilder sb = new StringBuilder();
+        sesion().out.println("\n** GENERANDO REPORTE DETALLADO (PDF) **");
 
-        sb.append("REPORTE DETALLADO DE SOLICITUD\n");
-        sb.append("FOLIO: ").append(s.folio).append("\n");
-        sb.append("SOLICITANTE: ").append(s.solicitanteUsername).append("\n");
-        sb.append("ESTADO: ").append(s.estado).append("\n");
-        sb.append("TÍTULO: ").append(s.titulo).append("\n");
-        sb.append("DESCRIPCIÓN:\n").append(s.descripcion).append("\n\n");
+        try {
+            String nombreArchivo = escribirReporteDetallado(s);
+            sesion().out.println("✅ Reporte PDF generado en: " + nombreArchivo);
+        } catch (IOException e) {
+            sesion().err.println("❌ Error al generar el PDF: " + e.getMessage());
+        }
+    }
 
-        sb.append("HISTORIAL DE EVENTOS:\n");
-        historial.stream()
-                .filter(h -> h.folio.equals(s.folio))
-                .sorted(Comparator.comparing(h -> h.fecha))
-                .forEach(h -> sb.append(h.toReportString()).append("\n"));
+    static void escribirReporteDetallado(Solicitud s, PrintWriter out) {
 
-        String nombreArchivo = "Reporte_" + s.folio + "_" + new SimpleDateFormat("yyyyMMdd").format(new Date()) + ".pdf";
-        ReportePDFGenerator.generarPDF(nombreArchivo, sb.toString());
+        escribirEncabezadoReporte(s, out);
+        // Por bloques: un folio con decenas de miles de eventos no se materializa completo
+        for (int desde = 0; ; desde += EVENTOS_POR_BLOQUE) {
+            List<Historial> bloque = repositorio.historialDe(s.folio, desde, EVENTOS_POR_BLOQUE);
+            for (Historial h : bloque) out.println(h.toReportString());
+            if (bloque.size() < EVENTOS_POR_BLOQUE) break;
+        }
     }
 
+    private static void escribirEncabezadoReporte(Solicitud s, PrintWriter out) {
+
+        out.println("REPORTE DETALLADO DE SOLICITUD");
+        out.println("FOLIO: " + s.folio);
+        out.println("SOLICITANTE: " + s.solicitanteUsername);
+        out.println("ESTADO: " + s.estado);
+        out.println("TÍTULO: " + s.titulo);
+        out.println("DESCRIPCIÓN:");
+        out.println(s.descripcion);
+        out.println();
+
+        out.println("HISTORIAL DE EVENTOS:");
+    }
+
+    private static void generarReportesMasivos() {
+
+        sesion().out.println("\n--- GENERACIÓN MASIVA DE REPORTES (AUDITORÍA RF16) ---");
+        sesion().out.print("Fecha de creación desde (yyyy-MM-dd, Enter: sin límite): ");
+        String desde = sesion().scanner.nextLine().trim();
+        sesion().out.print("Fecha de creación hasta (yyyy-MM-dd, Enter: sin límite): ");
+        String hasta = sesion().scanner.nextLine().trim();
+
+        try {
+            if (!desde.isEmpty()) LocalDate.parse(desde);
+            if (!hasta.isEmpty()) LocalDate.parse(hasta);
+        } catch (DateTimeParseException e) {
+            sesion().err.println("❌ Fecha inválida, use el formato yyyy-MM-dd.");
+            return;
+        }
+
+        sesion().out.print("Estado [1: RECIBIDA, 2: EN_PROCESO, 3: COMPLETADA, 4: CANCELADA, Enter: todos]: ");
+        String opcionEstado = sesion().scanner.nextLine().trim();
+        Estado estado = null;
+
+        if (!opcionEstado.isEmpty()) {
+            switch (opcionEstado) {
+                case "1": estado = Estado.RECIBIDA; break;
+                case "2": estado = Estado.EN_PROCESO; break;
+                case "3": estado = Estado.COMPLETADA; break;
+                case "4": estado = Estado.CANCELADA; break;
+                default: sesion().err.println("❌ Opción no válida."); return;
+            }
+        }
+
+        sesion().out.print("Solicitante (Enter: todos): ");
+        String solicitante = sesion().scanner.nextLine().trim().toLowerCase();
+
+        // Rango de días como segundos epoch: [desde 00:00:00, hasta+1 00:00:00)
+        long minimo = desde.isEmpty() ? Long.MIN_VALUE : aEpoch(LocalDate.parse(desde).atStartOfDay());
+        long maximo = hasta.isEmpty() ? Long.MAX_VALUE : aEpoch(LocalDate.parse(hasta).plusDays(1).atStartOfDay());
+
+        List<Solicitud> seleccion = new ArrayList<>();
+        for (Solicitud s : solicitante.isEmpty() ? repositorio.todas() : repositorio.solicitudesDe(solicitante)) {
+            if (s.fechaCreacion < minimo || s.fechaCreacion >= maximo) continue;
+            if (estado != null && s.estado != estado) continue;
+            seleccion.add(s);
+        }
+
+        if (seleccion.isEmpty()) {
+            sesion().out.println("➡️ Ninguna solicitud coincide con el filtro.");
+            return;
+        }
+
+        File directorio = new File("Reportes_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")));
+        if (!directorio.mkdirs()) {
+            sesion().err.println("❌ No se pudo crear el directorio " + directorio);
+            return;
+        }
+
+        sesion().out.println("Generando " + seleccion.size() + " reportes en " + directorio + " ...");
+        ReportesMasivos.Resumen r = ReportesMasivos.generar(seleccion, directorio, Main::escribirReporteDetallado);
+        telemetria.registrar("reportesMasivos", r.nanos, r.bytes);
+
+        double segundos = r.nanos / 1e9;
+        sesion().out.printf("✅ %d reportes generados (%d errores) en %.2f s | %.1f reportes/s | %.2f MB/s%n",
+                r.reportes, r.errores, segundos, r.reportes / segundos, r.bytes / 1_048_576.0 / segundos);
+    }
+
+    private static void importarSolicitudes() {
+
+        sesion().out.println("\n--- IMPORTACIÓN MASIVA DE SOLICITUDES ---");
+        sesion().out.println("CSV:        S;titulo;descripcion;solicitante;estado;fecha  y debajo sus eventos  H;usuario;tipo;detalle;fecha");
+        sesion().out.println("JSON-lines: {\"titulo\":...,\"solicitante\":...,\"historial\":[{\"usuario\":...,\"tipo\":...,\"fecha\":...}]}");
+        sesion().out.print("Ruta del archivo: ");
+        String ruta = sesion().scanner.nextLine().trim();
+
+        if (!new File(ruta).isFile()) {
+            sesion().err.println("❌ No existe el archivo " + ruta);
+            return;
+        }
+
+        ImportacionMasiva.Lote lote;
+        try {
+            lote = validarImportacion(ruta);
+        } catch (IOException e) {
+            sesion().err.println("❌ Error al leer " + ruta + ": " + e.getMessage());
+            return;
+        }
+
+        sesion().out.printf("Registros válidos: %d (%d eventos) | Rechazados: %d%n", lote.validos.size(), lote.eventos, lote.rechazados.size());
+        if (!lote.rechazados.isEmpty()) {
+            lote.rechazados.stream().limit(10).forEach(r -> sesion().err.println("   Línea " + r.linea + ": " + r.error));
+            String archivoRechazos = ruta + ".rechazados.txt";
+            List<String> lineas = new ArrayList<>();
+            for (ImportacionMasiva.Registro r : lote.rechazados) lineas.add("Línea " + r.linea + ": " + r.error);
+            try {
+                PersistenciaDiferida.escribirAtomico(archivoRechazos, lineas);
+                sesion().err.println("⚠️ Detalle de los rechazados en " + archivoRechazos);
+            } catch (IOException e) {
+                sesion().err.println("❌ No se pudo escribir " + archivoRechazos + ": " + e.getMessage());
+            }
+        }
+        if (lote.validos.isEmpty()) return;
+
+        sesion().out.print("¿Importar los " + lote.validos.size() + " registros válidos? (S/N): ");
+        if (!sesion().scanner.nextLine().trim().equalsIgnoreCase("S")) return;
+
+        long inicio = System.nanoTime();
+        if (!confirmarImportacion(lote)) {
+            sesion().err.println("⚠️ Los registros quedaron en memoria pero su escritura a los CSV quedó pendiente (se reintentará).");
+        }
+        long confirmacion = System.nanoTime() - inicio;
+
+        long total = lote.nanosLectura + lote.nanosValidacion + confirmacion;
+        telemetria.registrar("importacionMasiva", total, lote.bytes);
+
+        double segundos = total / 1e9;
+        sesion().out.printf("✅ %d solicitudes y %d eventos importados en %.2f s (lectura %d ms | validación %d ms | confirmación %d ms)%n",
+                lote.validos.size(), lote.eventos, segundos, lote.nanosLectura / 1_000_000, lote.nanosValidacion / 1_000_000, confirmacion / 1_000_000);
+        sesion().out.printf("   %.0f solicitudes/s | %.0f eventos/s | %.2f MB/s%n",
+                lote.validos.size() / segundos, lote.eventos / segundos, lote.bytes / 1_048_576.0 / segundos);
+    }
+
+    static ImportacionMasiva.Lote validarImportacion(String ruta) throws IOException {
+
+        Set<String> solicitantes = new HashSet<>();
+        Set<String> autores = new HashSet<>();
+        for (Usuario u : usuarios) {
+            autores.add(u.username);
+            if (u.rol == Rol.SOLICITANTE) solicitantes.add(u.username);
+        }
+        return ImportacionMasiva.validar(ruta, solicitantes, autores);
+    }
+
+    // Folios en un solo bloque y un solo vaciado a los journals para todo el lote. Devuelve false si la
+    // escritura falló y quedó pendiente en la persistencia diferida.
+    static boolean confirmarImportacion(ImportacionMasiva.Lote lote) {
+
+        GeneradorFolios.BloqueFolios bloque = folios.reservarBloque(lote.validos.size());
+
+        List<Solicitud> solicitudes = new ArrayList<>(lote.validos.size());
+        List<Historial> eventos = new ArrayList<>(lote.eventos);
+        Map<String, String> lineasSolicitudes = new LinkedHashMap<>();
+        List<String> lineasEventos = new ArrayList<>(lote.eventos);
+
+        for (ImportacionMasiva.Registro r : lote.validos) {
+            String folio = bloque.siguiente(); // RF3
+            r.solicitud.folio = folio;
+            solicitudes.add(r.solicitud);
+            lineasSolicitudes.put(folio, r.solicitud.toCSV());
+            for (Historial h : r.historial) {
+                h.folio = folio;
+                eventos.add(h);
+                lineasEventos.add(h.toCSV());
+            }
+        }
+
+        // Congelado: un snapshot nunca ve el lote en memoria sin sus líneas en el journal
+        boolean[] escrito = { false };
+        repositorio.congelar(() -> {
+            repositorio.agregarLote(solicitudes, eventos);
+            escrito[0] = persistencia.registrarLote(lineasSolicitudes, lineasEventos);
+        });
+
+        for (Solicitud s : solicitudes) indiceTexto.registrarSolicitud(s);
+        for (Historial h : eventos) {
+            if (h.tipo == TipoEvento.COMENTARIO) indiceTexto.indexar(h.folio, h.detalle, IndiceTexto.PESO_TEXTO);
+        }
+
+        eventosDesdeSnapshot.addAndGet(solicitudes.size() + eventos.size());
+        pedirSnapshot();
+        return escrito[0];
+    }
+
+    @SuppressWarnings("try")
     private static void generarReporteMetricas(boolean exportarPDF) {
 
-        long totalPendientes = solicitudes.stream().filter(s -> s.estado != Estado.COMPLETADA && s.estado != Estado.CANCELADA).count();
-        long totalCompletadas = solicitudes.stream().filter(s -> s.estado == Estado.COMPLETADA).count();
+        try (Telemetria.Medicion m = telemetria.medir("reporteMetricas")) {
+
+            String contenido = repositorio.consultarMetricas(Main::formatearMetricas)
+                    + repositorio.consultarAnalitica(a -> formatearAnalitica(a, aEpoch(LocalDateTime.now())));
+
+            if (exportarPDF) {
+                String nombreArchivo = "ReporteMetricas_" + LocalDate.now().format(DAY_FORMAT) + ".pdf";
+                ReportePDFGenerator.generarPDF(nombreArchivo, contenido);
+            } else {
+                sesion().out.println(contenido);
+            }
+        }
+    }
+
+    // Vista en vivo de la telemetría: se vuelve a leer en cada Enter
+    private static void mostrarTelemetria() {
+
+        while (true) {
+            sesion().out.println();
+            sesion().out.print(telemetria.formatear());
+            sesion().out.print("[Enter: actualizar | S: salir]: ");
+            if (sesion().scanner.nextLine().trim().equalsIgnoreCase("S")) return;
+        }
+    }
+
+    private static String formatearMetricas(MetricasSolicitudes m) {
 
         StringBuilder sb = new StringBuilder();
         sb.append("--- REPORTE DE MÉTRICAS (RF15) ---\n");
-        sb.append("Total Solicitudes Registradas: ").append(solicitudes.size()).append("\n");
-        sb.append("Solicitudes Pendientes/En Proceso: ").append(totalPendientes).append("\n");
-        sb.append("Solicitudes Completadas: ").append(totalCompletadas).append("\n");
+        // Las archivadas ya no están en memoria pero siguen contando en los totales
+        sb.append("Total Solicitudes Registradas: ").append(m.total() + archivo.totalArchivadas()).append("\n");
+        sb.append("Solicitudes Pendientes/En Proceso: ").append(m.pendientes()).append("\n");
+        sb.append("Solicitudes Completadas: ").append(m.porEstado(Estado.COMPLETADA) + archivo.archivadas(Estado.COMPLETADA)).append("\n");
+        sb.append("Solicitudes Archivadas: ").append(archivo.totalArchivadas()).append("\n");
+        sb.append("---------------------------------\n");
+        sb.append("Backlog por Estado:\n");
+        for (Estado e : Estado.values()) {
+            sb.append(String.format("  %-12s %d%n", e.name(), m.porEstado(e) + archivo.archivadas(e)));
+        }
+        sb.append("Últimos 7 días (por fecha de folio):\n");
+        m.ultimosDias(7).forEach((dia, c) -> sb.append(String.format("  %s  Recibidas: %d | En Proceso: %d | Completadas: %d | Canceladas: %d%n",
+                dia, c[Estado.RECIBIDA.ordinal()], c[Estado.EN_PROCESO.ordinal()], c[Estado.COMPLETADA.ordinal()], c[Estado.CANCELADA.ordinal()])));
         sb.append("---------------------------------\n");
+        return sb.toString();
+    }
 
-        if (exportarPDF) {
-            String nombreArchivo = "ReporteMetricas_" + new SimpleDateFormat("yyyyMMdd").format(new Date()) + ".pdf";
-            ReportePDFGenerator.generarPDF(nombreArchivo, sb.toString());
-        } else {
-            System.out.println(sb.toString());
+    // Sobre las solicitudes en memoria (las archivadas no cuentan en los tiempos)
+    private static String formatearAnalitica(AnaliticaEstados a, long ahora) {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Tiempo en estado (promedio):\n");
+        for (Estado e : new Estado[] { Estado.RECIBIDA, Estado.EN_PROCESO }) {
+            sb.append(String.format("  %-12s Terminadas: %-12s (%d) | Actuales: %-12s (%d)%n", e.name(),
+                    formatearDuracion(a.promedioEstancia(e)), a.estancias(e), formatearDuracion(a.promedioActual(e, ahora)), a.residentes(e)));
+        }
+        sb.append(String.format("  Creación a COMPLETADA: %s (%d)%n", formatearDuracion(a.promedioResolucion()), a.resueltas()));
+
+        sb.append("Antigüedad de pendientes (SLA ").append(HORAS_SLA).append(" h, fuera de SLA: ")
+                .append(a.fueraDeSla(ahora, HORAS_SLA)).append("):\n");
+        a.antiguedadPendientes(ahora).forEach((rango, c) -> sb.append(String.format("  %-10s Recibidas: %d | En Proceso: %d%n",
+                rango, c[Estado.RECIBIDA.ordinal()], c[Estado.EN_PROCESO.ordinal()])));
+
+        sb.append("Productividad por responsable:\n");
+        a.porResponsable(10).forEach((usuario, r) -> sb.append(String.format("  %-18s Completadas: %d | Canceladas: %d | Cambios: %d | Comentarios: %d | Resolución prom.: %s%s%n",
+                usuario, r[AnaliticaEstados.COMPLETADAS], r[AnaliticaEstados.CANCELADAS], r[AnaliticaEstados.CAMBIOS], r[AnaliticaEstados.COMENTARIOS],
+                formatearDuracion(r[AnaliticaEstados.COMPLETADAS] == 0 ? -1 : r[AnaliticaEstados.SEGUNDOS_RESOLUCION] / r[AnaliticaEstados.COMPLETADAS]),
+                usuario.equals(sesion().usuario == null ? null : sesion().usuario.username) ? "  <- usted" : "")));
+        sb.append("---------------------------------\n");
+        return sb.toString();
+    }
+
+    static String formatearDuracion(long segundos) {
+        if (segundos < 0) return "sin datos";
+        return String.format("%dd %02dh %02dm", segundos / 86_400, segundos % 86_400 / 3_600, segundos % 3_600 / 60);
+    }
+
+    // Acceso a datos CSV (Auditoría): consulta en streaming sobre los archivos, sin cargarlos en memoria
+    @SuppressWarnings("try")
+    private static void consultarAuditoriaCSV() {
+
+        sesion().out.println("\n--- ACCESO A DATOS CSV (AUDITORÍA) ---");
+        sesion().out.print("Fuente [1: Historial de eventos, 2: Solicitudes (cada versión guardada)]: ");
+        ConsultaAuditoria.Filtro filtro = new ConsultaAuditoria.Filtro();
+        switch (sesion().scanner.nextLine().trim()) {
+            case "1": filtro.tipo = ConsultaAuditoria.Tipo.HISTORIAL; break;
+            case "2": filtro.tipo = ConsultaAuditoria.Tipo.SOLICITUDES; break;
+            default: sesion().err.println("❌ Opción no válida."); return;
+        }
+
+        sesion().out.print("Folio (Enter: todos): ");
+        String folio = sesion().scanner.nextLine().trim().toUpperCase();
+        filtro.folio = folio.isEmpty() ? null : folio;
+
+        sesion().out.print(filtro.tipo == ConsultaAuditoria.Tipo.HISTORIAL ? "Usuario que registró el evento (Enter: todos): " : "Solicitante (Enter: todos): ");
+        String usuario = sesion().scanner.nextLine().trim().toLowerCase();
+        filtro.usuario = usuario.isEmpty() ? null : usuario;
+
+        try {
+            if (filtro.tipo == ConsultaAuditoria.Tipo.HISTORIAL) {
+                sesion().out.print("Tipo de evento [1: CAMBIO_ESTADO, 2: COMENTARIO, 3: MODIFICACION_DATOS, 4: CREACION, Enter: todos]: ");
+                String opcion = sesion().scanner.nextLine().trim();
+                if (!opcion.isEmpty()) filtro.evento = TipoEvento.values()[Integer.parseInt(opcion) - 1];
+            } else {
+                sesion().out.print("Estado [1: RECIBIDA, 2: EN_PROCESO, 3: COMPLETADA, 4: CANCELADA, Enter: todos]: ");
+                String opcion = sesion().scanner.nextLine().trim();
+                if (!opcion.isEmpty()) filtro.estado = Estado.values()[Integer.parseInt(opcion) - 1];
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            sesion().err.println("❌ Opción no válida.");
+            return;
+        }
+
+        sesion().out.print("Fecha desde (yyyy-MM-dd, Enter: sin límite): ");
+        String desde = sesion().scanner.nextLine().trim();
+        sesion().out.print("Fecha hasta (yyyy-MM-dd, Enter: sin límite): ");
+        String hasta = sesion().scanner.nextLine().trim();
+        try {
+            if (!desde.isEmpty()) filtro.desde = LocalDate.parse(desde).toString();
+            if (!hasta.isEmpty()) filtro.hasta = LocalDate.parse(hasta).toString();
+        } catch (DateTimeParseException e) {
+            sesion().err.println("❌ Fecha inválida, use el formato yyyy-MM-dd.");
+            return;
+        }
+
+        String[] disponibles = filtro.columnasDisponibles();
+        sesion().out.print("Columnas " + Arrays.toString(disponibles) + " separadas por coma (Enter: todas): ");
+        try {
+            filtro.columnas = ConsultaAuditoria.columnas(sesion().scanner.nextLine(), filtro.tipo);
+        } catch (IllegalArgumentException e) {
+            sesion().err.println("❌ " + e.getMessage());
+            return;
+        }
+
+        sesion().out.print("Cursor de una consulta anterior (Enter: desde el inicio): ");
+        String cursor = sesion().scanner.nextLine().trim();
+        if (cursor.isEmpty()) cursor = null;
+
+        persistencia.vaciar(); // Que los cambios aún en memoria también estén en disco
+
+        final int TAMANO_PAGINA = 20;
+        String[] encabezado = new String[filtro.columnas == null ? disponibles.length : filtro.columnas.length];
+        for (int i = 0; i < encabezado.length; i++) {
+            encabezado[i] = disponibles[filtro.columnas == null ? i : filtro.columnas[i]].toUpperCase();
+        }
+
+        while (true) {
+
+            ConsultaAuditoria.Pagina p;
+            try (Telemetria.Medicion m = telemetria.medir("consultaAuditoria")) {
+                p = auditoria.consultar(filtro, cursor, TAMANO_PAGINA);
+            } catch (IOException | IllegalArgumentException e) {
+                sesion().err.println("❌ Error en la consulta: " + e.getMessage());
+                return;
+            }
+
+            sesion().out.println("\n" + String.join(" | ", encabezado));
+            p.filas.forEach(fila -> sesion().out.println(String.join(" | ", fila)));
+            sesion().out.printf("%d filas | %d líneas revisadas | %d ms%n", p.filas.size(), p.lineasLeidas, p.microsegundos / 1_000);
+
+            if (p.cursor == null) {
+                sesion().out.println("➡️ Fin de los resultados.");
+                return;
+            }
+
+            sesion().out.println("Cursor: " + p.cursor);
+            sesion().out.print("[S: siguiente página | Enter: salir]: ");
+            if (!sesion().scanner.nextLine().trim().equalsIgnoreCase("S")) return;
+            cursor = p.cursor;
         }
     }
 
@@ -421,98 +1627,100 @@ public class Main {
 
         while (true) {
 
-            System.out.println("\n--- GESTIÓN DE USUARIOS ---");
+            sesion().out.println("\n--- GESTIÓN DE USUARIOS ---");
             listarUsuarios();
-            System.out.println("1. Crear Usuario");
-            System.out.println("2. Eliminar Usuario");
-            System.out.println("3. Volver al menú principal");
-            System.out.print("Seleccione una opción: ");
-            String opcion = scanner.nextLine();
+            sesion().out.println("1. Crear Usuario");
+            sesion().out.println("2. Eliminar Usuario");
+            sesion().out.println("3. Volver al menú principal");
+            sesion().out.print("Seleccione una opción: ");
+            String opcion = sesion().scanner.nextLine();
 
             switch (opcion) {
                 case "1": crearUsuario(); break;
                 case "2": eliminarUsuario(); break;
                 case "3": return;
-                default: System.err.println("Opción no válida.");
+                default: sesion().err.println("Opción no válida.");
             }
         }
     }
 
     private static void crearUsuario() {
 
-        System.out.println("\n--- CREAR NUEVO USUARIO ---");
-        System.out.print("Username (único): ");
-        String user = scanner.nextLine().trim().toLowerCase();
+        sesion().out.println("\n--- CREAR NUEVO USUARIO ---");
+        sesion().out.print("Username (único): ");
+        String user = sesion().scanner.nextLine().trim().toLowerCase();
 
         if (usuarios.stream().anyMatch(u -> u.username.equals(user))) {
-            System.err.println("❌ ERROR: El nombre de usuario ya existe.");
+            sesion().err.println("❌ ERROR: El nombre de usuario ya existe.");
             return;
         }
 
-        System.out.print("Contraseña (temporal): ");
-        String pass = scanner.nextLine().trim();
+        sesion().out.print("Contraseña (temporal): ");
+        String pass = sesion().scanner.nextLine().trim();
 
-        System.out.println("Rol [1: SOLICITANTE, 2: RESPONSABLE, 3: ADMIN]: ");
-        String rolChoice = scanner.nextLine().trim();
+        sesion().out.println("Rol [1: SOLICITANTE, 2: RESPONSABLE, 3: ADMIN]: ");
+        String rolChoice = sesion().scanner.nextLine().trim();
         Rol rol;
 
         switch (rolChoice) {
             case "1": rol = Rol.SOLICITANTE; break;
             case "2": rol = Rol.RESPONSABLE; break;
             case "3": rol = Rol.ADMIN; break;
-            default: System.err.println("❌ Opción de rol inválida."); return;
+            default: sesion().err.println("❌ Opción de rol inválida."); return;
         }
 
-        usuarios.add(new Usuario(user, pass, rol));
-        guardarUsuarios(); // Persistencia
-        System.out.println("✅ Usuario '" + user + "' creado como " + rol.name() + ".");
+        synchronized (CANDADO_USUARIOS) {
+
+            if (usuarios.stream().anyMatch(u -> u.username.equals(user))) {
+                sesion().err.println("❌ ERROR: El nombre de usuario ya existe.");
+                return;
+            }
+            usuarios.add(new Usuario(user, pass, rol));
+            guardarUsuarios(); // Persistencia
+        }
+        sesion().out.println("✅ Usuario '" + user + "' creado como " + rol.name() + ".");
     }
 
     private static void eliminarUsuario() {
 
-        System.out.println("\n--- ELIMINAR USUARIO ---");
-        System.out.print("Username a eliminar: ");
-        String user = scanner.nextLine().trim().toLowerCase();
+        sesion().out.println("\n--- ELIMINAR USUARIO ---");
+        sesion().out.print("Username a eliminar: ");
+        String user = sesion().scanner.nextLine().trim().toLowerCase();
 
         if (user.equals("admin")) {
-            System.err.println("❌ ERROR: El usuario 'admin' no puede ser eliminado.");
+            sesion().err.println("❌ ERROR: El usuario 'admin' no puede ser eliminado.");
             return;
         }
 
         // RemoveIf simplifica la eliminación en listas
-        boolean eliminado = usuarios.removeIf(u -> u.username.equals(user));
+        boolean eliminado;
+        synchronized (CANDADO_USUARIOS) {
+            eliminado = usuarios.removeIf(u -> u.username.equals(user));
+            if (eliminado) guardarUsuarios(); // Persistencia
+        }
 
         if (eliminado) {
-            guardarUsuarios(); // Persistencia
-            System.out.println("✅ Usuario '" + user + "' eliminado.");
+            sesion().out.println("✅ Usuario '" + user + "' eliminado.");
 
         } else {
-            System.err.println("❌ ERROR: Usuario no encontrado.");
+            sesion().err.println("❌ ERROR: Usuario no encontrado.");
         }
     }
 
     private static void listarUsuarios() {
 
-        System.out.println("\n--- LISTA DE USUARIOS ACTIVOS ---");
-        System.out.printf("%-15s %-12s\n", "USERNAME", "ROL");
-        System.out.println("---------------------------");
+        sesion().out.println("\n--- LISTA DE USUARIOS ACTIVOS ---");
+        sesion().out.printf("%-15s %-12s\n", "USERNAME", "ROL");
+        sesion().out.println("---------------------------");
 
         for (Usuario u : usuarios) {
-            System.out.printf("%-15s %-12s\n", u.username, u.rol.name());
+            sesion().out.printf("%-15s %-12s\n", u.username, u.rol.name());
         }
 
     }
 
     private static void guardarUsuarios() {
-
-        try (PrintWriter pw = new PrintWriter(new FileWriter(ARCHIVO_USUARIOS))) {
-            for (Usuario u : usuarios) {
-                pw.println(u.toCSV());
-            }
-        }
-        catch (IOException e) {
-            System.err.println("Error al guardar usuarios: " + e.getMessage());
-        }
+        guardarLista(ARCHIVO_USUARIOS, usuarios);
     }
 
     // --- 8. MENÚS Y FLUJO PRINCIPAL ---
@@ -521,22 +1729,30 @@ public class Main {
 
         while (true) {
 
-            System.out.println("\n--- MENÚ ADMINISTRADOR (RF19) ---");
-            System.out.println("1. Gestionar Usuarios (Crear, Eliminar, Listar)");
-            System.out.println("2. Búsqueda y Modificación Detallada de Solicitudes");
-            System.out.println("3. Generar Reporte de Métricas (RF15/RF16)");
-            System.out.println("4. Acceso a Datos CSV (Auditoría)");
-            System.out.println("5. Cerrar Sesión");
-            System.out.print("Seleccione una opción: ");
-            String opcion = scanner.nextLine();
+            sesion().out.println("\n--- MENÚ ADMINISTRADOR (RF19) ---");
+            sesion().out.println("1. Gestionar Usuarios (Crear, Eliminar, Listar)");
+            sesion().out.println("2. Búsqueda y Modificación Detallada de Solicitudes");
+            sesion().out.println("3. Generar Reporte de Métricas (RF15/RF16)");
+            sesion().out.println("4. Acceso a Datos CSV (Auditoría)");
+            sesion().out.println("5. Búsqueda de Solicitudes por Texto");
+            sesion().out.println("6. Generación Masiva de Reportes (Auditoría)");
+            sesion().out.println("7. Métricas de Rendimiento (en vivo)");
+            sesion().out.println("8. Importación Masiva de Solicitudes (CSV/JSON-lines)");
+            sesion().out.println("9. Cerrar Sesión");
+            sesion().out.print("Seleccione una opción: ");
+            String opcion = sesion().scanner.nextLine();
 
             switch (opcion) {
                 case "1": menuGestionUsuarios(); break;
                 case "2": buscarGestionarSolicitud(true); break;
                 case "3": generarReporteMetricas(true); break;
-                case "4": /* consultarBaseDatosCSV(); */ System.out.println("➡️ Implementar consulta CSV..."); break;
-                case "5": System.out.println("Cerrando sesión de Administrador..."); return;
-                default: System.err.println("Opción no válida.");
+                case "4": consultarAuditoriaCSV(); break;
+                case "5": buscarPorTexto(); break;
+                case "6": generarReportesMasivos(); break;
+                case "7": mostrarTelemetria(); break;
+                case "8": importarSolicitudes(); break;
+                case "9": sesion().out.println("Cerrando sesión de Administrador..."); return;
+                default: sesion().err.println("Opción no válida.");
             }
         }
     }
@@ -545,110 +1761,287 @@ public class Main {
 
         while (true) {
 
-            System.out.println("\n--- MENÚ RESPONSABLE (RF19) ---");
-            System.out.println("1. Búsqueda y Modificación Detallada de Solicitudes (RF6, RF8, RF10)");
-            System.out.println("2. Visualizar Reporte de Métricas (RF15)");
-            System.out.println("3. Cerrar Sesión");
-            System.out.print("Seleccione una opción: ");
-            String opcion = scanner.nextLine();
+            sesion().out.println("\n--- MENÚ RESPONSABLE (RF19) ---");
+            sesion().out.println("1. Búsqueda y Modificación Detallada de Solicitudes (RF6, RF8, RF10)");
+            sesion().out.println("2. Visualizar Reporte de Métricas (RF15)");
+            sesion().out.println("3. Búsqueda de Solicitudes por Texto");
+            sesion().out.println("4. Bandeja de Trabajo (" + bandeja.pendientes(sesion().usuario.username) + " novedades)");
+            sesion().out.println("5. Cerrar Sesión");
+            sesion().out.print("Seleccione una opción: ");
+            String opcion = sesion().scanner.nextLine();
 
             switch (opcion) {
                 case "1": buscarGestionarSolicitud(true); break;
                 case "2": generarReporteMetricas(false); break; // Solo muestra en consola
-                case "3": System.out.println("Cerrando sesión de Responsable..."); return;
-                default: System.err.println("Opción no válida.");
+                case "3": buscarPorTexto(); break;
+                case "4": mostrarBandeja(); break;
+                case "5": sesion().out.println("Cerrando sesión de Responsable..."); return;
+                default: sesion().err.println("Opción no válida.");
             }
         }
     }
 
+    // Solicitudes nuevas, cambios y comentarios de otros usuarios desde la última revisión (BusEventos)
+    private static void mostrarBandeja() {
+
+        List<Historial> novedades = bandeja.tomar(sesion().usuario.username);
+        sesion().out.println("\n--- BANDEJA DE TRABAJO ---");
+        if (novedades.isEmpty()) {
+            sesion().out.println("Sin novedades desde su última revisión.");
+            return;
+        }
+        for (Historial h : novedades) sesion().out.printf("%-18s %s%n", h.folio, h.toReportString());
+        sesion().out.println("Total: " + novedades.size() + " novedades.");
+    }
+
+    static List<Historial> tomarBandeja(long esperaMs) {
+        bus.drenar(esperaMs);
+        return bandeja.tomar(sesion().usuario.username);
+    }
+
     private static void menuSolicitante() {
 
         while (true) {
 
-            System.out.println("\n--- MENÚ SOLICITANTE (RF19) ---");
-            System.out.println("1. Registrar Nueva Solicitud (RF1, RF2)");
-            System.out.println("2. Consultar Solicitudes Propias (RF12)");
-            System.out.println("3. Búsqueda por Folio (Solo Consulta)");
-            System.out.println("4. Cerrar Sesión");
-            System.out.print("Seleccione una opción: ");
+            sesion().out.println("\n--- MENÚ SOLICITANTE (RF19) ---");
+            sesion().out.println("1. Registrar Nueva Solicitud (RF1, RF2)");
+            sesion().out.println("2. Consultar Solicitudes Propias (RF12)");
+            sesion().out.println("3. Búsqueda por Folio (Solo Consulta)");
+            sesion().out.println("4. Cerrar Sesión");
+            sesion().out.print("Seleccione una opción: ");
 
-            String opcion = scanner.nextLine();
+            String opcion = sesion().scanner.nextLine();
 
             switch (opcion) {
                 case "1": crearSolicitud(); break;
                 case "2": consultarSolicitudesPropias(); break;
                 case "3": buscarGestionarSolicitud(false); break; // RF19: No puede editar
-                case "4": System.out.println("Cerrando sesión de Solicitante..."); return;
-                default: System.err.println("Opción no válida.");
+                case "4": sesion().out.println("Cerrando sesión de Solicitante..."); return;
+                default: sesion().err.println("Opción no válida.");
             }
         }
     }
 
     private static void consultarSolicitudesPropias() {
 
-        System.out.println("\n--- ESTADO DE MIS SOLICITUDES (RF12) ---");
-        List<Solicitud> misSolicitudes = solicitudes.stream()
-                .filter(s -> s.solicitanteUsername.equals(usuarioActual.username))
-                .collect(Collectors.toList());
+        sesion().out.println("\n--- ESTADO DE MIS SOLICITUDES (RF12) ---");
+        List<Solicitud> misSolicitudes = repositorio.solicitudesDe(sesion().usuario.username);
 
         if (misSolicitudes.isEmpty()) {
-            System.out.println("➡️ No ha registrado ninguna solicitud todavía.");
+            sesion().out.println("➡️ No ha registrado ninguna solicitud todavía.");
             return;
         }
-        misSolicitudes.forEach(System.out::println);
+        misSolicitudes.forEach(sesion().out::println);
     }
 
     private static void login() {
 
-        cargarTodo();
-
         int intentos = 0;
         final int MAX_INTENTOS = 3;
 
         while (intentos < MAX_INTENTOS) {
 
-            System.out.println("\n--- INICIO DE SESIÓN CFE (RF18) ---");
-            System.out.print("Usuario: ");
-            String user = scanner.nextLine().trim().toLowerCase();
-            System.out.print("Contraseña: ");
-            String pass = scanner.nextLine().trim();
+            sesion().out.println("\n--- INICIO DE SESIÓN CFE (RF18) ---");
+            sesion().out.print("Usuario: ");
+            String user = sesion().scanner.nextLine().trim().toLowerCase();
+            sesion().out.print("Contraseña: ");
+            String pass = sesion().scanner.nextLine().trim();
 
-            usuarioActual = usuarios.stream()
-                    .filter(u -> u.username.equals(user) && u.password.equals(pass))
-                    .findFirst()
-                    .orElse(null);
+            sesion().usuario = autenticar(user, pass);
 
-            if (usuarioActual != null) {
-                System.out.println("\n*** Bienvenido, " + usuarioActual.rol.name() + " (" + usuarioActual.username.toUpperCase() + "). ***");
-                switch (usuarioActual.rol) {
+            if (sesion().usuario != null) {
+                sesion().out.println("\n*** Bienvenido, " + sesion().usuario.rol.name() + " (" + sesion().usuario.username.toUpperCase() + "). ***");
+                switch (sesion().usuario.rol) {
                     case ADMIN: menuAdmin(); break;
                     case RESPONSABLE: menuResponsable(); break;
                     case SOLICITANTE: menuSolicitante(); break;
                 }
-                usuarioActual = null;
+                sesion().usuario = null;
                 return;
             }
             else {
                 intentos++;
-                System.err.println("❌ Credenciales incorrectas. Intento " + intentos + " de " + MAX_INTENTOS);
+                sesion().err.println("❌ Credenciales incorrectas. Intento " + intentos + " de " + MAX_INTENTOS);
             }
         }
-        System.out.println("Máximo de intentos alcanzado. Aplicación terminada.");
+        sesion().out.println("Máximo de intentos alcanzado. Aplicación terminada.");
     }
 
     private static String generarFolio() {
-        return "CFE-" + new SimpleDateFormat("yyyyMMdd").format(new Date()) + "-" + (1000 + new Random().nextInt(9000)); // RF3
+        return folios.siguiente(); // RF3
+    }
+
+    // Punto de entrada de cada sesión remota: asocia el contexto al hilo y ejecuta el flujo de login
+    static void atenderSesion(Sesion sesion) {
+
+        SESION.set(sesion);
+        try {
+            mostrarEncabezado();
+            login();
+            sesion().out.println("\nSesión finalizada.");
+        } catch (NoSuchElementException e) {
+            // El cliente cerró la conexión a mitad de una captura
+        } finally {
+            SESION.remove();
+        }
+    }
+
+    // Peticiones de la API: sesión sin consola con el usuario ya autenticado, para el hilo que la atiende
+    static void abrirSesion(Usuario usuario) {
+        Sesion sesion = new Sesion(new Scanner(InputStream.nullInputStream()), new PrintStream(OutputStream.nullOutputStream()), System.err);
+        sesion.usuario = usuario;
+        SESION.set(sesion);
+    }
+
+    static void cerrarSesion() {
+        SESION.remove();
+    }
+
+    // Código de salida: 0 sin errores, 1 si alguna operación falló, 2 si no se pudo leer el script
+    private static int ejecutarScript(String origen) {
+
+        PrintStream salida = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false, StandardCharsets.UTF_8);
+        try (BufferedReader entrada = origen.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : new BufferedReader(new InputStreamReader(new FileInputStream(origen), StandardCharsets.UTF_8))) {
+
+            return new ModoScript(salida, telemetria).ejecutar(entrada) > 0 ? 1 : 0;
+
+        } catch (IOException e) {
+            System.err.println("❌ No se pudo leer el script " + origen + ": " + e.getMessage());
+            return 2;
+        } finally {
+            salida.flush();
+        }
+    }
+
+    // Código de salida: 0 sin errores, 1 si alguna operación falló, 2 si la configuración no es válida
+    private static int ejecutarCarga(long segundos) {
+
+        PrintStream salida = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        try {
+            return new GeneradorCarga(salida, telemetria, particiones.directorio(), Paths.get(ARCHIVO_SNAPSHOT)).ejecutar(segundos) > 0 ? 1 : 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    // Consumidores del bus, cada uno en su hilo y con su cola (-Dcfe.bus.capacidad, -Dcfe.bus.espera.ms)
+    private static void iniciarSuscriptores() {
+
+        Set<TipoEvento> tipos = EnumSet.of(TipoEvento.CREACION, TipoEvento.CAMBIO_ESTADO, TipoEvento.COMENTARIO);
+        bus.suscribir("bandeja", tipos, CAPACIDAD_BUS, BusEventos.Desborde.DESCARTAR, bandeja);
+        bus.suscribir("notificaciones", tipos, CAPACIDAD_BUS, BusEventos.Desborde.ESPERAR, new NotificacionesArchivo(ARCHIVO_NOTIFICACIONES));
+    }
+
+    @SuppressWarnings("try")
+    private static void cargarInicial() {
+
+        if (compartido == null) {
+            asegurarArchivosYDatos();
+            cargarTodo();
+            archivarCerradas();
+            return;
+        }
+
+        // Multiproceso: la carga (con su compactación y archivo histórico) se hace con los journals bloqueados y
+        // después solo se lee lo que los demás procesos anexen desde ahí
+        try (AlmacenCompartido.Region region = compartido.bloquearJournal()) {
+            asegurarArchivosYDatos();
+            cargarTodo();
+            archivarCerradas();
+            compartido.sincronizado(archivosJournal());
+        } catch (IOException e) {
+            sesion().err.println("❌ No se pudo bloquear los archivos compartidos: " + e.getMessage());
+            System.exit(1);
+        }
+
+        ScheduledExecutorService refresco = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cfe-refresco");
+            t.setDaemon(true);
+            return t;
+        });
+        refresco.scheduleWithFixedDelay(() -> {
+            try {
+                if (refrescar() < 0) recargarCompleto();
+            } catch (RuntimeException e) {
+                // Una excepción cancelaría las ejecuciones siguientes
+                sesion().err.println("❌ Error al aplicar los cambios de otros procesos: " + e.getMessage());
+            }
+        }, REFRESCO_MS, REFRESCO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void registrarConteos() {
+        telemetria.registrarConteo("usuarios", () -> usuarios.size());
+        telemetria.registrarConteo("solicitudes", repositorio::totalSolicitudes);
+        telemetria.registrarConteo("historial", repositorio::totalHistorial);
+        telemetria.registrarConteo("journalPendientes", persistencia::pendientes);
+        telemetria.registrarConteo("eventosDesdeSnapshot", eventosDesdeSnapshot::get);
+        telemetria.registrarConteo("archivadas", archivo::totalArchivadas);
+        HistorialEnDisco enDisco = repositorio.enDisco();
+        if (enDisco != null) {
+            telemetria.registrarConteo("historialCache.aciertos", enDisco::aciertos);
+            telemetria.registrarConteo("historialCache.fallos", enDisco::fallos);
+            telemetria.registrarConteo("historialCache.expulsiones", enDisco::expulsiones);
+            telemetria.registrarConteo("historialCache.eventos", enDisco::eventosEnCache);
+            telemetria.registrarConteo("historialCache.folios", enDisco::foliosEnCache);
+        }
+    }
+
+    private static void mostrarEncabezado() {
+        sesion().out.println("=====================================================================");
+        sesion().out.println("  SISTEMA DE CONTROL DE SOLICITUDES CFE - PROYECTO INTEGRADOR");
+        sesion().out.println("=====================================================================");
     }
 
     public static void main(String[] args) {
 
-        asegurarArchivosYDatos();
-        System.out.println("=====================================================================");
-        System.out.println("  SISTEMA DE CONTROL DE SOLICITUDES CFE - PROYECTO INTEGRADOR");
-        System.out.println("=====================================================================");
+        boolean script = args.length > 0 && args[0].equals("--script");
+        boolean carga = args.length > 0 && args[0].equals("--carga");
+        if (script || carga) {
+            // La salida estándar queda reservada para las respuestas JSON; los avisos van a stderr
+            SESION.set(new Sesion(new Scanner(InputStream.nullInputStream()), new PrintStream(OutputStream.nullOutputStream()), System.err));
+        }
+
+        cargarInicial();
+        registrarConteos();
+        iniciarSuscriptores();
+        telemetria.iniciarExportacion(ARCHIVO_METRICAS, SEGUNDOS_METRICAS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (eventosDesdeSnapshot.get() > 0) escribirSnapshot();
+            persistencia.cerrar();
+            bus.cerrar();
+            if (SEGUNDOS_METRICAS > 0) telemetria.escribirArchivo(ARCHIVO_METRICAS);
+            if (compartido != null) compartido.close();
+        }));
+
+        if (script) {
+            System.exit(ejecutarScript(args.length > 1 ? args[1] : "-"));
+        }
+
+        if (carga) {
+            System.exit(ejecutarCarga(args.length > 1 ? Long.parseLong(args[1]) : 60));
+        }
+
+        if (args.length > 0 && args[0].equals("--servidor")) {
+            int puerto = args.length > 1 ? Integer.parseInt(args[1]) : ServidorSesiones.PUERTO_POR_DEFECTO;
+            new ServidorSesiones(puerto).iniciar();
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--api")) {
+            int puerto = args.length > 1 ? Integer.parseInt(args[1]) : ServidorApi.PUERTO_POR_DEFECTO;
+            new ServidorApi(puerto, telemetria).iniciar();
+            return;
+        }
 
+        mostrarEncabezado();
         login();
 
-        System.out.println("\nPrograma finalizado.");
+        sesion().out.println("\nPrograma finalizado.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+import java.util.*;
+
+// Contadores mantenidos de forma incremental (RF15): por estado, por solicitante y por día del folio
+class MetricasSolicitudes {
+
+    private static final int ESTADOS = Main.Estado.values().length;
+
+    private final int[] porEstado = new int[ESTADOS];
+    private final Map<String, int[]> porSolicitante = new HashMap<>();
+    private final TreeMap<String, int[]> porDia = new TreeMap<>();
+    private int total;
+
+    public void reiniciar() {
+        Arrays.fill(porEstado, 0);
+        porSolicitante.clear();
+        porDia.clear();
+        total = 0;
+    }
+
+    public void registrar(Main.Solicitud s) {
+        sumar(s, s.estado, 1);
+        total++;
+    }
+
+    public void retirar(Main.Solicitud s) {
+        sumar(s, s.estado, -1);
+        total--;
+    }
+
+    public void cambiarEstado(Main.Solicitud s, Main.Estado anterior, Main.Estado nuevo) {
+        sumar(s, anterior, -1);
+        sumar(s, nuevo, 1);
+    }
+
+    private void sumar(Main.Solicitud s, Main.Estado estado, int delta) {
+        int i = estado.ordinal();
+        porEstado[i] += delta;
+        porSolicitante.computeIfAbsent(s.solicitanteUsername, k -> new int[ESTADOS])[i] += delta;
+        porDia.computeIfAbsent(diaDeFolio(s.folio), k -> new int[ESTADOS])[i] += delta;
+    }
+
+    public int total() {
+        return total;
+    }
+
+    public int porEstado(Main.Estado estado) {
+        return porEstado[estado.ordinal()];
+    }
+
+    public int pendientes() {
+        return porEstado(Main.Estado.RECIBIDA) + porEstado(Main.Estado.EN_PROCESO);
+    }
+
+    public int pendientesDe(String solicitante) {
+        int[] c = porSolicitante.get(solicitante);
+        return c == null ? 0 : c[Main.Estado.RECIBIDA.ordinal()] + c[Main.Estado.EN_PROCESO.ordinal()];
+    }
+
+    public int porSolicitante(String solicitante, Main.Estado estado) {
+        int[] c = porSolicitante.get(solicitante);
+        return c == null ? 0 : c[estado.ordinal()];
+    }
+
+    // Últimos n días con actividad, del más reciente al más antiguo: día -> conteo por estado
+    public Map<String, int[]> ultimosDias(int n) {
+
+        Map<String, int[]> dias = new LinkedHashMap<>();
+        for (Map.Entry<String, int[]> e : porDia.descendingMap().entrySet()) {
+            if (dias.size() == n) break;
+            dias.put(e.getKey(), e.getValue().clone());
+        }
+        return dias;
+    }
+
+    // Folio con formato CFE-yyyyMMdd-NNNN (RF3)
+    public static String diaDeFolio(String folio) {
+        return folio.length() >= 12 && folio.startsWith("CFE-") ? folio.substring(4, 12) : "SIN_FECHA";
+    }
+}
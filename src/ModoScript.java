@@ -0,0 +1,295 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+
+// Modo script (java -jar ... --script [archivo|-]): ejecuta una operación por línea sin menús ni capturas y
+// responde una línea JSON por operación, para reproducir bitácoras de operación y medir el rendimiento de punta
+// a punta. Campos separados por ';' como en los CSV; las líneas vacías y las que empiezan con # se ignoran.
+//   login;usuario;contraseña      crear;titulo;descripcion      estado;folio;NUEVO_ESTADO
+//   comentar;folio;texto          consultar;folio               reporte;folio
+//   metricas                      importar;ruta                 vaciar
+//   bandeja                       refrescar
+class ModoScript {
+
+    private final PrintStream salida;
+    private final Telemetria telemetria;
+    private final Map<String, int[]> porOperacion = new TreeMap<>(); // {ejecutadas, con error}
+    private int operaciones;
+    private int errores;
+
+    ModoScript(PrintStream salida, Telemetria telemetria) {
+        this.salida = salida;
+        this.telemetria = telemetria;
+    }
+
+    // Devuelve el número de operaciones con error
+    public int ejecutar(BufferedReader entrada) throws IOException {
+
+        long inicio = System.nanoTime();
+        String line;
+        int numero = 0;
+
+        while ((line = entrada.readLine()) != null) {
+            numero++;
+            String limpia = line.strip();
+            if (limpia.isEmpty() || limpia.startsWith("#")) continue;
+            ejecutarLinea(numero, limpia);
+        }
+
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("operaciones", operaciones);
+        resumen.put("errores", errores);
+        resumen.put("segundos", Math.round(segundos * 1000) / 1000.0);
+        resumen.put("ops_s", segundos > 0 ? Math.round(operaciones / segundos) : 0);
+        Map<String, Object> detalle = new LinkedHashMap<>();
+        porOperacion.forEach((op, c) -> {
+            Map<String, Object> conteo = new LinkedHashMap<>();
+            conteo.put("ejecutadas", c[0]);
+            conteo.put("errores", c[1]);
+            detalle.put(op, conteo);
+        });
+        resumen.put("por_operacion", detalle);
+        salida.println(Json.escribir(Collections.singletonMap("resumen", resumen)));
+        salida.flush();
+        return errores;
+    }
+
+    private void ejecutarLinea(int numero, String linea) {
+
+        String[] campos = linea.split(";", -1);
+        String op = campos[0].trim().toLowerCase();
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("linea", numero);
+        respuesta.put("op", op);
+
+        long inicio = System.nanoTime();
+        String error = null;
+        try {
+            ejecutar(op, campos, respuesta);
+        } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+            error = e.getMessage();
+        }
+        long nanos = System.nanoTime() - inicio;
+        telemetria.registrar("script." + op, nanos);
+
+        operaciones++;
+        int[] conteo = porOperacion.computeIfAbsent(op, k -> new int[2]);
+        conteo[0]++;
+        if (error != null) {
+            errores++;
+            conteo[1]++;
+        }
+
+        respuesta.put("ok", error == null);
+        respuesta.put("us", nanos / 1_000);
+        if (error != null) respuesta.put("error", error);
+        salida.println(Json.escribir(respuesta));
+    }
+
+    private void ejecutar(String op, String[] campos, Map<String, Object> r) throws IOException {
+
+        switch (op) {
+
+            case "login": {
+                argumentos(campos, 2, "login;usuario;contraseña");
+                Main.Usuario u = Main.autenticar(campos[1].trim().toLowerCase(), campos[2].trim());
+                if (u == null) throw new IllegalArgumentException("Credenciales incorrectas");
+                Main.sesion().usuario = u;
+                r.put("usuario", u.username);
+                r.put("rol", u.rol.name());
+                break;
+            }
+
+            case "crear": {
+                argumentos(campos, 1, "crear;titulo;descripcion");
+                requerirRol(Main.Rol.SOLICITANTE);
+                String titulo = campos[1].trim();
+                if (titulo.isEmpty()) throw new IllegalArgumentException("El título es obligatorio (RF2)");
+                String descripcion = campos.length > 2 ? String.join(",", Arrays.copyOfRange(campos, 2, campos.length)).trim() : "";
+                r.put("folio", Main.registrarSolicitud(titulo, descripcion).folio);
+                break;
+            }
+
+            case "estado": {
+                argumentos(campos, 2, "estado;folio;NUEVO_ESTADO[;version]");
+                requerirRol(Main.Rol.RESPONSABLE, Main.Rol.ADMIN);
+                Main.Solicitud s = solicitud(campos[1]);
+                Main.Estado nuevo;
+                try {
+                    nuevo = Main.Estado.valueOf(campos[2].trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Estado inválido: " + campos[2].trim());
+                }
+                int version = -1; // Con la versión de un "consultar" previo el cambio se rechaza si alguien más editó el folio
+                if (campos.length > 3) {
+                    try {
+                        version = Integer.parseInt(campos[3].trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Versión inválida: " + campos[3].trim());
+                    }
+                }
+                Main.Estado anterior = Main.aplicarCambioEstado(s, nuevo, version);
+                r.put("folio", s.folio);
+                r.put("anterior", anterior == null ? nuevo.name() : anterior.name());
+                r.put("estado", nuevo.name());
+                r.put("cambio", anterior != null);
+                break;
+            }
+
+            case "comentar": {
+                argumentos(campos, 2, "comentar;folio;texto");
+                requerirRol(Main.Rol.RESPONSABLE, Main.Rol.ADMIN);
+                Main.Solicitud s = solicitud(campos[1]);
+                String texto = String.join(",", Arrays.copyOfRange(campos, 2, campos.length)).trim();
+                if (texto.isEmpty()) throw new IllegalArgumentException("Comentario vacío");
+                Main.registrarComentario(s, texto);
+                r.put("folio", s.folio);
+                break;
+            }
+
+            case "consultar": {
+                argumentos(campos, 1, "consultar;folio");
+                requerirSesion();
+                Main.Solicitud s = buscar(campos[1]);
+                ArchivoHistorico.Registro archivada = s == null ? archivada(campos[1]) : null;
+                if (archivada != null) s = archivada.solicitud;
+                Main.Usuario u = Main.sesion().usuario;
+                if (u.rol == Main.Rol.SOLICITANTE && !s.solicitanteUsername.equals(u.username)) {
+                    throw new IllegalStateException("Acceso denegado: solo puede consultar sus propias solicitudes");
+                }
+                int eventos = archivada != null ? archivada.historial.size() : Main.historialDe(s.folio).size();
+                r.put("folio", s.folio);
+                r.put("titulo", s.titulo);
+                r.put("solicitante", s.solicitanteUsername);
+                r.put("estado", s.estado.name());
+                r.put("version", archivada != null ? eventos : Main.version(s));
+                r.put("fecha", Main.formatearFecha(s.fechaCreacion));
+                r.put("eventos", eventos);
+                if (archivada != null) r.put("archivada", true);
+                break;
+            }
+
+            case "reporte": {
+                argumentos(campos, 1, "reporte;folio");
+                requerirRol(Main.Rol.RESPONSABLE, Main.Rol.ADMIN);
+                Main.Solicitud s = buscar(campos[1]);
+                if (s != null) {
+                    r.put("folio", s.folio);
+                    r.put("archivo", Main.escribirReporteDetallado(s));
+                } else {
+                    ArchivoHistorico.Registro archivada = archivada(campos[1]);
+                    r.put("folio", archivada.solicitud.folio);
+                    r.put("archivo", Main.escribirReporteDetallado(archivada));
+                    r.put("archivada", true);
+                }
+                break;
+            }
+
+            case "metricas": {
+                requerirRol(Main.Rol.RESPONSABLE, Main.Rol.ADMIN);
+                int[] conteo = Main.conteoPorEstado();
+                Map<String, Object> porEstado = new LinkedHashMap<>();
+                int total = 0;
+                for (Main.Estado e : Main.Estado.values()) {
+                    porEstado.put(e.name(), conteo[e.ordinal()]);
+                    total += conteo[e.ordinal()];
+                }
+                r.put("total", total);
+                r.put("por_estado", porEstado);
+
+                r.put("sla", Main.resumenSla());
+                break;
+            }
+
+            case "bandeja": {
+                requerirRol(Main.Rol.RESPONSABLE, Main.Rol.ADMIN);
+                List<Main.Historial> novedades = Main.tomarBandeja(2_000);
+                r.put("novedades", novedades.size());
+                List<Map<String, Object>> eventos = new ArrayList<>();
+                for (Main.Historial h : novedades.subList(Math.max(0, novedades.size() - 20), novedades.size())) {
+                    Map<String, Object> e = new LinkedHashMap<>();
+                    e.put("folio", h.folio);
+                    e.put("tipo", h.tipo.name());
+                    e.put("usuario", h.usuarioCambio);
+                    e.put("fecha", Main.formatearFecha(h.fecha));
+                    eventos.add(e);
+                }
+                r.put("ultimas", eventos);
+                break;
+            }
+
+            case "refrescar": {
+                requerirSesion();
+                int aplicados = Main.refrescar();
+                if (aplicados < 0) Main.recargarCompleto();
+                r.put("aplicados", Math.max(0, aplicados));
+                r.put("recargado", aplicados < 0);
+                break;
+            }
+
+            case "importar": {
+                argumentos(campos, 1, "importar;ruta");
+                requerirRol(Main.Rol.ADMIN);
+                ImportacionMasiva.Lote lote = Main.validarImportacion(campos[1].trim());
+                if (!lote.validos.isEmpty() && !Main.confirmarImportacion(lote)) {
+                    throw new IllegalStateException("Importación en memoria con escritura pendiente a los CSV");
+                }
+                r.put("importadas", lote.validos.size());
+                r.put("eventos", lote.eventos);
+                r.put("rechazadas", lote.rechazados.size());
+                List<String> rechazos = new ArrayList<>();
+                lote.rechazados.stream().limit(10).forEach(x -> rechazos.add("Línea " + x.linea + ": " + x.error));
+                if (!rechazos.isEmpty()) r.put("primeros_rechazos", rechazos);
+                break;
+            }
+
+            case "vaciar":
+                if (!Main.vaciarPersistencia()) throw new IllegalStateException("Quedaron escrituras pendientes por un error de E/S");
+                break;
+
+            default:
+                throw new IllegalArgumentException("Operación desconocida: " + op);
+        }
+    }
+
+    private static void argumentos(String[] campos, int minimo, String uso) {
+        if (campos.length - 1 < minimo) throw new IllegalArgumentException("Uso: " + uso);
+    }
+
+    private static void requerirSesion() {
+        if (Main.sesion().usuario == null) throw new IllegalStateException("Sin sesión: use login;usuario;contraseña");
+    }
+
+    private static void requerirRol(Main.Rol... roles) {
+        requerirSesion();
+        Main.Rol rol = Main.sesion().usuario.rol;
+        for (Main.Rol r : roles) if (r == rol) return;
+        throw new IllegalStateException("Operación no permitida para el rol " + rol);
+    }
+
+    // Solicitud vigente para operaciones que la modifican: una archivada es de solo consulta
+    private static Main.Solicitud solicitud(String folio) {
+        Main.Solicitud s = buscar(folio);
+        if (s != null) return s;
+        archivada(folio); // Si tampoco está archivada: "Folio no encontrado"
+        throw new IllegalStateException("Solicitud archivada (cerrada): solo consulta");
+    }
+
+    private static Main.Solicitud buscar(String folio) {
+        folio = folio.trim().toUpperCase();
+        Main.Solicitud s = Main.buscarSolicitud(folio);
+        if (s == null && Main.refrescar() > 0) s = Main.buscarSolicitud(folio); // Pudo crearlo otro proceso
+        return s;
+    }
+
+    // Lo que no está en memoria se busca en el archivo histórico, como en la búsqueda por folio de los menús
+    private static ArchivoHistorico.Registro archivada(String folio) {
+        folio = folio.trim().toUpperCase();
+        ArchivoHistorico.Registro r = Main.buscarArchivada(folio);
+        if (r == null) throw new IllegalArgumentException("Folio no encontrado: " + folio);
+        return r;
+    }
+}
@@ -0,0 +1,34 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Suscriptor del BusEventos que anexa cada lote de eventos a un archivo de notificaciones (una escritura por lote),
+// para que herramientas externas (correo, tableros) lo sigan con tail sin tocar los journals
+class NotificacionesArchivo implements BusEventos.Suscriptor {
+
+    private final Path archivo;
+
+    NotificacionesArchivo(String archivo) {
+        this.archivo = Paths.get(archivo);
+    }
+
+    @Override
+    public void recibir(List<Main.Historial> lote) throws IOException {
+
+        StringBuilder sb = new StringBuilder(lote.size() * 96);
+        for (Main.Historial h : lote) {
+            sb.append(Main.formatearFecha(h.fecha)).append(';').append(h.folio).append(';').append(h.tipo.name()).append(';')
+                    .append(h.usuarioCambio).append(';').append(h.detalle.replace(';', ',').replace('\n', ' ')).append(System.lineSeparator());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) canal.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Journals particionados por mes del folio (CFE-yyyyMMdd-N): datos/solicitudes-yyyyMM.csv y
+// datos/historial-yyyyMM.csv. Todo lo de un folio vive en la partición de su mes, así una escritura toca solo la
+// partición de los folios del lote (casi siempre la del mes en curso) y una consulta por folio o por rango de fechas
+// abre solo las particiones que pueden contenerlo. El manifiesto (mes;último día con eventos) permite descartar
+// meses sin leerlos; solo se reescribe cuando aparece un mes o avanza su último día.
+class Particiones {
+
+    enum Journal {
+
+        SOLICITUDES("solicitudes"), HISTORIAL("historial");
+
+        final String prefijo;
+
+        Journal(String prefijo) {
+            this.prefijo = prefijo;
+        }
+    }
+
+    private static final String MANIFIESTO = "manifiesto.csv";
+    private static final String SIN_EVENTOS = "";
+
+    private final Path directorio;
+    private final TreeMap<String, String> ultimoDia = new TreeMap<>(); // mes -> yyyy-MM-dd del último evento escrito
+
+    Particiones(String directorio) {
+        this.directorio = Paths.get(directorio);
+    }
+
+    public Path directorio() {
+        return directorio;
+    }
+
+    public boolean existe() {
+        return Files.isDirectory(directorio);
+    }
+
+    public Path archivo(Journal journal, String mes) {
+        return directorio.resolve(journal.prefijo + "-" + mes + ".csv");
+    }
+
+    // yyyyMM del folio (misma partición que el archivo histórico)
+    public static String mes(String folio) {
+        return ArchivoHistorico.particion(folio);
+    }
+
+    // Folio de un renglón CSV de cualquiera de los dos journals (primer campo)
+    public static String folioDe(String lineaCSV) {
+        int separador = lineaCSV.indexOf(';');
+        return separador < 0 ? lineaCSV : lineaCSV.substring(0, separador);
+    }
+
+    // Día (yyyy-MM-dd) de un renglón de historial: el último campo es la fecha
+    public static String diaDe(String lineaCSV) {
+        int inicio = lineaCSV.lastIndexOf(';') + 1;
+        return lineaCSV.length() - inicio >= 10 ? lineaCSV.substring(inicio, inicio + 10) : SIN_EVENTOS;
+    }
+
+    // Manifiesto más los archivos presentes: una partición creada justo antes de un corte sigue contando aunque su
+    // renglón del manifiesto no haya alcanzado a escribirse (sin último día: nunca se descarta por fecha)
+    public synchronized void cargar() throws IOException {
+
+        ultimoDia.clear();
+        leerManifiesto(ultimoDia);
+        if (!existe()) return;
+
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directorio, "*-*.csv")) {
+            for (Path p : ds) {
+                String nombre = p.getFileName().toString();
+                for (Journal j : Journal.values()) {
+                    if (nombre.startsWith(j.prefijo + "-")) ultimoDia.putIfAbsent(nombre.substring(j.prefijo.length() + 1, nombre.length() - 4), null);
+                }
+            }
+        }
+    }
+
+    public synchronized List<String> meses() {
+        return new ArrayList<>(ultimoDia.keySet());
+    }
+
+    public List<Path> archivos(Journal journal) {
+        List<Path> archivos = new ArrayList<>();
+        for (String mes : meses()) archivos.add(archivo(journal, mes));
+        return archivos;
+    }
+
+    // Meses con folios creados entre desde y hasta (yyyy-MM-dd, null = sin límite)
+    public synchronized List<String> mesesCreadosEntre(String desde, String hasta) {
+
+        List<String> meses = new ArrayList<>();
+        for (String mes : ultimoDia.keySet()) {
+            if (mes.length() == 6 && (desde != null && mes.compareTo(mesDe(desde)) < 0 || hasta != null && mes.compareTo(mesDe(hasta)) > 0)) continue;
+            meses.add(mes);
+        }
+        return meses;
+    }
+
+    // Meses que pueden tener eventos entre desde y hasta: ningún evento es anterior al mes de su folio ni posterior
+    // al último día anotado en el manifiesto
+    public synchronized List<String> mesesConEventosEntre(String desde, String hasta) {
+
+        List<String> meses = new ArrayList<>();
+        for (Map.Entry<String, String> e : ultimoDia.entrySet()) {
+            String mes = e.getKey();
+            if (mes.length() == 6 && hasta != null && mes.compareTo(mesDe(hasta)) > 0) continue;
+            if (desde != null && e.getValue() != null && e.getValue().compareTo(desde) < 0) continue;
+            meses.add(mes);
+        }
+        return meses;
+    }
+
+    // Tras anexar a una partición: registra el mes y el día más reciente de sus eventos (diaEventos vacío si solo
+    // se escribieron solicitudes). Se llama con la región del journal tomada en modo multiproceso.
+    public synchronized void anexado(String mes, String diaEventos) throws IOException {
+
+        boolean nuevo = !ultimoDia.containsKey(mes);
+        String actual = ultimoDia.get(mes);
+        boolean avanza = !diaEventos.isEmpty() && (actual == null || diaEventos.compareTo(actual) > 0);
+        if (!nuevo && !avanza) return;
+
+        ultimoDia.put(mes, avanza ? diaEventos : actual);
+        escribirManifiesto();
+    }
+
+    // Particiones reescritas completas (compactación, archivo histórico, migración): el último día se recalcula
+    public synchronized void reescrito(String mes, String diaEventos) throws IOException {
+        ultimoDia.put(mes, diaEventos.isEmpty() ? null : diaEventos);
+        escribirManifiesto();
+    }
+
+    // Otros procesos también anotan meses: se combina con lo que haya en disco antes de reescribirlo
+    private void escribirManifiesto() throws IOException {
+
+        TreeMap<String, String> enDisco = new TreeMap<>();
+        leerManifiesto(enDisco);
+        enDisco.forEach((mes, dia) -> {
+            String actual = ultimoDia.get(mes);
+            if (!ultimoDia.containsKey(mes) || dia != null && actual != null && dia.compareTo(actual) > 0) ultimoDia.put(mes, dia);
+        });
+
+        List<String> lineas = new ArrayList<>(ultimoDia.size());
+        ultimoDia.forEach((mes, dia) -> lineas.add(mes + ";" + (dia == null ? SIN_EVENTOS : dia)));
+        Files.createDirectories(directorio);
+        PersistenciaDiferida.escribirAtomico(directorio.resolve(MANIFIESTO).toString(), lineas);
+    }
+
+    private void leerManifiesto(Map<String, String> destino) throws IOException {
+
+        Path manifiesto = directorio.resolve(MANIFIESTO);
+        if (!Files.exists(manifiesto)) return;
+        for (String linea : Files.readAllLines(manifiesto, StandardCharsets.UTF_8)) {
+            int separador = linea.indexOf(';');
+            if (separador <= 0) continue;
+            String dia = linea.substring(separador + 1);
+            destino.put(linea.substring(0, separador), dia.isEmpty() ? null : dia);
+        }
+    }
+
+    private static String mesDe(String dia) {
+        return dia.substring(0, 4) + dia.substring(5, 7);
+    }
+
+    // Instalaciones anteriores: reparte los journals únicos en particiones. Se escribe a un directorio temporal que
+    // se publica con un rename, y solo después los originales pasan a <archivo>.migrado; si el proceso se corta a
+    // la mitad, el siguiente arranque repite o termina la migración sin duplicar renglones.
+    public void migrar(String journalSolicitudes, String journalHistorial) throws IOException {
+
+        Path solicitudes = Paths.get(journalSolicitudes), historial = Paths.get(journalHistorial);
+
+        if (!existe()) {
+            Path temporal = directorio.resolveSibling(directorio.getFileName() + ".tmp");
+            if (Files.isDirectory(temporal)) {
+                try (DirectoryStream<Path> ds = Files.newDirectoryStream(temporal)) {
+                    for (Path p : ds) Files.delete(p);
+                }
+            }
+            Files.createDirectories(temporal);
+
+            Particiones destino = new Particiones(temporal.toString());
+            destino.repartir(solicitudes, Journal.SOLICITUDES);
+            destino.repartir(historial, Journal.HISTORIAL);
+            destino.escribirManifiesto();
+            Files.move(temporal, directorio, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        for (Path original : List.of(solicitudes, historial)) {
+            if (Files.exists(original)) Files.move(original, original.resolveSibling(original.getFileName() + ".migrado"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        cargar();
+    }
+
+    private void repartir(Path origen, Journal journal) throws IOException {
+
+        if (!Files.exists(origen)) return;
+
+        Map<String, BufferedWriter> salidas = new HashMap<>();
+        try (BufferedReader br = Files.newBufferedReader(origen, StandardCharsets.UTF_8)) {
+            String linea;
+            while ((linea = br.readLine()) != null) {
+                if (linea.isBlank()) continue;
+                String mes = mes(folioDe(linea));
+                BufferedWriter w = salidas.get(mes);
+                if (w == null) {
+                    w = Files.newBufferedWriter(archivo(journal, mes), StandardCharsets.UTF_8);
+                    salidas.put(mes, w);
+                    ultimoDia.putIfAbsent(mes, null);
+                }
+                w.write(linea);
+                w.newLine();
+                if (journal == Journal.HISTORIAL) {
+                    String dia = diaDe(linea);
+                    String actual = ultimoDia.get(mes);
+                    if (!dia.isEmpty() && (actual == null || dia.compareTo(actual) > 0)) ultimoDia.put(mes, dia);
+                }
+            }
+        } finally {
+            for (BufferedWriter w : salidas.values()) w.close();
+        }
+    }
+}
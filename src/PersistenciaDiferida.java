@@ -0,0 +1,275 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Persistencia write-behind (RF5): agrupa solicitudes modificadas y eventos de historial de muchas
+// operaciones en una sola escritura a los journals, según la política de durabilidad configurada. Cada lote se
+// anexa a la partición del mes de sus folios (ver Particiones).
+class PersistenciaDiferida {
+
+    enum Durabilidad { INTERVALO, EVENTOS, FSYNC }
+
+    private final Particiones particiones;
+    private final Durabilidad durabilidad;
+    private final int maxEventos;
+    private final Telemetria telemetria;
+    private final AlmacenCompartido compartido; // null: un solo proceso
+
+    private final Object pendientes = new Object();
+    private LinkedHashMap<String, String> solicitudesSucias = new LinkedHashMap<>();
+    private List<String> eventosPendientes = new ArrayList<>();
+    private long secuencia;
+
+    // Group commit: quien obtiene el candado escribe el lote completo, incluidas las operaciones de otros hilos
+    private final ReentrantLock escritura = new ReentrantLock();
+    private long confirmada;
+
+    private final ScheduledExecutorService temporizador;
+
+    public PersistenciaDiferida(Particiones particiones, Durabilidad durabilidad, long intervaloMs, int maxEventos,
+                                Telemetria telemetria, AlmacenCompartido compartido) {
+
+        this.particiones = particiones;
+        this.durabilidad = durabilidad;
+        this.maxEventos = maxEventos;
+        this.telemetria = telemetria;
+        this.compartido = compartido;
+
+        if (durabilidad == Durabilidad.INTERVALO) {
+            temporizador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cfe-persistencia");
+                t.setDaemon(true);
+                return t;
+            });
+            temporizador.scheduleWithFixedDelay(this::vaciar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        } else {
+            temporizador = null;
+        }
+    }
+
+    // -Dcfe.durabilidad=INTERVALO|EVENTOS|FSYNC, -Dcfe.flush.ms=200, -Dcfe.flush.eventos=256
+    public static PersistenciaDiferida desdePropiedades(Particiones particiones, Telemetria telemetria, AlmacenCompartido compartido) {
+
+        Durabilidad durabilidad = Durabilidad.valueOf(System.getProperty("cfe.durabilidad", "INTERVALO").toUpperCase());
+        long intervaloMs = Long.getLong("cfe.flush.ms", 200);
+        int maxEventos = Integer.getInteger("cfe.flush.eventos", 256);
+        return new PersistenciaDiferida(particiones, durabilidad, intervaloMs, maxEventos, telemetria, compartido);
+    }
+
+    public void registrarSolicitud(String folio, String lineaCSV) {
+
+        long seq;
+        int total;
+        synchronized (pendientes) {
+            solicitudesSucias.remove(folio); // Reinsertar para respetar el orden de modificación
+            solicitudesSucias.put(folio, lineaCSV);
+            seq = ++secuencia;
+            total = solicitudesSucias.size() + eventosPendientes.size();
+        }
+        despuesDeRegistrar(seq, total);
+    }
+
+    public void registrarEvento(String lineaCSV) {
+
+        long seq;
+        int total;
+        synchronized (pendientes) {
+            eventosPendientes.add(lineaCSV);
+            seq = ++secuencia;
+            total = solicitudesSucias.size() + eventosPendientes.size();
+        }
+        despuesDeRegistrar(seq, total);
+    }
+
+    // Lote explícito (importaciones): se escribe de inmediato en un solo vaciado, sin importar la durabilidad
+    public boolean registrarLote(Map<String, String> solicitudes, List<String> eventos) {
+
+        long seq;
+        synchronized (pendientes) {
+            solicitudesSucias.keySet().removeAll(solicitudes.keySet());
+            solicitudesSucias.putAll(solicitudes);
+            eventosPendientes.addAll(eventos);
+            seq = ++secuencia;
+        }
+        return vaciarHasta(seq);
+    }
+
+    private void despuesDeRegistrar(long seq, int total) {
+
+        switch (durabilidad) {
+            case FSYNC: vaciarHasta(seq); break;
+            case EVENTOS: if (total >= maxEventos) vaciarHasta(seq); break;
+            case INTERVALO: break; // Lo vacía el temporizador
+        }
+    }
+
+    public int pendientes() {
+        synchronized (pendientes) {
+            return solicitudesSucias.size() + eventosPendientes.size();
+        }
+    }
+
+    // Devuelve false si quedaron escrituras pendientes por un error de E/S
+    public boolean vaciar() {
+
+        long seq;
+        synchronized (pendientes) {
+            seq = secuencia;
+        }
+        return vaciarHasta(seq);
+    }
+
+    // En modo multiproceso la región del journal se toma antes que el candado local (mismo orden que al refrescar)
+    @SuppressWarnings("try")
+    private boolean vaciarHasta(long seq) {
+
+        if (compartido == null) return vaciarLocal(seq);
+        try (AlmacenCompartido.Region region = compartido.bloquearJournal()) {
+            return vaciarLocal(seq);
+        } catch (IOException e) {
+            System.err.println("❌ Error de persistencia (se reintentará en el siguiente lote): " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean vaciarLocal(long seq) {
+
+        escritura.lock();
+        try {
+            if (confirmada >= seq) return true; // Ya lo escribió el lote de otro hilo
+
+            LinkedHashMap<String, String> lote;
+            List<String> eventos;
+            long hasta;
+
+            synchronized (pendientes) {
+                lote = solicitudesSucias;
+                eventos = eventosPendientes;
+                hasta = secuencia;
+                solicitudesSucias = new LinkedHashMap<>();
+                eventosPendientes = new ArrayList<>();
+            }
+
+            if (lote.isEmpty() && eventos.isEmpty()) {
+                confirmada = hasta;
+                return true;
+            }
+
+            long inicio = System.nanoTime();
+            try {
+                // anexar quita del lote lo que ya quedó escrito: al fallar solo se devuelve lo que falta
+                long bytes = anexar(Particiones.Journal.SOLICITUDES, lote.values()) + anexar(Particiones.Journal.HISTORIAL, eventos);
+                confirmada = hasta;
+                telemetria.registrar("vaciarJournal", System.nanoTime() - inicio, bytes);
+                return true;
+
+            } catch (IOException e) {
+                System.err.println("❌ Error de persistencia (se reintentará en el siguiente lote): " + e.getMessage());
+                devolverAPendientes(lote, eventos);
+                return false;
+            }
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    private void devolverAPendientes(LinkedHashMap<String, String> lote, List<String> eventos) {
+
+        synchronized (pendientes) {
+            lote.putAll(solicitudesSucias);
+            eventos.addAll(eventosPendientes);
+            solicitudesSucias = lote;
+            eventosPendientes = eventos;
+        }
+    }
+
+    // Una escritura por partición tocada; en cada una los renglones conservan el orden del lote. Los renglones de
+    // las particiones escritas se quitan de lineas: si una falla, lo que queda es justo lo que hay que reintentar.
+    // Una escritura a medias se trunca al tamaño previo para que el reintento no quede pegado a un renglón incompleto.
+    private long anexar(Particiones.Journal journal, Collection<String> lineas) throws IOException {
+
+        if (lineas.isEmpty()) return 0;
+
+        Map<String, StringBuilder> porMes = new TreeMap<>();
+        Map<String, String> ultimoDia = new HashMap<>();
+        for (String linea : lineas) {
+            String mes = Particiones.mes(Particiones.folioDe(linea));
+            porMes.computeIfAbsent(mes, k -> new StringBuilder()).append(linea).append(System.lineSeparator());
+            if (journal == Particiones.Journal.HISTORIAL) ultimoDia.merge(mes, Particiones.diaDe(linea), (a, b) -> b.compareTo(a) > 0 ? b : a);
+        }
+
+        long total = 0;
+        Set<String> escritos = new HashSet<>();
+        try {
+            for (Map.Entry<String, StringBuilder> e : porMes.entrySet()) {
+
+                Path archivo = particiones.archivo(journal, e.getKey());
+                ByteBuffer buffer = ByteBuffer.wrap(e.getValue().toString().getBytes(StandardCharsets.UTF_8));
+
+                try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    long inicio = canal.size(); // Exacto: se escribe con la región del journal tomada
+                    try {
+                        while (buffer.hasRemaining()) canal.write(buffer);
+                        if (durabilidad == Durabilidad.FSYNC) canal.force(false);
+                    } catch (IOException ex) {
+                        try {
+                            canal.truncate(inicio);
+                        } catch (IOException truncado) {
+                            ex.addSuppressed(truncado);
+                        }
+                        throw ex;
+                    }
+                    if (compartido != null) compartido.anexado(archivo, inicio, buffer.limit());
+                }
+                escritos.add(e.getKey());
+                particiones.anexado(e.getKey(), ultimoDia.getOrDefault(e.getKey(), ""));
+                total += buffer.limit();
+            }
+        } finally {
+            if (!escritos.isEmpty()) lineas.removeIf(linea -> escritos.contains(Particiones.mes(Particiones.folioDe(linea))));
+        }
+        return total;
+    }
+
+    public void cerrar() {
+        if (temporizador != null) temporizador.shutdown();
+        vaciar();
+    }
+
+    // Reescritura completa con archivo temporal + rename atómico: un fallo a mitad nunca trunca el original
+    public static void escribirAtomico(String archivo, Iterable<String> lineas) throws IOException {
+
+        Path destino = Paths.get(archivo).toAbsolutePath();
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(canal), StandardCharsets.UTF_8))) {
+
+            for (String linea : lineas) {
+                bw.write(linea);
+                bw.newLine();
+            }
+            bw.flush();
+            canal.force(true);
+        }
+
+        reemplazar(temporal, destino);
+    }
+
+    // Rename atómico del temporal sobre el destino; si el sistema de archivos no lo permite, rename simple
+    public static void reemplazar(Path temporal, Path destino) throws IOException {
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
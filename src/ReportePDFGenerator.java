@@ -0,0 +1,48 @@
+import java.io.*;
+
+// Reportes en PDF nativo (EscritorPDF), sin dependencias externas
+
+class ReportePDFGenerator {
+
+    // El contenido se escribe directo al archivo página por página, sin armar el documento completo en memoria
+    interface ContenidoReporte {
+        void escribir(PrintWriter out);
+    }
+
+    public static void generarPDF(String nombreArchivo, String contenido) {
+        generarPDF(nombreArchivo, out -> out.println(contenido));
+    }
+
+    public static void generarPDF(String nombreArchivo, ContenidoReporte contenido) {
+
+        try {
+
+            escribirPDF(nombreArchivo, contenido);
+            Main.sesion().out.println("✅ Reporte PDF generado en: " + nombreArchivo);
+
+        } catch (IOException e) {
+
+            Main.sesion().err.println("❌ Error al generar el PDF: " + e.getMessage());
+
+        }
+    }
+
+    // Sin mensajes de consola (generación masiva); devuelve los bytes escritos
+    static long escribirPDF(String nombreArchivo, ContenidoReporte contenido) throws IOException {
+
+        File archivo = new File(nombreArchivo);
+
+        // PrintWriter no lanza IOException: el error (incluido el del cierre, que escribe la xref) queda en checkError
+        PrintWriter out = new PrintWriter(new EscritorPDF(archivo.toPath()));
+        try {
+            out.println("COMISIÓN FEDERAL DE ELECTRICIDAD - SISTEMA DE CONTROL DE SOLICITUDES");
+            out.println();
+            contenido.escribir(out);
+            out.println("--- FIN REPORTE CFE ---");
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) throw new IOException("Escritura incompleta en " + nombreArchivo);
+        return archivo.length();
+    }
+}
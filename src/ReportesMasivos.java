@@ -0,0 +1,82 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+// Generación de reportes detallados en paralelo sobre un ForkJoinPool (auditorías de fin de mes)
+class ReportesMasivos {
+
+    private static final int UMBRAL = 16;
+    private static final int HILOS = Integer.getInteger("cfe.reportes.hilos", Runtime.getRuntime().availableProcessors());
+
+    static class Resumen {
+
+        public int reportes;
+        public int errores;
+        public long bytes;
+        public long nanos;
+    }
+
+    private static class Tarea extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Main.Solicitud> solicitudes;
+        private final int desde, hasta;
+        private final File directorio;
+        private final BiConsumer<Main.Solicitud, PrintWriter> escritor;
+        private final LongAdder generados, errores, bytes;
+
+        Tarea(List<Main.Solicitud> solicitudes, int desde, int hasta, File directorio, BiConsumer<Main.Solicitud, PrintWriter> escritor,
+              LongAdder generados, LongAdder errores, LongAdder bytes) {
+            this.solicitudes = solicitudes; this.desde = desde; this.hasta = hasta; this.directorio = directorio;
+            this.escritor = escritor; this.generados = generados; this.errores = errores; this.bytes = bytes;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (hasta - desde > UMBRAL) {
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new Tarea(solicitudes, desde, medio, directorio, escritor, generados, errores, bytes),
+                          new Tarea(solicitudes, medio, hasta, directorio, escritor, generados, errores, bytes));
+                return;
+            }
+
+            for (int i = desde; i < hasta; i++) {
+                Main.Solicitud s = solicitudes.get(i);
+                String nombre = new File(directorio, "Reporte_" + s.folio + ".pdf").getPath();
+                try {
+                    bytes.add(ReportePDFGenerator.escribirPDF(nombre, out -> escritor.accept(s, out)));
+                    generados.increment();
+                } catch (IOException e) {
+                    errores.increment();
+                }
+            }
+        }
+    }
+
+    public static Resumen generar(List<Main.Solicitud> solicitudes, File directorio, BiConsumer<Main.Solicitud, PrintWriter> escritor) {
+
+        LongAdder generados = new LongAdder(), errores = new LongAdder(), bytes = new LongAdder();
+        ForkJoinPool pool = new ForkJoinPool(HILOS);
+        long inicio = System.nanoTime();
+
+        try {
+            pool.invoke(new Tarea(solicitudes, 0, solicitudes.size(), directorio, escritor, generados, errores, bytes));
+        } finally {
+            pool.shutdown();
+        }
+
+        Resumen r = new Resumen();
+        r.nanos = System.nanoTime() - inicio;
+        r.reportes = generados.intValue();
+        r.errores = errores.intValue();
+        r.bytes = bytes.sum();
+        return r;
+    }
+}
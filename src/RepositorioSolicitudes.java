@@ -0,0 +1,534 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// Repositorio en memoria con índices hash: folio, solicitante e historial por folio (en columnas, ver HistorialFolio).
+// Con historial en disco (ver HistorialEnDisco) el historial de cada folio se lee al pedirlo y historialPorFolio
+// queda vacío.
+class RepositorioSolicitudes {
+
+    private static final int FRANJAS = 64;
+
+    private final Map<String, Main.Solicitud> porFolio = new LinkedHashMap<>();
+    private final Map<String, List<Main.Solicitud>> porSolicitante = new HashMap<>();
+    private final Map<String, HistorialFolio> historialPorFolio = new HashMap<>();
+    private final HistorialEnDisco enDisco; // null: todo el historial en memoria
+    private int totalHistorial;
+    private final MetricasSolicitudes metricas = new MetricasSolicitudes();
+    private final AnaliticaEstados analitica = new AnaliticaEstados();
+    private final VistaSolicitudes vista = new VistaSolicitudes(); // Lecturas sin candado (API)
+
+    // Índices protegidos por un candado lectura/escritura; las operaciones de un mismo folio
+    // (mutación + journal + historial) se serializan con candados por franja
+    private final ReadWriteLock candado = new ReentrantReadWriteLock();
+    private final ReentrantLock[] franjas = new ReentrantLock[FRANJAS];
+
+    // Las operaciones lo toman compartido; congelar() lo toma exclusivo para un snapshot consistente
+    private final ReadWriteLock congelamiento = new ReentrantReadWriteLock();
+
+    interface Bloqueo extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public RepositorioSolicitudes() {
+        this(null);
+    }
+
+    public RepositorioSolicitudes(HistorialEnDisco enDisco) {
+        this.enDisco = enDisco;
+        for (int i = 0; i < FRANJAS; i++) franjas[i] = new ReentrantLock();
+    }
+
+    public HistorialEnDisco enDisco() {
+        return enDisco;
+    }
+
+    public VistaSolicitudes vista() {
+        return vista;
+    }
+
+    public Bloqueo bloquear(String folio) {
+
+        congelamiento.readLock().lock();
+        ReentrantLock franja = franjas[(folio.hashCode() & 0x7fffffff) % FRANJAS];
+        franja.lock();
+
+        return () -> {
+            franja.unlock();
+            congelamiento.readLock().unlock();
+        };
+    }
+
+    public void congelar(Runnable tarea) {
+
+        congelamiento.writeLock().lock();
+        try {
+            tarea.run();
+        } finally {
+            congelamiento.writeLock().unlock();
+        }
+    }
+
+    public void cargar(List<Main.Solicitud> solicitudes, List<Main.Historial> historial) {
+        cargar(solicitudes, new HashMap<>(), historial);
+    }
+
+    // historialBase ya viene en columnas (snapshot); adicionales se insertan en orden cronológico
+    // (estable: respeta el orden del archivo en empates)
+    public void cargar(List<Main.Solicitud> solicitudes, Map<String, HistorialFolio> historialBase, List<Main.Historial> adicionales) {
+
+        candado.writeLock().lock();
+        try {
+            porFolio.clear();
+            porSolicitante.clear();
+            historialPorFolio.clear();
+            if (enDisco != null) enDisco.reiniciar();
+            metricas.reiniciar();
+            analitica.reiniciar();
+            vista.reiniciar();
+
+            for (Main.Solicitud s : solicitudes) indexar(s);
+
+            historialPorFolio.putAll(historialBase);
+            for (Main.Historial h : adicionales) {
+                historialPorFolio.computeIfAbsent(h.folio, k -> new HistorialFolio()).agregar(h);
+            }
+            totalHistorial = 0;
+            for (HistorialFolio eventos : historialPorFolio.values()) {
+                eventos.compactar();
+                totalHistorial += eventos.tamano();
+            }
+            // Única reproducción completa: de aquí en adelante la analítica avanza evento por evento
+            for (Main.Solicitud s : porFolio.values()) {
+                analitica.agregar(s, historialPorFolio.get(s.folio));
+                publicarEnVista(s);
+            }
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // Historial en disco: tras cargar las solicitudes llegan los eventos de cada partición mensual con la posición
+    // de cada renglón; aquí se indexan y alimentan la analítica, y después se descartan
+    public void cargarMes(String mes, List<Main.Historial> eventos, long[] posiciones, long bytes) {
+
+        candado.writeLock().lock();
+        try {
+            enDisco.indexar(mes, eventos, posiciones, bytes);
+            totalHistorial += eventos.size();
+
+            Map<String, HistorialFolio> delMes = new HashMap<>();
+            for (Main.Historial h : eventos) delMes.computeIfAbsent(h.folio, k -> new HistorialFolio()).agregar(h);
+            delMes.forEach((folio, historial) -> {
+                Main.Solicitud s = porFolio.get(folio);
+                if (s == null) return;
+                analitica.retirar(s, null, -1); // Se contó sin eventos al cargar las solicitudes
+                analitica.agregar(s, historial);
+                publicarEnVista(s);
+            });
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void agregarSolicitud(Main.Solicitud s) {
+
+        candado.writeLock().lock();
+        try {
+            indexar(s);
+            analitica.registrar(s);
+            publicarEnVista(s);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // Importación masiva: todo el lote con una sola toma del candado
+    public void agregarLote(List<Main.Solicitud> solicitudes, List<Main.Historial> historial) {
+
+        candado.writeLock().lock();
+        try {
+            for (Main.Solicitud s : solicitudes) indexar(s);
+            for (Main.Historial h : historial) {
+                if (enDisco != null) enDisco.agregar(h);
+                else historialPorFolio.computeIfAbsent(h.folio, k -> new HistorialFolio()).agregar(h);
+            }
+            totalHistorial += historial.size();
+            for (Main.Solicitud s : solicitudes) {
+                analitica.reconstruir(s, enDisco != null ? leer(s.folio) : historialPorFolio.get(s.folio), -1);
+                publicarEnVista(s);
+            }
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    private void indexar(Main.Solicitud s) {
+
+        Main.Solicitud anterior = porFolio.put(s.folio, s);
+        if (anterior != null) {
+            porSolicitante.get(anterior.solicitanteUsername).remove(anterior);
+            metricas.retirar(anterior);
+        }
+        porSolicitante.computeIfAbsent(s.solicitanteUsername, k -> new ArrayList<>()).add(s);
+        metricas.registrar(s);
+    }
+
+    public void cambiarEstado(Main.Solicitud s, Main.Estado nuevo) {
+
+        candado.writeLock().lock();
+        try {
+            metricas.cambiarEstado(s, s.estado, nuevo);
+            s.estado = nuevo;
+            publicarEnVista(s);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // Cerradas (COMPLETADA/CANCELADA) cuya última actividad es anterior al límite (segundos epoch, ver Main.aEpoch)
+    public List<Main.Solicitud> cerradasAntesDe(long limite) {
+
+        candado.readLock().lock();
+        try {
+            List<Main.Solicitud> cerradas = new ArrayList<>();
+            for (Main.Solicitud s : porFolio.values()) {
+                if (s.estado != Main.Estado.COMPLETADA && s.estado != Main.Estado.CANCELADA) continue;
+                long ultima;
+                if (enDisco != null) {
+                    ultima = enDisco.ultimaFecha(s.folio);
+                } else {
+                    HistorialFolio eventos = historialPorFolio.get(s.folio);
+                    ultima = eventos == null ? Long.MIN_VALUE : eventos.ultimaFecha();
+                }
+                if (ultima == Long.MIN_VALUE) ultima = s.fechaCreacion;
+                if (ultima < limite) cerradas.add(s);
+            }
+            return cerradas;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Saca del conjunto en memoria las solicitudes ya archivadas (con su historial)
+    public void retirar(Collection<String> folios) {
+
+        candado.writeLock().lock();
+        try {
+            Set<Main.Solicitud> retiradas = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (String folio : folios) {
+                Main.Solicitud s = porFolio.remove(folio);
+                if (s == null) continue;
+                retiradas.add(s);
+                metricas.retirar(s);
+                HistorialFolio eventos = enDisco != null ? retirarDeDisco(folio) : historialPorFolio.remove(folio);
+                analitica.retirar(s, eventos, -1);
+                if (eventos != null) totalHistorial -= eventos.tamano();
+            }
+            // Un solo recorrido por solicitante (remove uno a uno sería cuadrático)
+            porSolicitante.values().removeIf(propias -> {
+                propias.removeIf(retiradas::contains);
+                return propias.isEmpty();
+            });
+            vista.retirar(folios);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public <T> T consultarMetricas(Function<MetricasSolicitudes, T> consulta) {
+
+        candado.readLock().lock();
+        try {
+            return consulta.apply(metricas);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public <T> T consultarAnalitica(Function<AnaliticaEstados, T> consulta) {
+
+        candado.readLock().lock();
+        try {
+            return consulta.apply(analitica);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public Main.Solicitud buscarPorFolio(String folio) {
+
+        candado.readLock().lock();
+        try {
+            return porFolio.get(folio);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public List<Main.Solicitud> solicitudesDe(String username) {
+
+        candado.readLock().lock();
+        try {
+            return List.copyOf(porSolicitante.getOrDefault(username, Collections.emptyList()));
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public List<Main.Solicitud> todas() {
+
+        candado.readLock().lock();
+        try {
+            return List.copyOf(porFolio.values());
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public List<String> folios() {
+
+        candado.readLock().lock();
+        try {
+            return List.copyOf(porFolio.keySet());
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public int totalSolicitudes() {
+
+        candado.readLock().lock();
+        try {
+            return porFolio.size();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public void agregarHistorial(Main.Historial h) {
+
+        candado.writeLock().lock();
+        try {
+            if (enDisco != null) {
+                agregarHistorialEnDisco(h);
+                return;
+            }
+            HistorialFolio eventos = historialPorFolio.computeIfAbsent(h.folio, k -> new HistorialFolio());
+            int pos = eventos.agregar(h);
+            totalHistorial++;
+
+            Main.Solicitud s = porFolio.get(h.folio);
+            if (s == null) return;
+            if (pos == eventos.tamano() - 1) {
+                analitica.evento(h.folio, eventos, pos);
+            } else {
+                analitica.reconstruir(s, eventos, pos); // Llegó con fecha anterior a la del último evento (reloj ajustado)
+            }
+            publicarEnVista(s);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // La analítica solo necesita el evento nuevo, salvo que llegue con fecha anterior a la del último
+    private void agregarHistorialEnDisco(Main.Historial h) {
+
+        Main.Solicitud s = porFolio.get(h.folio);
+        boolean alFinal = h.fecha >= enDisco.ultimaFecha(h.folio);
+        if (s != null && !alFinal) analitica.retirar(s, obtener(h.folio), -1);
+
+        enDisco.agregar(h);
+        totalHistorial++;
+        if (s == null) return;
+        publicarEnVista(s);
+
+        if (alFinal) {
+            HistorialFolio evento = new HistorialFolio(1);
+            evento.agregar(h);
+            analitica.evento(h.folio, evento, 0);
+        } else {
+            analitica.agregar(s, obtener(h.folio)); // Reloj ajustado
+        }
+    }
+
+    // Versión de un folio para el control optimista: su número de eventos. Todo cambio (creación, estado, datos,
+    // comentario) deja un evento, y el historial es durable (journal y snapshot) e igual en todos los procesos, así
+    // que una versión leída antes de un reinicio o en otro proceso nunca coincide por casualidad con un cambio posterior.
+    public int version(String folio) {
+
+        candado.readLock().lock();
+        try {
+            return eventosDe(folio);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Con el candado del folio tomado. versionLeida < 0: solo verifica que la solicitud siga vigente (una recarga o
+    // importación reemplaza los objetos)
+    public void verificarVersion(Main.Solicitud s, int versionLeida) {
+
+        candado.readLock().lock();
+        try {
+            if (porFolio.get(s.folio) != s || (versionLeida >= 0 && eventosDe(s.folio) != versionLeida)) {
+                throw new Main.ConflictoVersion(s.folio);
+            }
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    private int eventosDe(String folio) {
+        if (enDisco != null) return enDisco.tamano(folio);
+        HistorialFolio eventos = historialPorFolio.get(folio);
+        return eventos == null ? 0 : eventos.tamano();
+    }
+
+    // Cambios que no pasan por el repositorio (título y descripción editados): se vuelven a publicar en la vista
+    public void publicar(Main.Solicitud s) {
+
+        candado.readLock().lock();
+        try {
+            if (porFolio.get(s.folio) == s) publicarEnVista(s);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    private void publicarEnVista(Main.Solicitud s) {
+        if (enDisco != null) {
+            vista.publicar(s, enDisco.tamano(s.folio), enDisco.ultimaFecha(s.folio));
+        } else {
+            HistorialFolio eventos = historialPorFolio.get(s.folio);
+            vista.publicar(s, eventos == null ? 0 : eventos.tamano(), eventos == null ? Long.MIN_VALUE : eventos.ultimaFecha());
+        }
+    }
+
+    // Snapshot con los journals vaciados: los eventos recientes pasan al índice en disco
+    public void consolidarHistorial() throws IOException {
+
+        candado.writeLock().lock();
+        try {
+            enDisco.consolidar();
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void reindexarHistorial(String mes) throws IOException {
+
+        candado.writeLock().lock();
+        try {
+            enDisco.reindexar(mes);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    // Todo el historial, un folio a la vez, sin copiarlo (índice de texto)
+    public void recorrerHistorial(BiConsumer<String, HistorialFolio> accion) {
+
+        candado.readLock().lock();
+        try {
+            if (enDisco != null) enDisco.recorrer(accion);
+            else historialPorFolio.forEach(accion);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    private HistorialFolio historial(String folio) {
+        return enDisco != null ? obtener(folio) : historialPorFolio.get(folio);
+    }
+
+    private HistorialFolio obtener(String folio) {
+        try {
+            return enDisco.obtener(folio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el historial de " + folio, e);
+        }
+    }
+
+    private HistorialFolio leer(String folio) {
+        try {
+            return enDisco.leer(folio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el historial de " + folio, e);
+        }
+    }
+
+    private HistorialFolio retirarDeDisco(String folio) {
+        try {
+            return enDisco.retirar(folio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el historial de " + folio, e);
+        }
+    }
+
+    public int totalHistorial() {
+
+        candado.readLock().lock();
+        try {
+            return totalHistorial;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Solo para volcados con las escrituras congeladas: expone las columnas sin copiarlas
+    public Map<String, HistorialFolio> historialPorFolio() {
+        return Collections.unmodifiableMap(historialPorFolio);
+    }
+
+    // Ventana [desde, desde + cantidad) del historial y total de eventos del folio, leídos juntos con el candado
+    static final class PaginaHistorial {
+
+        public final List<Main.Historial> eventos;
+        public final int total;
+
+        PaginaHistorial(List<Main.Historial> eventos, int total) {
+            this.eventos = eventos; this.total = total;
+        }
+    }
+
+    // Para recorrer folios muy grandes sin copiarlos completos
+    public PaginaHistorial paginaHistorial(String folio, int desde, int cantidad) {
+
+        candado.readLock().lock();
+        try {
+            HistorialFolio eventos = historial(folio);
+            if (eventos == null) return new PaginaHistorial(List.of(), 0);
+            if (desde >= eventos.tamano()) return new PaginaHistorial(List.of(), eventos.tamano());
+            int hasta = Math.min(eventos.tamano(), desde + cantidad);
+            List<Main.Historial> lista = new ArrayList<>(hasta - desde);
+            for (int i = desde; i < hasta; i++) lista.add(eventos.evento(folio, i));
+            return new PaginaHistorial(lista, eventos.tamano());
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    public List<Main.Historial> historialDe(String folio, int desde, int cantidad) {
+        return paginaHistorial(folio, desde, cantidad).eventos;
+    }
+
+    public List<Main.Historial> historialDe(String folio) {
+
+        candado.readLock().lock();
+        try {
+            HistorialFolio eventos = historial(folio);
+            return eventos == null ? List.of() : eventos.eventos(folio);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+}
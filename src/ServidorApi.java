@@ -0,0 +1,351 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Modo API (--api [puerto]): HTTP/JSON local sobre el servidor del JDK, un hilo (virtual si el JDK lo permite) por
+// petición. Autenticación HTTP Basic con los mismos usuarios y las mismas reglas de rol que los menús. Las lecturas
+// de solicitudes salen de la vista inmutable (VistaSolicitudes) y no toman candados (las archivadas, del archivo
+// histórico y solo para consulta); los cambios de estado pasan por Main como cualquier otra sesión.
+//   GET  /api/solicitudes/{folio}                       GET  /api/usuarios/{usuario}/solicitudes[?limite=n]
+//   GET  /api/solicitudes/{folio}/historial[?desde=&cantidad=]
+//   POST /api/solicitudes/{folio}/estado  {"estado": "EN_PROCESO", "version": 3}     GET  /api/metricas
+class ServidorApi {
+
+    public static final int PUERTO_POR_DEFECTO = 8080;
+
+    private static final int MAX_CUERPO = 64 * 1024;
+    private static final int MAX_PAGINA = 1_000;
+    private static final long NANOS_SLA = 1_000_000_000L; // La analítica de SLA se recalcula a lo más una vez por segundo
+
+    // Respuesta de error con su código HTTP
+    private static final class ErrorHttp extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        final int codigo;
+
+        ErrorHttp(int codigo, String mensaje) {
+            super(mensaje);
+            this.codigo = codigo;
+        }
+    }
+
+    // Folio visible para el usuario: de la vista o, si ya se archivó, del archivo histórico (solo consulta)
+    private static final class Visible {
+
+        final VistaSolicitudes.Folio folio;
+        final ArchivoHistorico.Registro archivado; // null: vigente
+
+        Visible(VistaSolicitudes.Folio folio, ArchivoHistorico.Registro archivado) {
+            this.folio = folio; this.archivado = archivado;
+        }
+    }
+
+    private final int puerto;
+    private final Telemetria telemetria;
+    private volatile Map<String, Object> sla;
+    private volatile long slaCalculado;
+
+    public ServidorApi(int puerto, Telemetria telemetria) {
+        this.puerto = puerto;
+        this.telemetria = telemetria;
+    }
+
+    public void iniciar() {
+
+        try {
+            HttpServer servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), 128);
+            servidor.setExecutor(ServidorSesiones.crearEjecutorSesiones());
+            servidor.createContext("/api/", this::atender);
+            servidor.start();
+            System.out.println("✅ API escuchando en http://localhost:" + puerto + "/api/");
+        } catch (IOException e) {
+            System.err.println("❌ Error al iniciar la API: " + e.getMessage());
+        }
+    }
+
+    private void atender(HttpExchange intercambio) {
+
+        long inicio = System.nanoTime();
+        String ruta = "desconocida";
+        int codigo;
+        Object respuesta;
+
+        try {
+            String[] partes = intercambio.getRequestURI().getPath().substring("/api/".length()).split("/");
+            ruta = ruta(partes);
+            Main.Usuario usuario = autenticar(intercambio);
+            Main.abrirSesion(usuario);
+            try {
+                respuesta = despachar(intercambio, partes, ruta, usuario);
+                codigo = 200;
+            } finally {
+                Main.cerrarSesion();
+            }
+        } catch (ErrorHttp e) {
+            codigo = e.codigo;
+            respuesta = Collections.singletonMap("error", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            codigo = 400;
+            respuesta = Collections.singletonMap("error", e.getMessage());
+        } catch (Main.ConflictoVersion e) {
+            codigo = 409; // Versión vieja: el cliente debe consultar de nuevo
+            respuesta = Collections.singletonMap("error", e.getMessage());
+        } catch (IllegalStateException e) {
+            codigo = 503; // Candado del folio o recarga de otro proceso: se puede reintentar
+            respuesta = Collections.singletonMap("error", e.getMessage());
+        } catch (UncheckedIOException | IOException e) {
+            codigo = 500;
+            respuesta = Collections.singletonMap("error", e.getMessage());
+        } catch (RuntimeException e) {
+            // Cualquier otro fallo (cuerpo con tipos inesperados, error de programación): el cliente siempre recibe respuesta
+            System.err.println("❌ Error en la API (" + ruta + "): " + e);
+            codigo = 500;
+            respuesta = Collections.singletonMap("error", "Error interno del servidor");
+        }
+
+        try (intercambio) {
+            byte[] cuerpo = Json.escribir(respuesta).getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            if (codigo == 401) intercambio.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"cfe\", charset=\"UTF-8\"");
+            intercambio.sendResponseHeaders(codigo, cuerpo.length);
+            try (OutputStream out = intercambio.getResponseBody()) {
+                out.write(cuerpo);
+            }
+        } catch (IOException e) {
+            // El cliente cerró la conexión antes de recibir la respuesta
+        }
+        telemetria.registrar("api." + ruta, System.nanoTime() - inicio);
+    }
+
+    private static String ruta(String[] p) {
+        if (p.length == 2 && p[0].equals("solicitudes")) return "solicitud";
+        if (p.length == 3 && p[0].equals("solicitudes") && p[2].equals("historial")) return "historial";
+        if (p.length == 3 && p[0].equals("solicitudes") && p[2].equals("estado")) return "estado";
+        if (p.length == 3 && p[0].equals("usuarios") && p[2].equals("solicitudes")) return "usuario";
+        if (p.length == 1 && p[0].equals("metricas")) return "metricas";
+        throw new ErrorHttp(404, "Ruta no encontrada");
+    }
+
+    private Object despachar(HttpExchange intercambio, String[] partes, String ruta, Main.Usuario usuario) throws IOException {
+
+        String metodo = intercambio.getRequestMethod();
+        if (!metodo.equals(ruta.equals("estado") ? "POST" : "GET")) throw new ErrorHttp(405, "Método no permitido: " + metodo);
+        Map<String, String> parametros = parametros(intercambio.getRequestURI().getRawQuery());
+
+        switch (ruta) {
+
+            case "solicitud": {
+                Visible v = visible(partes[1], usuario);
+                Map<String, Object> r = aJson(v.folio);
+                if (v.archivado != null) r.put("archivada", true);
+                return r;
+            }
+
+            case "historial": {
+                Visible v = visible(partes[1], usuario);
+                VistaSolicitudes.Folio f = v.folio;
+                int desde = entero(parametros, "desde", 0);
+                int cantidad = Math.min(entero(parametros, "cantidad", 100), MAX_PAGINA);
+                // Página y total de una sola lectura: entre la consulta a la vista y la del historial pudo llegar otro evento
+                RepositorioSolicitudes.PaginaHistorial pagina = v.archivado == null ? Main.paginaHistorial(f.folio, desde, cantidad)
+                        : new RepositorioSolicitudes.PaginaHistorial(v.archivado.historial.subList(Math.min(desde, f.eventos),
+                                (int) Math.min((long) desde + cantidad, f.eventos)), f.eventos);
+                List<Map<String, Object>> eventos = new ArrayList<>();
+                for (Main.Historial h : pagina.eventos) {
+                    Map<String, Object> e = new LinkedHashMap<>();
+                    e.put("tipo", h.tipo.name());
+                    e.put("usuario", h.usuarioCambio);
+                    e.put("detalle", h.detalle);
+                    e.put("fecha", Main.formatearFecha(h.fecha));
+                    eventos.add(e);
+                }
+                Map<String, Object> r = new LinkedHashMap<>();
+                r.put("folio", f.folio);
+                r.put("total", pagina.total);
+                r.put("desde", desde);
+                r.put("eventos", eventos);
+                return r;
+            }
+
+            case "estado": {
+                requerirRol(usuario, Main.Rol.RESPONSABLE, Main.Rol.ADMIN);
+                Object cuerpo = Json.leer(leerCuerpo(intercambio));
+                if (!(cuerpo instanceof Map)) throw new IllegalArgumentException("Se esperaba un objeto JSON");
+                Map<?, ?> datos = (Map<?, ?>) cuerpo;
+                if (!(datos.get("estado") instanceof String)) throw new IllegalArgumentException("Falta el campo \"estado\"");
+                Main.Estado nuevo;
+                try {
+                    nuevo = Main.Estado.valueOf(((String) datos.get("estado")).trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Estado inválido: " + datos.get("estado"));
+                }
+                int version = -1; // Sin versión el cambio se aplica sobre lo que haya, como en los menús
+                Object leida = datos.get("version");
+                if (leida instanceof Double && (Double) leida >= 0 && (Double) leida <= Integer.MAX_VALUE && (Double) leida % 1 == 0) {
+                    version = ((Double) leida).intValue();
+                } else if (leida != null) {
+                    throw new IllegalArgumentException("Versión inválida: " + leida);
+                }
+
+                Main.Solicitud s = Main.buscarSolicitud(folio(partes[1]));
+                if (s == null && Main.buscarArchivada(folio(partes[1])) != null) {
+                    throw new ErrorHttp(409, "Solicitud archivada (cerrada): solo consulta");
+                }
+                if (s == null) throw new ErrorHttp(404, "Folio no encontrado: " + folio(partes[1]));
+                Main.Estado anterior = Main.aplicarCambioEstado(s, nuevo, version);
+                Map<String, Object> r = new LinkedHashMap<>();
+                r.put("folio", s.folio);
+                r.put("anterior", anterior == null ? nuevo.name() : anterior.name());
+                r.put("estado", nuevo.name());
+                r.put("cambio", anterior != null);
+                r.put("version", Main.version(s));
+                return r;
+            }
+
+            case "usuario": {
+                String username = partes[1];
+                if (usuario.rol == Main.Rol.SOLICITANTE && !usuario.username.equals(username)) {
+                    throw new ErrorHttp(403, "Acceso denegado: solo puede consultar sus propias solicitudes");
+                }
+                int limite = Math.min(entero(parametros, "limite", 100), MAX_PAGINA);
+                List<VistaSolicitudes.Folio> propias = Main.vista().deSolicitante(username);
+                List<Map<String, Object>> lista = new ArrayList<>();
+                for (VistaSolicitudes.Folio f : propias.subList(0, Math.min(limite, propias.size()))) lista.add(aJson(f));
+                Map<String, Object> r = new LinkedHashMap<>();
+                r.put("usuario", username);
+                r.put("total", propias.size());
+                r.put("solicitudes", lista);
+                return r;
+            }
+
+            default: { // metricas
+                requerirRol(usuario, Main.Rol.RESPONSABLE, Main.Rol.ADMIN);
+                int[] conteo = Main.conteoPorEstadoVista();
+                Map<String, Object> porEstado = new LinkedHashMap<>();
+                int total = 0;
+                for (Main.Estado e : Main.Estado.values()) {
+                    porEstado.put(e.name(), conteo[e.ordinal()]);
+                    total += conteo[e.ordinal()];
+                }
+                Map<String, Object> r = new LinkedHashMap<>();
+                r.put("total", total);
+                r.put("por_estado", porEstado);
+                r.put("sla", sla());
+                return r;
+            }
+        }
+    }
+
+    // El SLA recorre la analítica con el candado de lectura del repositorio: se comparte el último cálculo
+    private Map<String, Object> sla() {
+
+        long ahora = System.nanoTime();
+        Map<String, Object> actual = sla;
+        if (actual != null && ahora - slaCalculado < NANOS_SLA) return actual;
+
+        actual = Main.resumenSla();
+        sla = actual;
+        slaCalculado = ahora;
+        return actual;
+    }
+
+    private static Main.Usuario autenticar(HttpExchange intercambio) {
+
+        String encabezado = intercambio.getRequestHeaders().getFirst("Authorization");
+        if (encabezado == null || !encabezado.regionMatches(true, 0, "Basic ", 0, 6)) throw new ErrorHttp(401, "Autenticación requerida");
+
+        String credenciales;
+        try {
+            credenciales = new String(Base64.getDecoder().decode(encabezado.substring(6).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ErrorHttp(401, "Credenciales mal formadas");
+        }
+        int separador = credenciales.indexOf(':');
+        Main.Usuario u = separador < 0 ? null : Main.autenticar(credenciales.substring(0, separador), credenciales.substring(separador + 1));
+        if (u == null) throw new ErrorHttp(401, "Credenciales incorrectas");
+        return u;
+    }
+
+    private static void requerirRol(Main.Usuario usuario, Main.Rol... roles) {
+        for (Main.Rol r : roles) if (r == usuario.rol) return;
+        throw new ErrorHttp(403, "Operación no permitida para el rol " + usuario.rol);
+    }
+
+    // Un solicitante solo ve sus propios folios (igual que en el menú). Lo que no está en la vista se busca en el
+    // archivo histórico, como en la búsqueda por folio de los menús
+    private static Visible visible(String texto, Main.Usuario usuario) {
+
+        String folio = folio(texto);
+        VistaSolicitudes.Folio f = Main.vista().folio(folio);
+        if (f == null && Main.refrescar() > 0) f = Main.vista().folio(folio); // Pudo crearlo otro proceso
+
+        ArchivoHistorico.Registro archivado = null;
+        if (f == null) {
+            archivado = Main.buscarArchivada(folio);
+            if (archivado == null) throw new ErrorHttp(404, "Folio no encontrado: " + folio);
+            List<Main.Historial> h = archivado.historial;
+            f = new VistaSolicitudes.Folio(archivado.solicitud, h.size(), h.isEmpty() ? Long.MIN_VALUE : h.get(h.size() - 1).fecha);
+        }
+        if (usuario.rol == Main.Rol.SOLICITANTE && !f.solicitante.equals(usuario.username)) {
+            throw new ErrorHttp(403, "Acceso denegado: solo puede consultar sus propias solicitudes");
+        }
+        return new Visible(f, archivado);
+    }
+
+    private static String folio(String texto) {
+        return texto.trim().toUpperCase();
+    }
+
+    private static Map<String, Object> aJson(VistaSolicitudes.Folio f) {
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("folio", f.folio);
+        r.put("titulo", f.titulo);
+        r.put("descripcion", f.descripcion);
+        r.put("solicitante", f.solicitante);
+        r.put("estado", f.estado.name());
+        r.put("version", f.eventos);
+        r.put("fecha", Main.formatearFecha(f.fechaCreacion));
+        r.put("eventos", f.eventos);
+        r.put("ultima_actividad", f.ultimaActividad == Long.MIN_VALUE ? null : Main.formatearFecha(f.ultimaActividad));
+        return r;
+    }
+
+    private static String leerCuerpo(HttpExchange intercambio) throws IOException {
+        try (InputStream in = intercambio.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_CUERPO + 1);
+            if (bytes.length > MAX_CUERPO) throw new ErrorHttp(413, "Cuerpo mayor a " + MAX_CUERPO + " bytes");
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null) return parametros;
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            if (igual > 0) parametros.put(par.substring(0, igual), par.substring(igual + 1));
+        }
+        return parametros;
+    }
+
+    private static int entero(Map<String, String> parametros, String nombre, int porDefecto) {
+        String valor = parametros.get(nombre);
+        if (valor == null) return porDefecto;
+        try {
+            int n = Integer.parseInt(valor);
+            if (n < 0) throw new NumberFormatException();
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parámetro inválido: " + nombre + "=" + valor);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Modo servidor: varias sesiones simultáneas sobre un socket local, un hilo (virtual si el JDK lo permite) por sesión
+class ServidorSesiones {
+
+    public static final int PUERTO_POR_DEFECTO = 5050;
+
+    private final int puerto;
+
+    public ServidorSesiones(int puerto) {
+        this.puerto = puerto;
+    }
+
+    public void iniciar() {
+
+        ExecutorService sesiones = crearEjecutorSesiones();
+
+        try (ServerSocket servidor = new ServerSocket(puerto, 128, InetAddress.getLoopbackAddress())) {
+
+            System.out.println("✅ Servidor de sesiones escuchando en localhost:" + puerto);
+
+            while (true) {
+                Socket cliente = servidor.accept();
+                sesiones.submit(() -> atender(cliente));
+            }
+
+        } catch (IOException e) {
+            System.err.println("❌ Error en el servidor de sesiones: " + e.getMessage());
+        } finally {
+            sesiones.shutdown();
+        }
+    }
+
+    private void atender(Socket cliente) {
+
+        try (cliente) {
+            PrintStream salida = new PrintStream(cliente.getOutputStream(), true, StandardCharsets.UTF_8);
+            Scanner entrada = new Scanner(cliente.getInputStream(), StandardCharsets.UTF_8);
+            Main.atenderSesion(new Main.Sesion(entrada, salida, salida));
+        } catch (IOException e) {
+            System.err.println("❌ Sesión terminada con error: " + e.getMessage());
+        }
+    }
+
+    // Hilos virtuales en JDK 21+; en JDK 17 se usa un hilo de plataforma por sesión
+    static ExecutorService crearEjecutorSesiones() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
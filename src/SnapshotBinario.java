@@ -0,0 +1,187 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Snapshot binario compacto de usuarios, solicitudes e historial. Guarda hasta qué byte de cada partición de los
+// journals CSV está incluido, así el arranque carga el snapshot y solo reproduce las líneas posteriores.
+class SnapshotBinario {
+
+    private static final int MAGICO = 0x43464553; // "CFES"
+    private static final int VERSION = 4; // v4: un offset por partición mensual de los journals
+    private static final int BUFFER = 1 << 20;
+
+    static class Contenido {
+
+        public Map<String, Long> longitudes; // Nombre de la partición -> bytes incluidos
+        public long selloUsuarios;
+        public List<Main.Usuario> usuarios;
+        public List<Main.Solicitud> solicitudes;
+        public Map<String, HistorialFolio> historial;
+
+        // Partición creada después del snapshot: se lee completa
+        public long offset(String particion) {
+            return longitudes.getOrDefault(particion, 0L);
+        }
+    }
+
+    // Tamaño y fecha de modificación: usuarios.csv no es un journal, se reescribe completo
+    public static long sello(String archivo) {
+        File f = new File(archivo);
+        return f.length() * 31 + f.lastModified();
+    }
+
+    public static void escribir(String archivo, Map<String, Long> longitudes, long selloUsuarios,
+                                List<Main.Usuario> usuarios, Collection<Main.Solicitud> solicitudes,
+                                int totalHistorial, Map<String, HistorialFolio> historialPorFolio) throws IOException {
+
+        Path destino = Paths.get(archivo).toAbsolutePath();
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+
+        try (FileOutputStream fos = new FileOutputStream(temporal.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, BUFFER))) {
+
+            out.writeInt(MAGICO);
+            out.writeInt(VERSION);
+            out.writeInt(longitudes.size());
+            for (Map.Entry<String, Long> e : longitudes.entrySet()) {
+                escribirTexto(out, e.getKey());
+                out.writeLong(e.getValue());
+            }
+            out.writeLong(selloUsuarios);
+
+            out.writeInt(usuarios.size());
+            for (Main.Usuario u : usuarios) {
+                escribirTexto(out, u.username);
+                escribirTexto(out, u.password);
+                out.writeByte(u.rol.ordinal());
+            }
+
+            out.writeInt(solicitudes.size());
+            for (Main.Solicitud s : solicitudes) {
+                escribirTexto(out, s.folio);
+                escribirTexto(out, s.titulo);
+                escribirTexto(out, s.descripcion);
+                escribirTexto(out, s.solicitanteUsername);
+                out.writeByte(s.estado.ordinal());
+                out.writeLong(s.fechaCreacion);
+            }
+
+            // Historial agrupado por folio (el folio se escribe una vez por grupo) y autores como índices de un
+            // diccionario propio del archivo (los ids de Diccionario.USUARIOS solo valen dentro de un proceso)
+            int[] locales = new int[Diccionario.USUARIOS.tamano()];
+            Arrays.fill(locales, -1);
+            List<String> autores = new ArrayList<>();
+            for (HistorialFolio eventos : historialPorFolio.values()) {
+                for (int i = 0; i < eventos.tamano(); i++) {
+                    int autor = eventos.autor(i);
+                    if (locales[autor] < 0) {
+                        locales[autor] = autores.size();
+                        autores.add(Diccionario.USUARIOS.valor(autor));
+                    }
+                }
+            }
+            out.writeInt(autores.size());
+            for (String autor : autores) escribirTexto(out, autor);
+
+            out.writeInt(totalHistorial);
+            out.writeInt(historialPorFolio.size());
+            for (Map.Entry<String, HistorialFolio> grupo : historialPorFolio.entrySet()) {
+                HistorialFolio eventos = grupo.getValue();
+                escribirTexto(out, grupo.getKey());
+                out.writeInt(eventos.tamano());
+                for (int i = 0; i < eventos.tamano(); i++) {
+                    out.writeInt(locales[eventos.autor(i)]);
+                    out.writeByte(eventos.tipo(i).ordinal());
+                    out.writeLong(eventos.fecha(i));
+                    escribirTexto(out, eventos.detalle(i));
+                }
+            }
+
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        PersistenciaDiferida.reemplazar(temporal, destino);
+    }
+
+    // Devuelve null si no hay snapshot o si ya no corresponde a los journals actuales
+    public static Contenido leer(String archivo, Path directorioParticiones) {
+
+        File f = new File(archivo);
+        if (!f.exists()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), BUFFER))) {
+
+            if (in.readInt() != MAGICO || in.readInt() != VERSION) return null;
+
+            Contenido c = new Contenido();
+            int particiones = in.readInt();
+            c.longitudes = new HashMap<>(particiones * 4 / 3 + 1);
+            for (int i = 0; i < particiones; i++) {
+                String nombre = leerTexto(in);
+                long bytes = in.readLong();
+                if (directorioParticiones.resolve(nombre).toFile().length() < bytes) {
+                    return null; // Partición compactada o reemplazada después del snapshot
+                }
+                c.longitudes.put(nombre, bytes);
+            }
+            c.selloUsuarios = in.readLong();
+
+            Main.Rol[] roles = Main.Rol.values();
+            Main.Estado[] estados = Main.Estado.values();
+            Main.TipoEvento[] tipos = Main.TipoEvento.values();
+
+            int n = in.readInt();
+            c.usuarios = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                c.usuarios.add(new Main.Usuario(leerTexto(in), leerTexto(in), roles[in.readByte()]));
+            }
+
+            n = in.readInt();
+            c.solicitudes = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                c.solicitudes.add(new Main.Solicitud(leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in), estados[in.readByte()], in.readLong()));
+            }
+
+            int[] autores = new int[in.readInt()];
+            for (int i = 0; i < autores.length; i++) autores[i] = Diccionario.USUARIOS.id(leerTexto(in));
+
+            in.readInt(); // Total de eventos
+            int grupos = in.readInt();
+            c.historial = new HashMap<>(grupos * 4 / 3 + 1);
+            for (int g = 0; g < grupos; g++) {
+                String folio = leerTexto(in);
+                int cantidad = in.readInt();
+                HistorialFolio eventos = new HistorialFolio(cantidad);
+                for (int i = 0; i < cantidad; i++) {
+                    int autor = autores[in.readInt()];
+                    Main.TipoEvento tipo = tipos[in.readByte()];
+                    eventos.agregar(in.readLong(), autor, tipo, leerTexto(in));
+                }
+                c.historial.put(folio, eventos);
+            }
+            return c;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Snapshot ilegible, se cargarán los CSV completos: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static void invalidar(String archivo) {
+        new File(archivo).delete();
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
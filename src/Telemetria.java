@@ -0,0 +1,234 @@
+import javax.management.*;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Telemetría de operaciones: histogramas de latencia por operación (cubetas logarítmicas sin candados),
+// bytes escritos y conteos en memoria. Se publica por JMX, en un archivo local periódico y en el menú del admin.
+class Telemetria implements DynamicMBean {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String NOMBRE_JMX = "mx.cfe:type=Telemetria";
+
+    // 8 sub-cubetas por potencia de 2: error relativo máximo de 12.5% en los percentiles
+    static final class Histograma {
+
+        private static final int SUB = 8;
+
+        private final AtomicLongArray cubetas = new AtomicLongArray(64 * SUB);
+        private final LongAdder conteo = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final AtomicLong maximo = new AtomicLong();
+
+        void registrar(long nanos) {
+            long v = Math.max(nanos, 0);
+            cubetas.incrementAndGet(cubeta(v));
+            conteo.increment();
+            if (v > maximo.get()) maximo.accumulateAndGet(v, Math::max);
+        }
+
+        private static int cubeta(long v) {
+            if (v < SUB) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            return (exp - 2) * SUB + (int) ((v >>> (exp - 3)) & (SUB - 1));
+        }
+
+        private static long limiteSuperior(int i) {
+            if (i < SUB) return i;
+            int exp = i / SUB + 2;
+            return ((long) (SUB + i % SUB + 1) << (exp - 3)) - 1;
+        }
+
+        public long conteo() {
+            return conteo.sum();
+        }
+
+        public long bytes() {
+            return bytes.sum();
+        }
+
+        public long maximo() {
+            return maximo.get();
+        }
+
+        // Límite superior de la cubeta que contiene el percentil, acotado por el máximo observado
+        public long percentil(double p) {
+
+            long total = 0;
+            long[] copia = new long[cubetas.length()];
+            for (int i = 0; i < copia.length; i++) total += copia[i] = cubetas.get(i);
+            if (total == 0) return 0;
+
+            long objetivo = (long) Math.ceil(total * p);
+            long acumulado = 0;
+            for (int i = 0; i < copia.length; i++) {
+                acumulado += copia[i];
+                if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo.get());
+            }
+            return maximo.get();
+        }
+    }
+
+    interface Medicion extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final Map<String, Histograma> operaciones = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> conteos = new ConcurrentHashMap<>();
+    private ScheduledExecutorService temporizador;
+
+    public Histograma histograma(String operacion) {
+        return operaciones.computeIfAbsent(operacion, k -> new Histograma());
+    }
+
+    // Uso: try (Telemetria.Medicion m = telemetria.medir("operacion")) { ... }
+    public Medicion medir(String operacion) {
+        Histograma h = histograma(operacion);
+        long inicio = System.nanoTime();
+        return () -> h.registrar(System.nanoTime() - inicio);
+    }
+
+    public void registrar(String operacion, long nanos) {
+        histograma(operacion).registrar(nanos);
+    }
+
+    public void registrar(String operacion, long nanos, long bytes) {
+        Histograma h = histograma(operacion);
+        h.registrar(nanos);
+        h.bytes.add(bytes);
+    }
+
+    // Valores en memoria (renglones cargados, pendientes, etc.) que se leen al momento de exportar
+    public void registrarConteo(String nombre, LongSupplier valor) {
+        conteos.put(nombre, valor);
+    }
+
+    // Valor actual de un conteo registrado (-1 si no existe)
+    public long conteo(String nombre) {
+        LongSupplier valor = conteos.get(nombre);
+        return valor == null ? -1 : valor.getAsLong();
+    }
+
+    public String formatear() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("--- MÉTRICAS DE RENDIMIENTO (").append(LocalDateTime.now().format(DATE_FORMAT)).append(") ---\n");
+        sb.append(String.format("%-20s %9s %10s %10s %10s %12s%n", "OPERACIÓN", "CONTEO", "p50 ms", "p99 ms", "MÁX ms", "BYTES"));
+
+        operaciones.forEach((nombre, h) -> sb.append(String.format("%-20s %9d %10.3f %10.3f %10.3f %12d%n",
+                nombre, h.conteo(), h.percentil(0.50) / 1e6, h.percentil(0.99) / 1e6, h.maximo() / 1e6, h.bytes())));
+
+        sb.append("En memoria:\n");
+        new TreeMap<>(conteos).forEach((nombre, valor) -> sb.append(String.format("  %-28s %d%n", nombre, valor.getAsLong())));
+        sb.append("---------------------------------\n");
+        return sb.toString();
+    }
+
+    // Registra el MBean y, si segundos > 0, reescribe el archivo de métricas con esa periodicidad
+    public void iniciarExportacion(String archivo, long segundos) {
+
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_JMX);
+            if (!servidor.isRegistered(nombre)) servidor.registerMBean(this, nombre);
+        } catch (JMException e) {
+            System.err.println("⚠️ No se pudo publicar la telemetría por JMX: " + e.getMessage());
+        }
+
+        if (segundos <= 0) return;
+
+        temporizador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cfe-metricas");
+            t.setDaemon(true);
+            return t;
+        });
+        temporizador.scheduleWithFixedDelay(() -> escribirArchivo(archivo), segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    public void escribirArchivo(String archivo) {
+        try {
+            PersistenciaDiferida.escribirAtomico(archivo, Arrays.asList(formatear().split("\n")));
+        } catch (IOException e) {
+            System.err.println("❌ Error al escribir las métricas en " + archivo + ": " + e.getMessage());
+        }
+    }
+
+    // --- JMX: un atributo por operación y estadística (p. ej. buscarPorFolio.p99Micros) y uno por conteo ---
+
+    @Override
+    public Object getAttribute(String atributo) throws AttributeNotFoundException {
+
+        LongSupplier conteo = conteos.get(atributo);
+        if (conteo != null) return conteo.getAsLong();
+
+        int punto = atributo.lastIndexOf('.');
+        Histograma h = punto < 0 ? null : operaciones.get(atributo.substring(0, punto));
+        if (h == null) throw new AttributeNotFoundException(atributo);
+
+        switch (atributo.substring(punto + 1)) {
+            case "conteo": return h.conteo();
+            case "p50Micros": return h.percentil(0.50) / 1_000;
+            case "p99Micros": return h.percentil(0.99) / 1_000;
+            case "maxMicros": return h.maximo() / 1_000;
+            case "bytes": return h.bytes();
+            default: throw new AttributeNotFoundException(atributo);
+        }
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] atributos) {
+
+        AttributeList lista = new AttributeList();
+        for (String a : atributos) {
+            try {
+                lista.add(new Attribute(a, getAttribute(a)));
+            } catch (AttributeNotFoundException e) {
+                // Se omite, como indica el contrato de DynamicMBean
+            }
+        }
+        return lista;
+    }
+
+    @Override
+    public void setAttribute(Attribute atributo) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Atributo de solo lectura: " + atributo.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList atributos) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String operacion, Object[] params, String[] firma) throws MBeanException {
+        throw new MBeanException(new UnsupportedOperationException(operacion));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+
+        List<MBeanAttributeInfo> atributos = new ArrayList<>();
+        for (String op : operaciones.keySet()) {
+            for (String estadistica : new String[] { "conteo", "p50Micros", "p99Micros", "maxMicros", "bytes" }) {
+                atributos.add(new MBeanAttributeInfo(op + "." + estadistica, "long", op + " " + estadistica, true, false, false));
+            }
+        }
+        for (String nombre : new TreeSet<>(conteos.keySet())) {
+            atributos.add(new MBeanAttributeInfo(nombre, "long", "En memoria: " + nombre, true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Telemetría del sistema de solicitudes CFE",
+                atributos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
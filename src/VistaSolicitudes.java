@@ -0,0 +1,106 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Vista de solo lectura para la API (ServidorApi): cada cambio de un folio publica un objeto inmutable nuevo
+// (copia en escritura por folio), así las lecturas no toman ningún candado ni frenan a quien escribe. La lista de
+// cada solicitante es una lista enlazada inmutable que comparte su cola: agregar un folio no la copia.
+// Las publicaciones se serializan en la propia vista; las lecturas nunca esperan.
+final class VistaSolicitudes {
+
+    private static final Main.Estado[] ESTADOS = Main.Estado.values();
+
+    static final class Folio {
+
+        public final String folio;
+        public final String titulo;
+        public final String descripcion;
+        public final String solicitante;
+        public final Main.Estado estado;
+        public final long fechaCreacion;
+        public final int eventos; // También es la versión del folio (ver RepositorioSolicitudes.version)
+        public final long ultimaActividad; // Long.MIN_VALUE sin eventos
+
+        Folio(Main.Solicitud s, int eventos, long ultimaActividad) {
+            this.folio = s.folio; this.titulo = s.titulo; this.descripcion = s.descripcion;
+            this.solicitante = s.solicitanteUsername; this.estado = s.estado;
+            this.fechaCreacion = s.fechaCreacion; this.eventos = eventos; this.ultimaActividad = ultimaActividad;
+        }
+    }
+
+    private static final class Nodo {
+
+        final String folio;
+        final Nodo siguiente;
+
+        Nodo(String folio, Nodo siguiente) {
+            this.folio = folio; this.siguiente = siguiente;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Folio> porFolio = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Nodo> porSolicitante = new ConcurrentHashMap<>();
+    private volatile int[] porEstado = new int[ESTADOS.length]; // Se reemplaza completo, nunca se modifica
+
+    public synchronized void reiniciar() {
+        porFolio.clear();
+        porSolicitante.clear();
+        porEstado = new int[ESTADOS.length];
+    }
+
+    public synchronized void publicar(Main.Solicitud s, int eventos, long ultimaActividad) {
+
+        Folio nuevo = new Folio(s, eventos, ultimaActividad);
+        Folio anterior = porFolio.put(s.folio, nuevo);
+        if (anterior == null) porSolicitante.put(nuevo.solicitante, new Nodo(nuevo.folio, porSolicitante.get(nuevo.solicitante)));
+
+        if (anterior == null || anterior.estado != nuevo.estado) {
+            int[] conteo = porEstado.clone();
+            if (anterior != null) conteo[anterior.estado.ordinal()]--;
+            conteo[nuevo.estado.ordinal()]++;
+            porEstado = conteo;
+        }
+    }
+
+    // Archivo histórico: cada lista afectada se reconstruye una sola vez
+    public synchronized void retirar(Collection<String> folios) {
+
+        Set<String> solicitantes = new HashSet<>();
+        int[] conteo = porEstado.clone();
+        for (String folio : folios) {
+            Folio f = porFolio.remove(folio);
+            if (f == null) continue;
+            solicitantes.add(f.solicitante);
+            conteo[f.estado.ordinal()]--;
+        }
+        porEstado = conteo;
+
+        for (String solicitante : solicitantes) {
+            List<String> vigentes = new ArrayList<>();
+            for (Nodo n = porSolicitante.get(solicitante); n != null; n = n.siguiente) {
+                if (porFolio.containsKey(n.folio)) vigentes.add(n.folio);
+            }
+            Nodo cabeza = null;
+            for (int i = vigentes.size() - 1; i >= 0; i--) cabeza = new Nodo(vigentes.get(i), cabeza);
+            if (cabeza == null) porSolicitante.remove(solicitante);
+            else porSolicitante.put(solicitante, cabeza);
+        }
+    }
+
+    public Folio folio(String folio) {
+        return porFolio.get(folio);
+    }
+
+    // Más recientes primero
+    public List<Folio> deSolicitante(String username) {
+        List<Folio> lista = new ArrayList<>();
+        for (Nodo n = porSolicitante.get(username); n != null; n = n.siguiente) {
+            Folio f = porFolio.get(n.folio);
+            if (f != null) lista.add(f);
+        }
+        return lista;
+    }
+
+    public int[] porEstado() {
+        return porEstado.clone();
+    }
+}
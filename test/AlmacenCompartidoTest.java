@@ -0,0 +1,108 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Dos instancias sobre el mismo archivo de candados hacen las veces de dos procesos. Los candados de FileChannel
+// son por JVM, así que cada paso toma la región del journal por turnos y nunca a la vez.
+class AlmacenCompartidoTest {
+
+    @TempDir
+    Path directorio;
+
+    private String journal;
+    private AlmacenCompartido a, b;
+
+    @BeforeEach
+    void preparar() throws IOException {
+
+        Path archivo = directorio.resolve("historial.csv");
+        Files.writeString(archivo, "folio;usuario;tipo;detalle;fecha\n");
+        journal = archivo.toString();
+
+        String candados = directorio.resolve("candados.lck").toString();
+        a = AlmacenCompartido.abrir(candados);
+        b = AlmacenCompartido.abrir(candados);
+        for (AlmacenCompartido almacen : List.of(a, b)) {
+            try (AlmacenCompartido.Region region = almacen.bloquearJournal()) {
+                almacen.sincronizado(journal);
+            }
+        }
+    }
+
+    @AfterEach
+    void cerrar() {
+        a.close();
+        b.close();
+    }
+
+    @Test
+    void cadaInstanciaLeeSoloLoQueAnexaronLasDemas() throws IOException {
+
+        anexar(a, "uno\n");
+        anexar(b, "dos\n");
+        anexar(a, "tres\n");
+
+        assertEquals(List.of("dos"), leer(a));
+        assertEquals(List.of("uno", "tres"), leer(b));
+
+        assertEquals(List.of(), leer(a));
+        assertEquals(List.of(), leer(b));
+    }
+
+    @Test
+    void unRenglonSinTerminarSeLeeCuandoSeCompleta() throws IOException {
+
+        escribir("cuat");
+        assertEquals(List.of(), leer(a));
+
+        escribir("ro\n");
+        assertEquals(List.of("cuatro"), leer(a));
+    }
+
+    @Test
+    void laReescrituraSoloObligaARecargarALosDemas() throws IOException {
+
+        try (AlmacenCompartido.Region region = a.bloquearJournal()) {
+            a.reescrito(journal);
+        }
+
+        try (AlmacenCompartido.Region region = a.bloquearJournal()) {
+            assertFalse(a.reescritoPorOtro());
+        }
+        try (AlmacenCompartido.Region region = b.bloquearJournal()) {
+            assertTrue(b.reescritoPorOtro());
+            b.sincronizado(journal);
+            assertFalse(b.reescritoPorOtro());
+        }
+    }
+
+    private void anexar(AlmacenCompartido almacen, String renglon) throws IOException {
+        try (AlmacenCompartido.Region region = almacen.bloquearJournal()) {
+            long inicio = Files.size(Path.of(journal));
+            long bytes = escribir(renglon);
+            almacen.anexado(Path.of(journal), inicio, bytes);
+        }
+    }
+
+    private List<String> leer(AlmacenCompartido almacen) throws IOException {
+        try (AlmacenCompartido.Region region = almacen.bloquearJournal()) {
+            return almacen.leerNuevas(journal);
+        }
+    }
+
+    private long escribir(String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        Files.write(Path.of(journal), bytes, StandardOpenOption.APPEND);
+        return bytes.length;
+    }
+}
@@ -0,0 +1,47 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistenciaDiferidaTest {
+
+    @TempDir
+    Path directorio;
+
+    // La partición de diciembre no se puede abrir (es un directorio): lo de noviembre y las solicitudes quedan
+    // escritos y el reintento solo anexa lo que faltó, sin duplicar eventos
+    @Test
+    void unVaciadoFallidoSoloReintentaLoQueNoSeEscribio() throws IOException {
+
+        Particiones particiones = new Particiones(directorio.toString());
+        PersistenciaDiferida persistencia = new PersistenciaDiferida(particiones, PersistenciaDiferida.Durabilidad.EVENTOS,
+                0, Integer.MAX_VALUE, new Telemetria(), null);
+
+        Path diciembre = particiones.archivo(Particiones.Journal.HISTORIAL, "202512");
+        Files.createDirectory(diciembre);
+
+        persistencia.registrarSolicitud("CFE-20251103-1", "CFE-20251103-1;Uno;Desc;dpto_compras;RECIBIDA;2025-11-03 10:00:00");
+        persistencia.registrarSolicitud("CFE-20251203-2", "CFE-20251203-2;Dos;Desc;dpto_compras;RECIBIDA;2025-12-03 10:00:00");
+        persistencia.registrarEvento("CFE-20251103-1;dpto_compras;CREACION;Creada;2025-11-03 10:00:00");
+        persistencia.registrarEvento("CFE-20251203-2;dpto_compras;CREACION;Creada;2025-12-03 10:00:00");
+
+        assertFalse(persistencia.vaciar());
+        assertEquals(1, persistencia.pendientes());
+
+        Files.delete(diciembre);
+        assertTrue(persistencia.vaciar());
+        assertEquals(0, persistencia.pendientes());
+
+        assertEquals(1, Files.readAllLines(particiones.archivo(Particiones.Journal.SOLICITUDES, "202511")).size());
+        assertEquals(1, Files.readAllLines(particiones.archivo(Particiones.Journal.SOLICITUDES, "202512")).size());
+        assertEquals(List.of("CFE-20251103-1;dpto_compras;CREACION;Creada;2025-11-03 10:00:00"),
+                Files.readAllLines(particiones.archivo(Particiones.Journal.HISTORIAL, "202511")));
+        assertEquals(List.of("CFE-20251203-2;dpto_compras;CREACION;Creada;2025-12-03 10:00:00"),
+                Files.readAllLines(diciembre));
+    }
+}
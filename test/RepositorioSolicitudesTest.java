@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Control optimista de versiones: la versión de un folio es su número de eventos en el historial
+class RepositorioSolicitudesTest {
+
+    private static final long FECHA = 1_700_000_000L;
+
+    private RepositorioSolicitudes repositorio;
+    private Main.Solicitud solicitud;
+    private List<Main.Historial> historial;
+
+    @BeforeEach
+    void preparar() {
+
+        solicitud = new Main.Solicitud("F-0001", "Falla de red", "Sin enlace en el piso 3", "dpto_compras", Main.Estado.RECIBIDA, FECHA);
+        historial = new ArrayList<>(List.of(evento(Main.TipoEvento.CREACION, 0)));
+
+        repositorio = new RepositorioSolicitudes();
+        repositorio.cargar(new ArrayList<>(List.of(solicitud)), historial);
+    }
+
+    @Test
+    void laVersionEsElNumeroDeEventos() {
+
+        assertEquals(1, repositorio.version("F-0001"));
+        assertDoesNotThrow(() -> repositorio.verificarVersion(solicitud, 1));
+
+        repositorio.agregarHistorial(evento(Main.TipoEvento.COMENTARIO, 60));
+        assertEquals(2, repositorio.version("F-0001"));
+    }
+
+    @Test
+    void unaVersionViejaSeRechaza() {
+
+        int leida = repositorio.version("F-0001");
+        repositorio.agregarHistorial(evento(Main.TipoEvento.COMENTARIO, 60));
+
+        assertThrows(Main.ConflictoVersion.class, () -> repositorio.verificarVersion(solicitud, leida));
+        assertDoesNotThrow(() -> repositorio.verificarVersion(solicitud, leida + 1));
+    }
+
+    @Test
+    void laVersionSobreviveAUnaRecarga() {
+
+        repositorio.agregarHistorial(evento(Main.TipoEvento.COMENTARIO, 60));
+        historial.add(evento(Main.TipoEvento.COMENTARIO, 60));
+        int leida = repositorio.version("F-0001");
+
+        // Otro proceso (o un reinicio) carga lo mismo desde los journals: la versión leída sigue siendo válida
+        Main.Solicitud recargada = new Main.Solicitud("F-0001", "Falla de red", "Sin enlace en el piso 3", "dpto_compras", Main.Estado.RECIBIDA, FECHA);
+        RepositorioSolicitudes otro = new RepositorioSolicitudes();
+        otro.cargar(new ArrayList<>(List.of(recargada)), historial);
+
+        assertEquals(leida, otro.version("F-0001"));
+        assertDoesNotThrow(() -> otro.verificarVersion(recargada, leida));
+    }
+
+    @Test
+    void unaSolicitudReemplazadaSeRechazaSinImportarLaVersion() {
+
+        Main.Solicitud reemplazo = new Main.Solicitud("F-0001", "Falla de red", "Sin enlace en el piso 3", "dpto_compras", Main.Estado.RECIBIDA, FECHA);
+        repositorio.cargar(new ArrayList<>(List.of(reemplazo)), historial);
+
+        assertThrows(Main.ConflictoVersion.class, () -> repositorio.verificarVersion(solicitud, -1));
+        assertDoesNotThrow(() -> repositorio.verificarVersion(reemplazo, -1));
+    }
+
+    private static Main.Historial evento(Main.TipoEvento tipo, long segundos) {
+        return new Main.Historial("F-0001", "dpto_compras", tipo, tipo.name(), FECHA + segundos);
+    }
+}